@@ -0,0 +1,12 @@
+#!/bin/sh
+# Load test of the DiffServer on localhost.
+#
+# Usage: scripts/load-test.sh [--url URL] [--op diff|equal|subset|patch] [--concurrency N] [--requests N] [--fields N]
+#
+# Without --url, a server with the default settings is started in the load generator's JVM. To test a
+# separate server, start one with: java -cp target/classes:<jackson jars> jsondiff.Main --serve 8080
+# and pass --url http://127.0.0.1:8080. Run on Java 21 or later so that the server uses virtual threads.
+set -e
+cd "$(dirname "$0")/.."
+mvn -q -Pbenchmark test-compile dependency:build-classpath -Dmdep.outputFile=target/load-test.classpath
+exec java -cp "target/classes:target/test-classes:$(cat target/load-test.classpath)" jsondiff.DiffServerLoadTest "$@"
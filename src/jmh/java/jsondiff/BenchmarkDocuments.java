@@ -0,0 +1,167 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Generator of the synthetic document pairs used by {@link JsonDiffBenchmark}.
+ *
+ * Every pair is built from a fixed seed, so all runs compare exactly the same documents.
+ */
+final class BenchmarkDocuments {
+
+    /**
+     * The overall structure of a generated document.
+     */
+    enum Shape {
+        /** One object with many scalar fields. */
+        WIDE,
+        /** Objects nested many levels deep, each with a few scalar fields. */
+        DEEP,
+        /** One array with many small objects. */
+        LARGE_ARRAY
+    }
+
+    /**
+     * How much the second document of a pair differs from the first.
+     */
+    enum Divergence {
+        /** A single leaf, as far from the root as possible, differs. */
+        NEAR_IDENTICAL,
+        /** About a third of all leaves differ. */
+        DIVERGENT
+    }
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final int WIDTH = 10_000;
+    private static final int DEPTH = 200;
+
+    private BenchmarkDocuments() {
+    }
+
+    /**
+     * This method generates the first document of a pair.
+     *
+     * @param shape The structure of the document.
+     * @return The document.
+     */
+    static JsonNode first(Shape shape) {
+        return generate(shape, new Random(42));
+    }
+
+    /**
+     * This method generates the second document of a pair, a copy of the first with some leaves changed.
+     *
+     * @param shape      The structure of the document.
+     * @param divergence How many leaves to change.
+     * @return The document.
+     */
+    static JsonNode second(Shape shape, Divergence divergence) {
+        JsonNode document = generate(shape, new Random(42));
+        if (divergence == Divergence.NEAR_IDENTICAL) {
+            changeLastLeaf(document);
+        } else {
+            changeEveryThirdLeaf(document, new int[1]);
+        }
+        return document;
+    }
+
+    private static JsonNode generate(Shape shape, Random random) {
+        switch (shape) {
+            case WIDE: {
+                ObjectNode object = NODES.objectNode();
+                for (int i = 0; i < WIDTH; i++) {
+                    putScalar(object, "field" + i, random);
+                }
+                return object;
+            }
+            case DEEP: {
+                ObjectNode root = NODES.objectNode();
+                ObjectNode current = root;
+                for (int i = 0; i < DEPTH; i++) {
+                    putScalar(current, "name", random);
+                    putScalar(current, "value", random);
+                    current = current.putObject("child");
+                }
+                putScalar(current, "leaf", random);
+                return root;
+            }
+            default: {
+                ArrayNode array = NODES.arrayNode();
+                for (int i = 0; i < WIDTH; i++) {
+                    ObjectNode element = array.addObject();
+                    element.put("id", i);
+                    putScalar(element, "name", random);
+                    putScalar(element, "score", random);
+                }
+                return array;
+            }
+        }
+    }
+
+    private static void putScalar(ObjectNode object, String fieldName, Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                object.put(fieldName, random.nextInt(1_000_000));
+                break;
+            case 1:
+                object.put(fieldName, random.nextDouble());
+                break;
+            case 2:
+                object.put(fieldName, random.nextBoolean());
+                break;
+            default:
+                object.put(fieldName, Long.toHexString(random.nextLong()));
+                break;
+        }
+    }
+
+    private static void changeLastLeaf(JsonNode node) {
+        while (true) {
+            if (node.isArray()) {
+                int last = node.size() - 1;
+                JsonNode element = node.get(last);
+                if (!element.isContainerNode()) {
+                    ((ArrayNode) node).set(last, NODES.textNode("changed"));
+                    return;
+                }
+                node = element;
+            } else {
+                String lastName = null;
+                for (Iterator<String> names = node.fieldNames(); names.hasNext(); ) {
+                    lastName = names.next();
+                }
+                JsonNode value = node.get(lastName);
+                if (!value.isContainerNode()) {
+                    ((ObjectNode) node).put(lastName, "changed");
+                    return;
+                }
+                node = value;
+            }
+        }
+    }
+
+    private static void changeEveryThirdLeaf(JsonNode node, int[] counter) {
+        if (node.isObject()) {
+            ObjectNode object = (ObjectNode) node;
+            for (Iterator<String> names = object.fieldNames(); names.hasNext(); ) {
+                String name = names.next();
+                JsonNode value = object.get(name);
+                if (value.isContainerNode()) {
+                    changeEveryThirdLeaf(value, counter);
+                } else if (counter[0]++ % 3 == 0) {
+                    object.put(name, "changed");
+                }
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                changeEveryThirdLeaf(element, counter);
+            }
+        }
+    }
+}
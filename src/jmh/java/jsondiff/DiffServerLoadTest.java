@@ -0,0 +1,128 @@
+package jsondiff;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load generator for {@link DiffServer}, run by {@code scripts/load-test.sh}.
+ *
+ * Usage: {@code jsondiff.DiffServerLoadTest [--url URL] [--op diff|equal|subset|patch] [--concurrency N]
+ * [--requests N] [--fields N]}
+ *
+ * Keeps {@code concurrency} requests outstanding until {@code requests} have completed, each comparing two
+ * objects of {@code fields} fields that differ in one field, and prints the throughput, the latency
+ * percentiles and the count of each response status. Without {@code --url}, a server with the default
+ * settings is started in this JVM on a free port. The first tenth of the requests warms up the JIT and is
+ * not measured.
+ */
+public class DiffServerLoadTest {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String url = null;
+        String op = "diff";
+        int concurrency = 1000;
+        int requests = 200_000;
+        int fields = 20;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--url":
+                    url = args[i + 1];
+                    break;
+                case "--op":
+                    op = args[i + 1];
+                    break;
+                case "--concurrency":
+                    concurrency = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--requests":
+                    requests = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--fields":
+                    fields = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+        }
+
+        DiffServer server = null;
+        if (url == null) {
+            server = DiffServer.builder().port(0).build().start();
+            url = "http://127.0.0.1:" + server.getPort();
+        }
+        try {
+            run(URI.create(url + "/" + op), body(fields), concurrency, requests);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private static String body(int fields) {
+        StringBuilder left = new StringBuilder("{");
+        StringBuilder right = new StringBuilder("{");
+        for (int i = 0; i < fields; i++) {
+            String separator = i > 0 ? ", " : "";
+            left.append(separator).append("\"field").append(i).append("\": ").append(i);
+            right.append(separator).append("\"field").append(i).append("\": ").append(i == fields / 2 ? -i : i);
+        }
+        return "{\"left\": " + left.append('}') + ", \"right\": " + right.append('}') + "}";
+    }
+
+    private static void run(URI uri, String body, int concurrency, int requests) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(uri).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        int warmup = requests / 10;
+        long[] latencies = new long[requests - warmup];
+        AtomicInteger completed = new AtomicInteger();
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        Semaphore outstanding = new Semaphore(concurrency);
+        CountDownLatch done = new CountDownLatch(requests);
+        long[] measuredStart = new long[1];
+
+        for (int i = 0; i < requests; i++) {
+            outstanding.acquire();
+            if (i == warmup) {
+                measuredStart[0] = System.nanoTime();
+            }
+            long start = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                long latency = System.nanoTime() - start;
+                int index = completed.getAndIncrement() - warmup;
+                if (index >= 0) {
+                    latencies[index] = latency;
+                }
+                statuses.computeIfAbsent(failure != null ? -1 : response.statusCode(), status -> new LongAdder()).increment();
+                outstanding.release();
+                done.countDown();
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - measuredStart[0];
+
+        Arrays.sort(latencies);
+        System.out.printf("%s: %d requests, %d concurrent, %.0f requests/s%n", uri, latencies.length, concurrency,
+                latencies.length * 1e9 / elapsed);
+        for (double percentile : new double[] {50, 90, 99, 99.9, 100}) {
+            int index = Math.min(latencies.length - 1, (int) Math.ceil(percentile / 100 * latencies.length) - 1);
+            System.out.printf("  p%-5s %8.2f ms%n", percentile == 100 ? "max" : String.valueOf(percentile),
+                    latencies[Math.max(index, 0)] / 1e6);
+        }
+        Map<Integer, Long> counts = new TreeMap<>();
+        statuses.forEach((status, count) -> counts.put(status, count.sum()));
+        System.out.println("  statuses " + counts + (counts.containsKey(-1) ? " (-1 = connection failure)" : ""));
+    }
+}
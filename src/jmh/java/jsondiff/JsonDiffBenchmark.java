@@ -0,0 +1,78 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the public JsonDiff entry points on synthetic documents.
+ *
+ * Each benchmark runs in throughput mode and in sample mode, which reports latency percentiles. The
+ * {@code benchmark} Maven profile adds {@code -prof gc} to report the allocation rate as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonDiffBenchmark {
+
+    @Param({"WIDE", "DEEP", "LARGE_ARRAY"})
+    private String shape;
+
+    @Param({"NEAR_IDENTICAL", "DIVERGENT"})
+    private String divergence;
+
+    private final JsonDiff jsonDiff = new JsonDiff();
+    private JsonNode node1;
+    private JsonNode node2;
+    private String json1;
+    private String json2;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDocuments.Shape documentShape = BenchmarkDocuments.Shape.valueOf(shape);
+        node1 = BenchmarkDocuments.first(documentShape);
+        node2 = BenchmarkDocuments.second(documentShape, BenchmarkDocuments.Divergence.valueOf(divergence));
+        json1 = node1.toString();
+        json2 = node2.toString();
+    }
+
+    @Benchmark
+    public String getDiff() {
+        return jsonDiff.getDiff(node1, node2);
+    }
+
+    @Benchmark
+    public String getDiffFromStrings() throws IOException {
+        return jsonDiff.getDiff(json1, json2);
+    }
+
+    @Benchmark
+    public boolean isEqual() {
+        return jsonDiff.isEqual(node1, node2);
+    }
+
+    @Benchmark
+    public boolean isEqualFromStrings() throws IOException {
+        return jsonDiff.isEqual(json1, json2);
+    }
+
+    @Benchmark
+    public boolean isSubset() {
+        return jsonDiff.isSubset(node1, node2);
+    }
+}
@@ -0,0 +1,40 @@
+package jsondiff;
+
+/**
+ * Strategy used to decide which elements of two JSON arrays are compared with each other.
+ */
+public enum ArrayAlignment {
+
+    /**
+     * Elements are paired by position. An element inserted at the front of an array makes every following
+     * element a value mismatch.
+     */
+    INDEX,
+
+    /**
+     * Object elements are paired by the value of an identity field, see
+     * {@link DiffOptions.Builder#arrayIdentityKey(String)}. Other elements are paired by structural equality.
+     * Elements whose relative order changed are reported as moves.
+     */
+    KEY,
+
+    /**
+     * Elements are aligned by a longest common subsequence of their structural hashes (Myers' algorithm),
+     * so inserted and deleted elements are reported as such. Equal elements that changed position are
+     * reported as moves, and the remaining unaligned elements are compared by position within each gap.
+     */
+    LCS,
+
+    /**
+     * The arrays are compared as multisets, for arrays whose order carries no meaning such as tags or ids.
+     * Elements are bucketed by structural hash and each element is paired with an equal element of the
+     * other array, in linear time. When ignore, include or value comparator rules are configured, the
+     * elements left over are then bucketed by a hash normalized under those rules and paired with an
+     * equivalent element of their bucket, probing a bounded number of candidates each, so the cost stays
+     * linear. Values a comparator has no normal form for, such as numbers within a tolerance, share a bucket,
+     * and elements that find no partner within the bound are reported as missing and extra. Only the elements left over are reported: as missing if they occur more
+     * often in the first array, and as extra if they occur more often in the second. Changed elements are
+     * reported as one missing and one extra element, and order is never reported.
+     */
+    UNORDERED
+}
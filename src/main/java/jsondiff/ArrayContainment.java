@@ -0,0 +1,27 @@
+package jsondiff;
+
+/**
+ * Rule used by {@link JsonDiff#isSubset} to decide whether one JSON array is contained in another.
+ *
+ * In both modes every element of the contained array must be matched by a distinct element of the other
+ * array that contains it: an equal scalar, or an object or array that is itself a subset.
+ */
+public enum ArrayContainment {
+
+    /**
+     * The matched elements must appear in the same relative order, i.e. the contained array is a
+     * subsequence of the other, although other elements may be interleaved.
+     */
+    ORDERED,
+
+    /**
+     * The matched elements may appear in any order. Elements are first matched by structural hash, so
+     * elements that occur unchanged in the other array are found in constant time. The remaining objects and
+     * arrays are only checked against elements that share their type and their scalar fields or elements,
+     * and then matched so that no valid assignment is missed. When nothing tells the elements apart, e.g. for
+     * objects whose fields only hold objects, this takes u * m containment checks and O(u * u * m) matching
+     * steps in the worst case, where u is the number of elements not found unchanged and m the size of the
+     * other array.
+     */
+    UNORDERED
+}
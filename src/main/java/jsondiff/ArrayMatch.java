@@ -0,0 +1,364 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pairing of the elements of two JSON arrays, computed by one of the {@link ArrayAlignment} strategies.
+ *
+ * For every element of the first array the match records the paired element of the second array (if any),
+ * whether the pair changed its relative position, and whether the pair is already known to be equal so that
+ * it does not need to be compared again.
+ */
+final class ArrayMatch {
+
+    /**
+     * Upper bound for the edit distance explored by the LCS alignment. Past it, everything between the common
+     * prefix and suffix is treated as one gap whose elements are paired by position, which keeps the
+     * alignment of very different arrays from going quadratic.
+     */
+    private static final int MAX_EDIT_DISTANCE = 1024;
+
+    private final int[] pairOf;
+    private final boolean[] paired2;
+    private final boolean[] moved;
+    private final boolean[] equal;
+
+    private ArrayMatch(int size1, int size2) {
+        this.pairOf = new int[size1];
+        this.paired2 = new boolean[size2];
+        this.moved = new boolean[size1];
+        this.equal = new boolean[size1];
+        Arrays.fill(pairOf, -1);
+    }
+
+    /**
+     * @param index1 An index in the first array.
+     * @return The index of the paired element in the second array, or -1 if the element has no counterpart.
+     */
+    int pairOf(int index1) {
+        return pairOf[index1];
+    }
+
+    /**
+     * @param index2 An index in the second array.
+     * @return True if the element is paired with an element of the first array.
+     */
+    boolean isPaired(int index2) {
+        return paired2[index2];
+    }
+
+    /**
+     * @param index1 An index in the first array.
+     * @return True if the paired elements changed their position relative to the other pairs.
+     */
+    boolean isMoved(int index1) {
+        return moved[index1];
+    }
+
+    /**
+     * @param index1 An index in the first array.
+     * @return True if the paired elements are known to be structurally equal.
+     */
+    boolean isEqual(int index1) {
+        return equal[index1];
+    }
+
+    private void pair(int index1, int index2) {
+        pairOf[index1] = index2;
+        paired2[index2] = true;
+    }
+
+    /**
+     * This method pairs two elements that were left unpaired but compare without differences under the
+     * comparison rules.
+     *
+     * @param index1 An unpaired index in the first array.
+     * @param index2 An unpaired index in the second array.
+     * @param moved  True if the pair is to be reported as moved.
+     */
+    void pairEquivalent(int index1, int index2, boolean moved) {
+        pair(index1, index2);
+        this.moved[index1] = moved;
+        equal[index1] = true;
+    }
+
+    /**
+     * This method pairs object elements by the value of their identity field and all other elements by
+     * structural equality. Pairs that are not part of the longest run of pairs in increasing order of their
+     * second index are marked as moved.
+     *
+     * @param array1      The first JSON array.
+     * @param array2      The second JSON array.
+     * @param identityKey The name of the identity field.
+     * @return The match.
+     */
+    static ArrayMatch byKey(JsonNode array1, JsonNode array2, String identityKey) {
+        ArrayMatch match = new ArrayMatch(array1.size(), array2.size());
+
+        Map<Long, ArrayDeque<Integer>> candidates = new HashMap<>();
+        for (int j = 0; j < array2.size(); j++) {
+            candidates.computeIfAbsent(identity(array2.get(j), identityKey), key -> new ArrayDeque<>()).add(j);
+        }
+
+        int pairs = 0;
+        int[] pairedIndexes1 = new int[array1.size()];
+        for (int i = 0; i < array1.size(); i++) {
+            JsonNode element = array1.get(i);
+            ArrayDeque<Integer> queue = candidates.get(identity(element, identityKey));
+            if (queue == null) {
+                continue;
+            }
+            for (Iterator<Integer> it = queue.iterator(); it.hasNext(); ) {
+                int j = it.next();
+                if (sameIdentity(element, array2.get(j), identityKey)) {
+                    it.remove();
+                    match.pair(i, j);
+                    pairedIndexes1[pairs++] = i;
+                    break;
+                }
+            }
+        }
+
+        int[] sequence = new int[pairs];
+        for (int p = 0; p < pairs; p++) {
+            sequence[p] = match.pairOf[pairedIndexes1[p]];
+        }
+        boolean[] inOrder = longestIncreasingSubsequence(sequence);
+        for (int p = 0; p < pairs; p++) {
+            match.moved[pairedIndexes1[p]] = !inOrder[p];
+        }
+        return match;
+    }
+
+    /**
+     * This method pairs equal elements regardless of their position. The elements of the second array are
+     * bucketed by structural hash, and every element of the first array takes the first unpaired element
+     * of its bucket, so duplicates are paired one by one. Pairs are known to be equal and never moved.
+     *
+     * @param array1 The first JSON array.
+     * @param array2 The second JSON array.
+     * @param index1 The fingerprint index of the first tree, or null to hash the elements.
+     * @param index2 The fingerprint index of the second tree, or null to hash the elements.
+     * @return The match.
+     */
+    static ArrayMatch unordered(JsonNode array1, JsonNode array2, FingerprintIndex index1, FingerprintIndex index2) {
+        long[] hashes1 = hashes(array1, index1);
+        long[] hashes2 = hashes(array2, index2);
+        ArrayMatch match = new ArrayMatch(hashes1.length, hashes2.length);
+
+        Map<Long, ArrayDeque<Integer>> buckets = new HashMap<>();
+        for (int j = 0; j < hashes2.length; j++) {
+            buckets.computeIfAbsent(hashes2[j], key -> new ArrayDeque<>()).add(j);
+        }
+        for (int i = 0; i < hashes1.length; i++) {
+            ArrayDeque<Integer> bucket = buckets.get(hashes1[i]);
+            if (bucket != null && !bucket.isEmpty()) {
+                match.alignPair(i, bucket.poll());
+            }
+        }
+        return match;
+    }
+
+    /**
+     * This method aligns the elements by a longest common subsequence of their structural hashes. Elements
+     * on the subsequence are paired and known to be equal. Deleted elements that are equal to an inserted
+     * element are paired as moves, and the remaining deletions and insertions between two aligned elements
+     * are paired by position.
+     *
+     * @param array1 The first JSON array.
+     * @param array2 The second JSON array.
+     * @param index1 The fingerprint index of the first tree, or null to hash the elements.
+     * @param index2 The fingerprint index of the second tree, or null to hash the elements.
+     * @return The match.
+     */
+    static ArrayMatch byLcs(JsonNode array1, JsonNode array2, FingerprintIndex index1, FingerprintIndex index2) {
+        long[] hashes1 = hashes(array1, index1);
+        long[] hashes2 = hashes(array2, index2);
+        ArrayMatch match = new ArrayMatch(hashes1.length, hashes2.length);
+
+        match.align(hashes1, hashes2);
+
+        Map<Long, ArrayDeque<Integer>> inserted = new HashMap<>();
+        for (int j = 0; j < hashes2.length; j++) {
+            if (!match.paired2[j]) {
+                inserted.computeIfAbsent(hashes2[j], key -> new ArrayDeque<>()).add(j);
+            }
+        }
+        for (int i = 0; i < hashes1.length; i++) {
+            ArrayDeque<Integer> queue = match.pairOf[i] < 0 ? inserted.get(hashes1[i]) : null;
+            if (queue != null && !queue.isEmpty()) {
+                match.pair(i, queue.poll());
+                match.moved[i] = true;
+                match.equal[i] = true;
+            }
+        }
+
+        int i = 0;
+        int j = 0;
+        while (i <= hashes1.length) {
+            int anchor1 = i;
+            while (anchor1 < hashes1.length && (match.pairOf[anchor1] < 0 || match.moved[anchor1])) {
+                anchor1++;
+            }
+            int anchor2 = anchor1 < hashes1.length ? match.pairOf[anchor1] : hashes2.length;
+            for (; i < anchor1; i++) {
+                if (match.pairOf[i] >= 0) {
+                    continue;
+                }
+                while (j < anchor2 && match.paired2[j]) {
+                    j++;
+                }
+                if (j < anchor2) {
+                    match.pair(i, j++);
+                }
+            }
+            i = anchor1 + 1;
+            j = anchor2 + 1;
+        }
+        return match;
+    }
+
+    /**
+     * This method aligns two hash sequences with Myers' O((N+M)D) greedy algorithm after stripping their
+     * common prefix and suffix, and pairs the elements on the resulting common subsequence. If the middle
+     * part needs more than {@link #MAX_EDIT_DISTANCE} edits, it is left unaligned.
+     *
+     * @param hashes1 The hashes of the first array.
+     * @param hashes2 The hashes of the second array.
+     */
+    private void align(long[] hashes1, long[] hashes2) {
+        int start = 0;
+        int end1 = hashes1.length;
+        int end2 = hashes2.length;
+        while (start < end1 && start < end2 && hashes1[start] == hashes2[start]) {
+            alignPair(start, start);
+            start++;
+        }
+        while (end1 > start && end2 > start && hashes1[end1 - 1] == hashes2[end2 - 1]) {
+            alignPair(--end1, --end2);
+        }
+
+        int n = end1 - start;
+        int m = end2 - start;
+        if (n == 0 || m == 0) {
+            return;
+        }
+        int max = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])
+                        ? v[offset + k + 1]
+                        : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && hashes1[start + x] == hashes2[start + y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    backtrack(trace, d, n, m, start);
+                    return;
+                }
+            }
+            trace.add(Arrays.copyOfRange(v, offset - d, offset + d + 1));
+        }
+    }
+
+    /**
+     * This method walks the recorded furthest-reaching paths back from the end and pairs the elements on
+     * every diagonal run.
+     */
+    private void backtrack(List<int[]> trace, int distance, int n, int m, int start) {
+        int x = n;
+        int y = m;
+        for (int d = distance; d > 0; d--) {
+            int[] previous = trace.get(d - 1);
+            int k = x - y;
+            boolean down = k == -d || (k != d && previous[k - 1 + d - 1] < previous[k + 1 + d - 1]);
+            int previousK = down ? k + 1 : k - 1;
+            int previousX = previous[previousK + d - 1];
+            int previousY = previousX - previousK;
+            int snakeX = down ? previousX : previousX + 1;
+            while (x > snakeX) {
+                alignPair(start + --x, start + --y);
+            }
+            x = previousX;
+            y = previousY;
+        }
+        while (x > 0) {
+            alignPair(start + --x, start + --y);
+        }
+    }
+
+    private void alignPair(int index1, int index2) {
+        pair(index1, index2);
+        equal[index1] = true;
+    }
+
+    private static long[] hashes(JsonNode array, FingerprintIndex index) {
+        long[] hashes = new long[array.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = index != null ? index.fingerprint(array.get(i)) : StructuralHash.of(array.get(i));
+        }
+        return hashes;
+    }
+
+    private static long identity(JsonNode element, String identityKey) {
+        JsonNode key = element.isObject() ? element.get(identityKey) : null;
+        return key != null ? ~StructuralHash.of(key) : StructuralHash.of(element);
+    }
+
+    private static boolean sameIdentity(JsonNode element1, JsonNode element2, String identityKey) {
+        JsonNode key1 = element1.isObject() ? element1.get(identityKey) : null;
+        JsonNode key2 = element2.isObject() ? element2.get(identityKey) : null;
+        if (key1 != null || key2 != null) {
+            return key1 != null && key1.equals(key2);
+        }
+        return element1.equals(element2);
+    }
+
+    /**
+     * This method finds a longest strictly increasing subsequence in O(n log n).
+     *
+     * @param sequence The values.
+     * @return For every position, whether the value belongs to the subsequence.
+     */
+    static boolean[] longestIncreasingSubsequence(int[] sequence) {
+        int[] tails = new int[sequence.length];
+        int[] previous = new int[sequence.length];
+        int length = 0;
+        for (int p = 0; p < sequence.length; p++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sequence[tails[mid]] < sequence[p]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[p] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = p;
+            if (low == length) {
+                length++;
+            }
+        }
+        boolean[] members = new boolean[sequence.length];
+        for (int p = length > 0 ? tails[length - 1] : -1; p >= 0; p = previous[p]) {
+            members[p] = true;
+        }
+        return members;
+    }
+}
@@ -0,0 +1,97 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Precomputed field tables for the objects of a baseline tree that is compared many times.
+ *
+ * For every object the table holds its field names and values as arrays, which a walker comparing the
+ * baseline reads instead of iterating map entries on every comparison. The tables are keyed by node
+ * identity and never change after construction, so a layout can be shared between threads.
+ */
+final class BaselineLayout {
+
+    private final Map<JsonNode, Fields> objects = new IdentityHashMap<>();
+
+    private BaselineLayout() {
+    }
+
+    /**
+     * This method builds the tables for every object of a tree.
+     *
+     * @param root The root of the baseline tree.
+     * @return The layout.
+     */
+    static BaselineLayout of(JsonNode root) {
+        BaselineLayout layout = new BaselineLayout();
+        layout.add(root);
+        return layout;
+    }
+
+    private void add(JsonNode node) {
+        if (node.isObject()) {
+            Fields fields = Fields.of(node);
+            objects.put(node, fields);
+            for (int i = 0; i < fields.size(); i++) {
+                add(fields.value(i));
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                add(element);
+            }
+        }
+    }
+
+    /**
+     * @param node A node of any tree.
+     * @return The field table of the node if it is an object of the baseline, null otherwise.
+     */
+    Fields get(JsonNode node) {
+        return objects.get(node);
+    }
+
+    /**
+     * The fields of one object, in document order.
+     */
+    static final class Fields {
+
+        private final String[] fieldNames;
+        private final JsonNode[] values;
+
+        private Fields(int size) {
+            this.fieldNames = new String[size];
+            this.values = new JsonNode[size];
+        }
+
+        /**
+         * @param object A JSON object.
+         * @return The field table of the object.
+         */
+        static Fields of(JsonNode object) {
+            Fields fields = new Fields(object.size());
+            Iterator<Map.Entry<String, JsonNode>> iterator = object.fields();
+            for (int i = 0; iterator.hasNext(); i++) {
+                Map.Entry<String, JsonNode> field = iterator.next();
+                fields.fieldNames[i] = field.getKey();
+                fields.values[i] = field.getValue();
+            }
+            return fields;
+        }
+
+        int size() {
+            return values.length;
+        }
+
+        String fieldName(int i) {
+            return fieldNames[i];
+        }
+
+        JsonNode value(int i) {
+            return values[i];
+        }
+    }
+}
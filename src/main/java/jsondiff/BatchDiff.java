@@ -0,0 +1,506 @@
+package jsondiff;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Record-by-record comparison of two JSON Lines (NDJSON) streams on a pool of worker threads.
+ *
+ * Records are paired either by line number or by the value of a top-level key field. The calling thread
+ * reads the streams and hands each pair to the workers, but never has more than {@code maxInFlight} pairs
+ * queued or being compared, so a slow consumer or a slow comparison holds back reading instead of filling
+ * the heap. Results are delivered on the calling thread, either in record order or as soon as they are
+ * ready, each tagged with its record indexes.
+ *
+ * Pairing by key does not hold either stream in memory: both streams are first partitioned by the hash of
+ * their keys into temporary files, and then one partition at a time is loaded and joined. Peak memory is
+ * therefore about the size of the largest partition of the second stream, which shrinks as the number of
+ * partitions grows. With key pairing, results are in record order within each partition only.
+ *
+ * Records whose lines are identical are reported as equal without being parsed. Blank lines are skipped
+ * and do not count as records. A batch diff is immutable and may run several comparisons concurrently.
+ */
+public final class BatchDiff {
+
+    private static final JsonFactory KEY_FACTORY = new JsonFactory();
+
+    private final JsonDiff jsonDiff;
+    private final String keyField;
+    private final int threads;
+    private final int maxInFlight;
+    private final boolean ordered;
+    private final int partitions;
+    private final Path tempDirectory;
+
+    private BatchDiff(Builder builder) {
+        this.jsonDiff = builder.jsonDiff;
+        this.keyField = builder.keyField;
+        this.threads = builder.threads;
+        this.maxInFlight = builder.maxInFlight;
+        this.ordered = builder.ordered;
+        this.partitions = builder.partitions;
+        this.tempDirectory = builder.tempDirectory;
+    }
+
+    /**
+     * @return A builder initialized with the default settings.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * This method compares two JSON Lines files, memory-mapped and read as UTF-8.
+     *
+     * @param file1    The first JSON Lines file.
+     * @param file2    The second JSON Lines file.
+     * @param listener The listener receiving the result for every record.
+     * @throws IOException If reading fails or a record is not valid JSON.
+     */
+    public void diff(Path file1, Path file2, RecordListener listener) throws IOException {
+        try (InputStream lines1 = new MappedFileInputStream(file1);
+             InputStream lines2 = new MappedFileInputStream(file2)) {
+            diff(lines1, lines2, listener);
+        }
+    }
+
+    /**
+     * This method compares two JSON Lines streams, read as UTF-8. The streams are not closed.
+     *
+     * @param lines1   The first JSON Lines stream.
+     * @param lines2   The second JSON Lines stream.
+     * @param listener The listener receiving the result for every record.
+     * @throws IOException If reading fails or a record is not valid JSON.
+     */
+    public void diff(InputStream lines1, InputStream lines2, RecordListener listener) throws IOException {
+        BufferedReader reader1 = reader(lines1);
+        BufferedReader reader2 = reader(lines2);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new WorkerFactory());
+        try {
+            Pipeline pipeline = new Pipeline(executor, listener);
+            if (keyField == null) {
+                diffByLine(reader1, reader2, pipeline);
+            } else {
+                diffByKey(reader1, reader2, pipeline);
+            }
+            pipeline.drain();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void diffByLine(BufferedReader reader1, BufferedReader reader2, Pipeline pipeline) throws IOException {
+        String line1 = nextRecord(reader1);
+        String line2 = nextRecord(reader2);
+        for (long index = 0; line1 != null || line2 != null; index++) {
+            if (line2 == null) {
+                pipeline.complete(new RecordDiff(RecordDiff.Status.MISSING, index, -1, null, List.of()));
+            } else if (line1 == null) {
+                pipeline.complete(new RecordDiff(RecordDiff.Status.EXTRA, -1, index, null, List.of()));
+            } else {
+                pipeline.submit(compare(index, index, null, line1, line2));
+            }
+            line1 = line1 != null ? nextRecord(reader1) : null;
+            line2 = line2 != null ? nextRecord(reader2) : null;
+        }
+    }
+
+    /**
+     * This method pairs the records by key with a partitioned hash join over temporary files.
+     */
+    private void diffByKey(BufferedReader reader1, BufferedReader reader2, Pipeline pipeline) throws IOException {
+        Path directory = tempDirectory != null
+                ? Files.createTempDirectory(tempDirectory, "jsondiff-batch")
+                : Files.createTempDirectory("jsondiff-batch");
+        try {
+            Path[] partitions1 = partition(reader1, directory, "left", pipeline, RecordDiff.Status.MISSING);
+            Path[] partitions2 = partition(reader2, directory, "right", pipeline, RecordDiff.Status.EXTRA);
+            for (int p = 0; p < partitions; p++) {
+                joinPartition(partitions1[p], partitions2[p], pipeline);
+                Files.delete(partitions1[p]);
+                Files.delete(partitions2[p]);
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Iterator<Path> it = files.iterator(); it.hasNext(); ) {
+                    Files.deleteIfExists(it.next());
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * This method writes every record with a key to the partition file selected by the hash of its key,
+     * prefixed by its index. Records without a key cannot be paired and are reported right away.
+     */
+    private Path[] partition(BufferedReader reader, Path directory, String side, Pipeline pipeline,
+                             RecordDiff.Status unpaired) throws IOException {
+        Path[] files = new Path[partitions];
+        Writer[] writers = new Writer[partitions];
+        try {
+            for (int p = 0; p < partitions; p++) {
+                files[p] = directory.resolve(side + "-" + p + ".jsonl");
+                writers[p] = Files.newBufferedWriter(files[p], StandardCharsets.UTF_8);
+            }
+            String line;
+            for (long index = 0; (line = nextRecord(reader)) != null; index++) {
+                String key = key(line, index);
+                if (key == null) {
+                    boolean left = unpaired == RecordDiff.Status.MISSING;
+                    pipeline.complete(new RecordDiff(unpaired, left ? index : -1, left ? -1 : index, null, List.of()));
+                } else {
+                    Writer writer = writers[Math.floorMod(key.hashCode(), partitions)];
+                    writer.write(Long.toString(index));
+                    writer.write(' ');
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        } finally {
+            for (Writer writer : writers) {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * This method loads one partition of the second stream into a hash table and streams the same partition
+     * of the first stream against it. Duplicate keys are paired in record order.
+     */
+    private void joinPartition(Path file1, Path file2, Pipeline pipeline) throws IOException {
+        Map<String, ArrayDeque<long[]>> indexes = new HashMap<>();
+        List<String> lines2 = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file2, StandardCharsets.UTF_8)) {
+            String record;
+            while ((record = reader.readLine()) != null) {
+                int space = record.indexOf(' ');
+                long index = Long.parseLong(record.substring(0, space));
+                String line = record.substring(space + 1);
+                indexes.computeIfAbsent(key(line, index), key -> new ArrayDeque<>()).add(new long[] {index, lines2.size()});
+                lines2.add(line);
+            }
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file1, StandardCharsets.UTF_8)) {
+            String record;
+            while ((record = reader.readLine()) != null) {
+                int space = record.indexOf(' ');
+                long index1 = Long.parseLong(record.substring(0, space));
+                String line1 = record.substring(space + 1);
+                String key = key(line1, index1);
+                ArrayDeque<long[]> candidates = indexes.get(key);
+                long[] match = candidates != null ? candidates.poll() : null;
+                if (match == null) {
+                    pipeline.complete(new RecordDiff(RecordDiff.Status.MISSING, index1, -1, keyText(key), List.of()));
+                } else {
+                    String line2 = lines2.set((int) match[1], null);
+                    pipeline.submit(compare(index1, match[0], keyText(key), line1, line2));
+                }
+            }
+        }
+
+        List<RecordDiff> extras = new ArrayList<>();
+        for (Map.Entry<String, ArrayDeque<long[]>> entry : indexes.entrySet()) {
+            for (long[] unmatched : entry.getValue()) {
+                extras.add(new RecordDiff(RecordDiff.Status.EXTRA, -1, unmatched[0], keyText(entry.getKey()), List.of()));
+            }
+        }
+        extras.sort(Comparator.comparingLong(RecordDiff::getRightIndex));
+        for (RecordDiff extra : extras) {
+            pipeline.complete(extra);
+        }
+    }
+
+    private Callable<RecordDiff> compare(long index1, long index2, String key, String line1, String line2) {
+        return () -> {
+            if (line1.equals(line2)) {
+                return new RecordDiff(RecordDiff.Status.EQUAL, index1, index2, key, List.of());
+            }
+            List<DiffEntry> differences;
+            try {
+                differences = jsonDiff.getDifferences(line1, line2);
+            } catch (IOException e) {
+                throw new IOException("Invalid JSON in record " + index1 + ": " + e.getMessage(), e);
+            }
+            return differences.isEmpty()
+                    ? new RecordDiff(RecordDiff.Status.EQUAL, index1, index2, key, List.of())
+                    : new RecordDiff(RecordDiff.Status.CHANGED, index1, index2, key, Collections.unmodifiableList(differences));
+        };
+    }
+
+    /**
+     * This method reads the value of the key field of a record without parsing the rest of it. The text of
+     * the key is prefixed by {@code s} for a string and {@code v} for any other scalar, so that the string
+     * {@code "1"} and the number {@code 1} are different keys.
+     *
+     * @return The tagged text of the key if it is a scalar, or null if the record has no such field.
+     */
+    private String key(String line, long index) throws IOException {
+        try (JsonParser parser = KEY_FACTORY.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (fieldName.equals(keyField)) {
+                    if (!value.isScalarValue()) {
+                        return null;
+                    }
+                    return (value == JsonToken.VALUE_STRING ? "s" : "v") + parser.getText();
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            throw new IOException("Invalid JSON in record " + index + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param key A key returned by {@link #key(String, long)}.
+     * @return The text of the key without its type prefix.
+     */
+    private static String keyText(String key) {
+        return key.substring(1);
+    }
+
+    private static BufferedReader reader(InputStream lines) {
+        return new BufferedReader(new InputStreamReader(lines, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private static String nextRecord(BufferedReader reader) throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+        } while (line != null && line.isBlank());
+        return line;
+    }
+
+    /**
+     * Bounded queue of pending comparisons. Results are handed to the listener on the calling thread, in
+     * submission order or in completion order.
+     */
+    private final class Pipeline {
+
+        private final ExecutorService executor;
+        private final RecordListener listener;
+        private final ArrayDeque<Future<RecordDiff>> queue = new ArrayDeque<>();
+        private final ExecutorCompletionService<RecordDiff> completionService;
+        private int inFlight;
+
+        Pipeline(ExecutorService executor, RecordListener listener) {
+            this.executor = executor;
+            this.listener = listener;
+            this.completionService = new ExecutorCompletionService<>(executor);
+        }
+
+        /**
+         * This method queues a comparison, first waiting for the oldest (or any) pending result if the
+         * queue is full.
+         */
+        void submit(Callable<RecordDiff> comparison) throws IOException {
+            if (inFlight >= maxInFlight) {
+                emitNext();
+            }
+            if (ordered) {
+                queue.add(executor.submit(comparison));
+            } else {
+                completionService.submit(comparison);
+            }
+            inFlight++;
+        }
+
+        /**
+         * This method reports a result that needs no comparison, after all pending results if ordered.
+         */
+        void complete(RecordDiff result) throws IOException {
+            if (!ordered || queue.isEmpty()) {
+                listener.onRecord(result);
+                return;
+            }
+            if (inFlight >= maxInFlight) {
+                emitNext();
+            }
+            queue.add(CompletableFuture.completedFuture(result));
+            inFlight++;
+        }
+
+        void drain() throws IOException {
+            while (inFlight > 0) {
+                emitNext();
+            }
+        }
+
+        private void emitNext() throws IOException {
+            try {
+                Future<RecordDiff> next = ordered ? queue.poll() : completionService.take();
+                inFlight--;
+                listener.onRecord(next.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a record comparison");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+
+        private static final AtomicInteger THREADS = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "jsondiff-batch-" + THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Builder for {@link BatchDiff}.
+     */
+    public static final class Builder {
+
+        private JsonDiff jsonDiff = new JsonDiff();
+        private String keyField;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int maxInFlight = 1024;
+        private boolean ordered = true;
+        private int partitions = 64;
+        private Path tempDirectory;
+
+        private Builder() {
+        }
+
+        /**
+         * @param jsonDiff The JsonDiff comparing each pair of records, with its options. Defaults to a
+         *                 JsonDiff with the default options.
+         * @return This builder.
+         */
+        public Builder jsonDiff(JsonDiff jsonDiff) {
+            this.jsonDiff = Objects.requireNonNull(jsonDiff, "jsonDiff");
+            return this;
+        }
+
+        /**
+         * This method pairs records by the value of a top-level field instead of by line number.
+         *
+         * @param keyField The name of the key field.
+         * @return This builder.
+         */
+        public Builder keyField(String keyField) {
+            this.keyField = Objects.requireNonNull(keyField, "keyField");
+            return this;
+        }
+
+        /**
+         * @param threads The number of worker threads, at least 1. Defaults to the number of processors.
+         * @return This builder.
+         * @throws IllegalArgumentException If the number is less than 1.
+         */
+        public Builder threads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be at least 1, was " + threads);
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @param maxInFlight The maximum number of record pairs queued or being compared at any time, at
+         *                    least 1. Defaults to 1024.
+         * @return This builder.
+         * @throws IllegalArgumentException If the number is less than 1.
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("maxInFlight must be at least 1, was " + maxInFlight);
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * @param ordered True to deliver results in record order (the default), false to deliver each result
+         *                as soon as it is ready, tagged with its record indexes.
+         * @return This builder.
+         */
+        public Builder ordered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        /**
+         * @param partitions The number of temporary files each stream is split into when pairing by key, at
+         *                   least 1. Defaults to 64.
+         * @return This builder.
+         * @throws IllegalArgumentException If the number is less than 1.
+         */
+        public Builder partitions(int partitions) {
+            if (partitions < 1) {
+                throw new IllegalArgumentException("partitions must be at least 1, was " + partitions);
+            }
+            this.partitions = partitions;
+            return this;
+        }
+
+        /**
+         * @param tempDirectory The directory for the partition files, or null for the system default.
+         * @return This builder.
+         */
+        public Builder tempDirectory(Path tempDirectory) {
+            this.tempDirectory = tempDirectory;
+            return this;
+        }
+
+        /**
+         * @return The immutable batch diff.
+         */
+        public BatchDiff build() {
+            return new BatchDiff(this);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package jsondiff;
+
+/**
+ * Constants of the binary diff encoding written by {@link BinaryDiffWriter} and read by
+ * {@link BinaryDiffReader}.
+ *
+ * A stream starts with the magic bytes {@code JDIF} and a version byte, followed by one record per
+ * difference and an end byte. A record is a tag byte holding the kind and the path format of the entry,
+ * the path of a moved element in the first JSON for {@link DiffEntry.Kind#MOVED}, the path of the entry,
+ * and the left and right values.
+ *
+ * Paths are written as the number of leading segments shared with the previous path and the number of
+ * remaining segments, followed by those segments. Each segment is an unsigned varint whose low bit is set
+ * for an array index, which is stored in the other bits. Otherwise the other bits are 0 for a new field
+ * name, followed by its length and UTF-8 bytes, or 1 + the number of an earlier name, in the order in which
+ * names first appeared.
+ *
+ * Each value is the varint length of its encoding, 0 when absent, followed by a tagged encoding of the
+ * JsonNode that keeps its exact type, so that the text rendering of a decoded value is identical to that of
+ * the original. Integers are zigzag varints, floating-point numbers are stored as their IEEE 754 bits, and
+ * arrays and objects are the varint number of their elements followed by the elements, each object field
+ * preceded by its name. The missing value that stands for an empty document has a tag of its own.
+ */
+final class BinaryDiffFormat {
+
+    static final byte[] MAGIC = {'J', 'D', 'I', 'F'};
+    static final int VERSION = 1;
+    static final int END = 0xFF;
+
+    /**
+     * The most field names remembered for reuse in paths, which bounds the memory held by both sides.
+     */
+    static final int MAX_NAMES = 1 << 16;
+
+    static final int NULL = 0;
+    static final int TRUE = 1;
+    static final int FALSE = 2;
+    static final int SHORT = 3;
+    static final int INT = 4;
+    static final int LONG = 5;
+    static final int BIG_INTEGER = 6;
+    static final int FLOAT = 7;
+    static final int DOUBLE = 8;
+    static final int DECIMAL = 9;
+    static final int STRING = 10;
+    static final int BINARY = 11;
+    static final int ARRAY = 12;
+    static final int OBJECT = 13;
+    static final int MISSING = 14;
+
+    private BinaryDiffFormat() {
+    }
+
+    /**
+     * @param kind       The kind of an entry.
+     * @param pathFormat The path format of the entry.
+     * @return The tag byte of the record of the entry.
+     */
+    static int tag(DiffEntry.Kind kind, PathFormat pathFormat) {
+        return kind.ordinal() | pathFormat.ordinal() << 2;
+    }
+}
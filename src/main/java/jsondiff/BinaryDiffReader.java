@@ -0,0 +1,377 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.FloatNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.ShortNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Iterates the differences written by {@link BinaryDiffWriter}, directly from a buffer such as a byte
+ * array or a memory-mapped file.
+ *
+ * The reader is a cursor: {@link #next()} moves to the next difference and the getters describe it. Only
+ * the kind and path segments are decoded while moving; values stay in the buffer until {@link #getLeft()}
+ * or {@link #getRight()} is called, so filtering or counting entries by kind or path does not build any
+ * JsonNode or text. {@link #writeText(Appendable, DiffFormat)} converts the remaining entries to the
+ * exact output the original comparison would have produced in a given {@link DiffFormat}.
+ *
+ * A reader is not thread-safe. Malformed or truncated input is reported as an IOException.
+ */
+public final class BinaryDiffReader {
+
+    private final ByteBuffer buffer;
+    private final List<String> names = new ArrayList<>();
+    private String[] fieldNames = new String[16];
+    private int[] indexes = new int[16];
+    private int depth;
+    private boolean finished;
+
+    private DiffEntry.Kind kind;
+    private PathFormat pathFormat;
+    private DiffPath fromPath;
+    private DiffPath path;
+    private int leftOffset;
+    private int leftLength;
+    private int rightOffset;
+    private int rightLength;
+
+    /**
+     * This method creates a reader and checks the header of the stream. The position of the buffer is not
+     * changed, and the buffer must not be modified while it is read.
+     *
+     * @param buffer The buffer holding the stream from its position to its limit.
+     * @throws IOException If the buffer does not start with a supported binary diff header.
+     */
+    public BinaryDiffReader(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate();
+        byte[] magic = new byte[BinaryDiffFormat.MAGIC.length];
+        if (this.buffer.remaining() <= magic.length) {
+            throw new IOException("Not a binary diff: missing header");
+        }
+        this.buffer.get(magic);
+        if (!Arrays.equals(magic, BinaryDiffFormat.MAGIC)) {
+            throw new IOException("Not a binary diff: bad magic bytes");
+        }
+        int version = this.buffer.get() & 0xFF;
+        if (version != BinaryDiffFormat.VERSION) {
+            throw new IOException("Unsupported binary diff version " + version);
+        }
+    }
+
+    /**
+     * This method moves to the next difference.
+     *
+     * @return True if there is a difference, false at the end of the stream.
+     * @throws IOException If the stream is malformed or ends before its end marker.
+     */
+    public boolean next() throws IOException {
+        if (finished) {
+            return false;
+        }
+        try {
+            int tag = buffer.get() & 0xFF;
+            if (tag == BinaryDiffFormat.END) {
+                finished = true;
+                kind = null;
+                return false;
+            }
+            int kindNumber = tag & 3;
+            int formatNumber = tag >>> 2;
+            if (formatNumber >= PathFormat.values().length) {
+                throw new IOException("Malformed binary diff: bad tag " + tag);
+            }
+            kind = DiffEntry.Kind.values()[kindNumber];
+            pathFormat = PathFormat.values()[formatNumber];
+            fromPath = null;
+            path = null;
+            if (kind == DiffEntry.Kind.MOVED) {
+                readPath();
+                fromPath = snapshot();
+            }
+            readPath();
+            leftLength = readLength();
+            leftOffset = skip(leftLength);
+            rightLength = readLength();
+            rightOffset = skip(rightLength);
+            return true;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Malformed binary diff: truncated record", e);
+        }
+    }
+
+    /**
+     * @return The kind of the current difference.
+     */
+    public DiffEntry.Kind getKind() {
+        checkCurrent();
+        return kind;
+    }
+
+    /**
+     * @return The path of the current difference as segments.
+     */
+    public DiffPath getDiffPath() {
+        checkCurrent();
+        if (path == null) {
+            path = snapshot();
+        }
+        return path;
+    }
+
+    /**
+     * @return The path of the current difference in the {@link PathFormat} it was written with.
+     */
+    public String getPath() {
+        return getDiffPath().format(pathFormat);
+    }
+
+    /**
+     * @return For {@link DiffEntry.Kind#MOVED}, the path of the element in the first JSON as segments;
+     *         null otherwise.
+     */
+    public DiffPath getFromDiffPath() {
+        checkCurrent();
+        return fromPath;
+    }
+
+    /**
+     * @return The value in the first JSON, decoded from the buffer, or null if the difference has none.
+     * @throws IOException If the value is malformed.
+     */
+    public JsonNode getLeft() throws IOException {
+        checkCurrent();
+        return decodeValue(leftOffset, leftLength);
+    }
+
+    /**
+     * @return The value in the second JSON, decoded from the buffer, or null if the difference has none.
+     * @throws IOException If the value is malformed.
+     */
+    public JsonNode getRight() throws IOException {
+        checkCurrent();
+        return decodeValue(rightOffset, rightLength);
+    }
+
+    /**
+     * @return The current difference as an entry equal to the one that was written.
+     * @throws IOException If a value is malformed.
+     */
+    public DiffEntry toEntry() throws IOException {
+        return new DiffEntry(getKind(), getDiffPath(), fromPath, pathFormat, getLeft(), getRight());
+    }
+
+    /**
+     * This method renders the current difference, if any, and all following ones as text, producing the
+     * same output as a {@link TextDiffRenderer} attached to the original comparison.
+     *
+     * @param out    The target to write the text to.
+     * @param format The layout of the lines.
+     * @throws IOException If the stream is malformed or writing fails.
+     */
+    public void writeText(Appendable out, DiffFormat format) throws IOException {
+        TextDiffRenderer renderer = new TextDiffRenderer(out, format);
+        try {
+            if (kind != null) {
+                renderer.onDifference(toEntry());
+            }
+            while (next()) {
+                renderer.onDifference(toEntry());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void checkCurrent() {
+        if (kind == null) {
+            throw new IllegalStateException("No current difference; call next() first");
+        }
+    }
+
+    private void readPath() throws IOException {
+        int shared = readLength();
+        int count = readLength();
+        if (shared > depth) {
+            throw new IOException("Malformed binary diff: bad shared path length " + shared);
+        }
+        depth = shared;
+        if (shared + count > fieldNames.length) {
+            int capacity = Math.max(shared + count, fieldNames.length * 2);
+            fieldNames = Arrays.copyOf(fieldNames, capacity);
+            indexes = Arrays.copyOf(indexes, capacity);
+        }
+        for (int i = 0; i < count; i++) {
+            long segment = readVarint();
+            if ((segment & 1) != 0) {
+                fieldNames[depth] = null;
+                indexes[depth] = (int) (segment >>> 1);
+            } else if (segment == 0) {
+                String name = readString(buffer, readLength());
+                if (names.size() < BinaryDiffFormat.MAX_NAMES) {
+                    names.add(name);
+                }
+                fieldNames[depth] = name;
+            } else {
+                long number = (segment >>> 1) - 1;
+                if (number >= names.size()) {
+                    throw new IOException("Malformed binary diff: unknown field name " + number);
+                }
+                fieldNames[depth] = names.get((int) number);
+            }
+            depth++;
+        }
+    }
+
+    private DiffPath snapshot() {
+        return depth == 0 ? DiffPath.ROOT
+                : new DiffPath(Arrays.copyOf(fieldNames, depth), Arrays.copyOf(indexes, depth));
+    }
+
+    private long readVarint() throws IOException {
+        return readVarint(buffer);
+    }
+
+    private int readLength() throws IOException {
+        long length = readVarint();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Malformed binary diff: bad length " + length);
+        }
+        return (int) length;
+    }
+
+    private int skip(int length) {
+        int offset = buffer.position();
+        buffer.position(offset + length);
+        return offset;
+    }
+
+    private JsonNode decodeValue(int offset, int length) throws IOException {
+        if (length == 0) {
+            return null;
+        }
+        ByteBuffer value = buffer.duplicate();
+        value.limit(offset + length).position(offset);
+        try {
+            return decode(value);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Malformed binary diff: truncated value", e);
+        }
+    }
+
+    private static JsonNode decode(ByteBuffer in) throws IOException {
+        int tag = in.get() & 0xFF;
+        switch (tag) {
+            case BinaryDiffFormat.NULL:
+                return NullNode.getInstance();
+            case BinaryDiffFormat.TRUE:
+                return BooleanNode.TRUE;
+            case BinaryDiffFormat.FALSE:
+                return BooleanNode.FALSE;
+            case BinaryDiffFormat.SHORT:
+                return ShortNode.valueOf((short) readZigzag(in));
+            case BinaryDiffFormat.INT:
+                return IntNode.valueOf((int) readZigzag(in));
+            case BinaryDiffFormat.LONG:
+                return LongNode.valueOf(readZigzag(in));
+            case BinaryDiffFormat.BIG_INTEGER:
+                return JsonNodeFactory.instance.numberNode(new BigInteger(readBytes(in)));
+            case BinaryDiffFormat.FLOAT:
+                return FloatNode.valueOf(Float.intBitsToFloat(in.getInt()));
+            case BinaryDiffFormat.DOUBLE:
+                return DoubleNode.valueOf(Double.longBitsToDouble(in.getLong()));
+            case BinaryDiffFormat.DECIMAL:
+                int scale = (int) readZigzag(in);
+                return DecimalNode.valueOf(new BigDecimal(new BigInteger(readBytes(in)), scale));
+            case BinaryDiffFormat.STRING:
+                return TextNode.valueOf(readString(in, readLength(in)));
+            case BinaryDiffFormat.BINARY:
+                return BinaryNode.valueOf(readBytes(in));
+            case BinaryDiffFormat.ARRAY:
+                int size = readLength(in);
+                ArrayNode array = JsonNodeFactory.instance.arrayNode(Math.min(size, in.remaining()));
+                for (int i = 0; i < size; i++) {
+                    array.add(decode(in));
+                }
+                return array;
+            case BinaryDiffFormat.OBJECT:
+                int fields = readLength(in);
+                ObjectNode object = JsonNodeFactory.instance.objectNode();
+                for (int i = 0; i < fields; i++) {
+                    String name = readString(in, readLength(in));
+                    object.set(name, decode(in));
+                }
+                return object;
+            case BinaryDiffFormat.MISSING:
+                return MissingNode.getInstance();
+            default:
+                throw new IOException("Malformed binary diff: bad value tag " + tag);
+        }
+    }
+
+    private static long readVarint(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed binary diff: varint too long");
+    }
+
+    private static long readZigzag(ByteBuffer in) throws IOException {
+        long value = readVarint(in);
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    private static int readLength(ByteBuffer in) throws IOException {
+        long length = readVarint(in);
+        if (length > in.remaining()) {
+            throw new IOException("Malformed binary diff: bad length " + length);
+        }
+        return (int) length;
+    }
+
+    private static byte[] readBytes(ByteBuffer in) throws IOException {
+        byte[] bytes = new byte[readLength(in)];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer in, int length) {
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (in.hasArray()) {
+            String s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return s;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,292 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Writes differences in a compact binary encoding, for archiving or shipping large diffs.
+ *
+ * Each difference is written as soon as it is found, so the writer can be passed as the listener of any
+ * diff method. Paths are stored relative to the previous path with field names interned, and values in a
+ * tagged binary form instead of their JSON text, so a stream is typically several times smaller than the
+ * text diff. The stream can be iterated with {@link BinaryDiffReader} and converted back to the exact
+ * output of {@link TextDiffRenderer} in any {@link DiffFormat}. See {@link BinaryDiffFormat} for the
+ * layout.
+ *
+ * A writer writes to a single stream and is not thread-safe. Write failures are rethrown as
+ * {@link UncheckedIOException} by {@link #onDifference(DiffEntry)}. A difference whose field names or strings
+ * hold an unpaired surrogate, which UTF-8 cannot represent, is rejected with an
+ * {@link IllegalArgumentException} rather than written with a replacement character; the stream is left
+ * as it was, so later differences can still be written.
+ */
+public final class BinaryDiffWriter implements DiffListener, Closeable {
+
+    private final OutputStream out;
+    private final Map<String, Integer> names = new HashMap<>();
+    private final Bytes record = new Bytes();
+    private final Bytes value = new Bytes();
+    private DiffPath previous = DiffPath.ROOT;
+
+    /**
+     * This method creates a writer and writes the header of the stream.
+     *
+     * @param out The stream to write to. It is closed by {@link #close()}.
+     * @throws IOException If writing fails.
+     */
+    public BinaryDiffWriter(OutputStream out) throws IOException {
+        this.out = out;
+        out.write(BinaryDiffFormat.MAGIC);
+        out.write(BinaryDiffFormat.VERSION);
+    }
+
+    @Override
+    public void onDifference(DiffEntry entry) {
+        DiffPath start = previous;
+        int known = names.size();
+        record.clear();
+        try {
+            record.writeByte(BinaryDiffFormat.tag(entry.getKind(), entry.getPathFormat()));
+            if (entry.getFromDiffPath() != null) {
+                writePath(entry.getFromDiffPath());
+            }
+            writePath(entry.getDiffPath());
+            writeValue(entry.getLeft());
+            writeValue(entry.getRight());
+        } catch (IllegalArgumentException e) {
+            // Nothing of the record was written, so forget the path and names it would have introduced
+            previous = start;
+            names.values().removeIf(number -> number >= known);
+            throw e;
+        }
+        try {
+            out.write(record.bytes, 0, record.size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * This method writes the end of the stream, flushes and closes it.
+     *
+     * @throws IOException If writing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            out.write(BinaryDiffFormat.END);
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writePath(DiffPath path) {
+        int shared = 0;
+        int limit = Math.min(path.size(), previous.size());
+        while (shared < limit && sameSegment(path, previous, shared)) {
+            shared++;
+        }
+        record.writeVarint(shared);
+        record.writeVarint(path.size() - shared);
+        for (int i = shared; i < path.size(); i++) {
+            if (path.isIndex(i)) {
+                record.writeVarint((long) path.getIndex(i) << 1 | 1);
+                continue;
+            }
+            String name = path.getFieldName(i);
+            Integer number = names.get(name);
+            if (number != null) {
+                record.writeVarint((long) (number + 1) << 1);
+            } else {
+                record.writeVarint(0);
+                record.writeString(name);
+                if (names.size() < BinaryDiffFormat.MAX_NAMES) {
+                    names.put(name, names.size());
+                }
+            }
+        }
+        previous = path;
+    }
+
+    private static boolean sameSegment(DiffPath path1, DiffPath path2, int segment) {
+        return path1.isIndex(segment)
+                ? path2.isIndex(segment) && path1.getIndex(segment) == path2.getIndex(segment)
+                : path1.getFieldName(segment).equals(path2.getFieldName(segment));
+    }
+
+    private void writeValue(JsonNode node) {
+        if (node == null) {
+            record.writeVarint(0);
+            return;
+        }
+        value.clear();
+        encode(node, value);
+        record.writeVarint(value.size);
+        record.write(value.bytes, 0, value.size);
+    }
+
+    private static void encode(JsonNode node, Bytes out) {
+        switch (node.getNodeType()) {
+            case NULL:
+                out.writeByte(BinaryDiffFormat.NULL);
+                break;
+            case BOOLEAN:
+                out.writeByte(node.booleanValue() ? BinaryDiffFormat.TRUE : BinaryDiffFormat.FALSE);
+                break;
+            case STRING:
+                out.writeByte(BinaryDiffFormat.STRING);
+                out.writeString(node.textValue());
+                break;
+            case BINARY:
+                if (!(node instanceof BinaryNode)) {
+                    throw new IllegalArgumentException("Unsupported node type " + node.getClass().getSimpleName());
+                }
+                byte[] data = ((BinaryNode) node).binaryValue();
+                out.writeByte(BinaryDiffFormat.BINARY);
+                out.writeVarint(data.length);
+                out.write(data, 0, data.length);
+                break;
+            case NUMBER:
+                encodeNumber(node, out);
+                break;
+            case ARRAY:
+                out.writeByte(BinaryDiffFormat.ARRAY);
+                out.writeVarint(node.size());
+                for (JsonNode element : node) {
+                    encode(element, out);
+                }
+                break;
+            case OBJECT:
+                out.writeByte(BinaryDiffFormat.OBJECT);
+                out.writeVarint(node.size());
+                Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    out.writeString(field.getKey());
+                    encode(field.getValue(), out);
+                }
+                break;
+            case MISSING:
+                out.writeByte(BinaryDiffFormat.MISSING);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported node type " + node.getNodeType());
+        }
+    }
+
+    private static void encodeNumber(JsonNode node, Bytes out) {
+        switch (node.numberType()) {
+            case INT:
+                out.writeByte(node.isShort() ? BinaryDiffFormat.SHORT : BinaryDiffFormat.INT);
+                out.writeZigzag(node.intValue());
+                break;
+            case LONG:
+                out.writeByte(BinaryDiffFormat.LONG);
+                out.writeZigzag(node.longValue());
+                break;
+            case BIG_INTEGER:
+                byte[] integer = node.bigIntegerValue().toByteArray();
+                out.writeByte(BinaryDiffFormat.BIG_INTEGER);
+                out.writeVarint(integer.length);
+                out.write(integer, 0, integer.length);
+                break;
+            case FLOAT:
+                out.writeByte(BinaryDiffFormat.FLOAT);
+                out.writeFixed(Float.floatToRawIntBits(node.floatValue()), 4);
+                break;
+            case DOUBLE:
+                out.writeByte(BinaryDiffFormat.DOUBLE);
+                out.writeFixed(Double.doubleToRawLongBits(node.doubleValue()), 8);
+                break;
+            default:
+                BigDecimal decimal = node.decimalValue();
+                byte[] unscaled = decimal.unscaledValue().toByteArray();
+                out.writeByte(BinaryDiffFormat.DECIMAL);
+                out.writeZigzag(decimal.scale());
+                out.writeVarint(unscaled.length);
+                out.write(unscaled, 0, unscaled.length);
+                break;
+        }
+    }
+
+    /**
+     * Growable byte array that records and values are assembled in before they are written.
+     */
+    private static final class Bytes {
+
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void write(byte[] data, int offset, int length) {
+            ensure(length);
+            System.arraycopy(data, offset, bytes, size, length);
+            size += length;
+        }
+
+        void writeVarint(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                bytes[size++] = (byte) (v & 0x7F | 0x80);
+                v >>>= 7;
+            }
+            bytes[size++] = (byte) v;
+        }
+
+        void writeZigzag(long v) {
+            writeVarint(v << 1 ^ v >> 63);
+        }
+
+        void writeFixed(long v, int length) {
+            ensure(length);
+            for (int i = length - 1; i >= 0; i--) {
+                bytes[size++] = (byte) (v >>> (i * 8));
+            }
+        }
+
+        void writeString(String s) {
+            ByteBuffer utf8;
+            try {
+                utf8 = encoder.encode(CharBuffer.wrap(s));
+            } catch (CharacterCodingException e) {
+                throw new IllegalArgumentException("String with an unpaired surrogate cannot be written as UTF-8", e);
+            }
+            writeVarint(utf8.remaining());
+            write(utf8.array(), utf8.arrayOffset() + utf8.position(), utf8.remaining());
+        }
+
+        private void ensure(int length) {
+            if (size + length > bytes.length) {
+                byte[] grown = new byte[Math.max(size + length, bytes.length * 2)];
+                System.arraycopy(bytes, 0, grown, 0, size);
+                bytes = grown;
+            }
+        }
+    }
+}
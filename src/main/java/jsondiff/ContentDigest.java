@@ -0,0 +1,58 @@
+package jsondiff;
+
+/**
+ * 128-bit digest of the text of a JSON document, used as a cache key.
+ *
+ * The digest is computed in one pass over the characters, four at a time, in two independent 64-bit lanes
+ * that are mixed together at the end. It is fast but not cryptographic: accidental collisions are
+ * negligible, but inputs could be crafted to collide.
+ */
+final class ContentDigest {
+
+    private static final long SEED1 = 0x9E3779B97F4A7C15L;
+    private static final long SEED2 = 0xD6E8FEB86659FD93L;
+    private static final long PRIME1 = 0x87C37B91114253D5L;
+    private static final long PRIME2 = 0x4CF5AD432745937FL;
+
+    private final long high;
+    private final long low;
+
+    private ContentDigest(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * @param text The text to digest.
+     * @return The digest of the text.
+     */
+    static ContentDigest of(String text) {
+        int length = text.length();
+        long lane1 = SEED1 ^ length;
+        long lane2 = SEED2 + length;
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            long block = text.charAt(i) | (long) text.charAt(i + 1) << 16
+                    | (long) text.charAt(i + 2) << 32 | (long) text.charAt(i + 3) << 48;
+            lane1 = Long.rotateLeft(lane1 ^ block * PRIME1, 31) * PRIME2;
+            lane2 = Long.rotateLeft(lane2 + block * PRIME2, 27) * PRIME1 + lane1;
+        }
+        long tail = 0;
+        for (int shift = 0; i < length; i++, shift += 16) {
+            tail |= (long) text.charAt(i) << shift;
+        }
+        lane1 = StructuralHash.mix(lane1 ^ tail * PRIME1);
+        lane2 = StructuralHash.mix(lane2 + tail * PRIME2);
+        return new ContentDigest(StructuralHash.mix(lane1 + lane2), StructuralHash.mix(lane2 ^ lane1 * PRIME1));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ContentDigest && ((ContentDigest) o).high == high && ((ContentDigest) o).low == low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high);
+    }
+}
@@ -0,0 +1,290 @@
+package jsondiff;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of comparison results, keyed by digests of the compared documents, for workloads that
+ * compare the same pairs of documents again and again. It is enabled through
+ * {@link JsonDiff.Builder#cache(DiffCache)}.
+ *
+ * A repeated call to {@link JsonDiff#getDiff(String, String)} or {@link JsonDiff#isEqual(String, String)}
+ * then costs one pass over the input text to compute its 128-bit digest and a hash lookup; the documents
+ * are neither parsed nor compared. Results are keyed by the JsonDiff instance as well, so a cache can be
+ * shared by instances with different options. The instance is only referenced weakly, so a shared cache
+ * does not keep discarded instances alive; their results can no longer be found and age out of the cache. Digests are not cryptographic, so a cache should not be used
+ * where crafted inputs could collide.
+ *
+ * The cache is split into stripes, each an LRU list behind its own lock with an equal share of the maximum
+ * weight, so concurrent lookups rarely contend. Entries are weighed by the approximate number of bytes they
+ * hold, and a result larger than a stripe's share is not cached. Two threads missing the same key at the
+ * same time both compute the result.
+ */
+public final class DiffCache {
+
+    /**
+     * The approximate number of bytes taken by an entry besides its result.
+     */
+    private static final long ENTRY_OVERHEAD = 160;
+
+    private final Stripe[] stripes;
+    private final long maximumStripeWeight;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private DiffCache(Builder builder) {
+        this.stripes = new Stripe[builder.stripes];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.maximumStripeWeight = builder.maximumWeight / builder.stripes;
+    }
+
+    /**
+     * @return A builder initialized with the default settings.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * This method returns the cached result for a key, or computes and caches it.
+     *
+     * @param key    The key of the result.
+     * @param loader The computation of the result on a miss.
+     * @return The result.
+     * @throws IOException If the computation fails; nothing is cached then.
+     */
+    <T> T get(Key key, Loader<T> loader) throws IOException {
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        stripe.lock.lock();
+        try {
+            Entry entry = stripe.entries.get(key);
+            if (entry != null) {
+                hits.increment();
+                @SuppressWarnings("unchecked")
+                T value = (T) entry.value;
+                return value;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        misses.increment();
+        T value = loader.load();
+        long weight = ENTRY_OVERHEAD + (value instanceof String ? 2L * ((String) value).length() : 0);
+        if (weight <= maximumStripeWeight) {
+            stripe.lock.lock();
+            try {
+                Entry previous = stripe.entries.put(key, new Entry(value, weight));
+                stripe.weight += weight - (previous != null ? previous.weight : 0);
+                Iterator<Entry> eldest = stripe.entries.values().iterator();
+                while (stripe.weight > maximumStripeWeight) {
+                    stripe.weight -= eldest.next().weight;
+                    eldest.remove();
+                    evictions.increment();
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return The number of lookups that found a cached result.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups that had to compute the result.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The fraction of lookups that found a cached result, or 0 if there were none.
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return The number of results evicted to stay within the maximum weight.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The number of cached results.
+     */
+    public int getSize() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.entries.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return The approximate number of bytes held by the cached results.
+     */
+    public long getWeight() {
+        long weight = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                weight += stripe.weight;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * This method removes all cached results. The statistics are kept.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.entries.clear();
+                stripe.weight = 0;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The operations whose results are cached.
+     */
+    enum Operation {
+        DIFF, EQUAL
+    }
+
+    /**
+     * Computation of a result on a cache miss.
+     */
+    @FunctionalInterface
+    interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    /**
+     * The key of a result: the JsonDiff that computed it, held weakly, the operation and the digests of both
+     * inputs. A key whose JsonDiff has been collected equals no other key.
+     */
+    static final class Key {
+
+        private final WeakReference<Object> scope;
+        private final Operation operation;
+        private final ContentDigest digest1;
+        private final ContentDigest digest2;
+
+        Key(Object scope, Operation operation, String json1, String json2) {
+            this.scope = new WeakReference<>(scope);
+            this.operation = operation;
+            this.digest1 = ContentDigest.of(json1);
+            this.digest2 = ContentDigest.of(json2);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            Object referent = scope.get();
+            return referent != null && other.scope.get() == referent && other.operation == operation && other.digest1.equals(digest1)
+                    && other.digest2.equals(digest2);
+        }
+
+        @Override
+        public int hashCode() {
+            return (digest1.hashCode() * 31 + digest2.hashCode()) * 31 + operation.ordinal();
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+        private final long weight;
+
+        Entry(Object value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long weight;
+    }
+
+    /**
+     * Builder for {@link DiffCache}.
+     */
+    public static final class Builder {
+
+        private long maximumWeight = 64L * 1024 * 1024;
+        private int stripes = 16;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maximumWeight The approximate maximum number of bytes held by cached results, at least 1024.
+         *                      Defaults to 64 MiB.
+         * @return This builder.
+         * @throws IllegalArgumentException If the weight is less than 1024.
+         */
+        public Builder maximumWeight(long maximumWeight) {
+            if (maximumWeight < 1024) {
+                throw new IllegalArgumentException("maximumWeight must be at least 1024, was " + maximumWeight);
+            }
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * @param stripes The number of independently locked parts of the cache, at least 1. Defaults to 16.
+         * @return This builder.
+         * @throws IllegalArgumentException If the number is less than 1.
+         */
+        public Builder stripes(int stripes) {
+            if (stripes < 1) {
+                throw new IllegalArgumentException("stripes must be at least 1, was " + stripes);
+            }
+            this.stripes = stripes;
+            return this;
+        }
+
+        /**
+         * @return The empty, thread-safe cache.
+         */
+        public DiffCache build() {
+            return new DiffCache(this);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package jsondiff;
+
+import java.util.List;
+
+/**
+ * The change in the differences of a {@link DiffSession} caused by an update of its second document.
+ *
+ * Differences that are unchanged by the update appear in neither list, so applying the delta to the
+ * previous differences yields the current ones.
+ */
+public final class DiffDelta {
+
+    private final List<DiffEntry> removed;
+    private final List<DiffEntry> added;
+
+    DiffDelta(List<DiffEntry> removed, List<DiffEntry> added) {
+        this.removed = removed;
+        this.added = added;
+    }
+
+    /**
+     * @return The differences that no longer exist, in path order.
+     */
+    public List<DiffEntry> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return The differences that did not exist before, in path order.
+     */
+    public List<DiffEntry> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return True if the update did not change the differences.
+     */
+    public boolean isEmpty() {
+        return removed.isEmpty() && added.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "removed " + removed + ", added " + added;
+    }
+}
@@ -0,0 +1,122 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A single difference found while comparing two JSON documents.
+ *
+ * Entries are created by the comparison as soon as a difference is found and handed to a
+ * {@link DiffListener}. They carry the raw values rather than formatted text, so that callers can
+ * count, filter and route differences without parsing the output of {@link JsonDiff#getDiff(JsonNode, JsonNode)}.
+ */
+public final class DiffEntry {
+
+    /**
+     * The kind of difference an entry describes.
+     */
+    public enum Kind {
+        /** The value is present in the first JSON but not in the second. */
+        MISSING,
+        /** The value is present in the second JSON but not in the first. */
+        EXTRA,
+        /** The value is present in both JSONs but differs. */
+        VALUE_MISMATCH,
+        /** The array element is present in both JSONs but at a different position, see {@link #getFromPath()}. */
+        MOVED
+    }
+
+    private final Kind kind;
+    private final DiffPath path;
+    private final DiffPath fromPath;
+    private final PathFormat pathFormat;
+    private final JsonNode left;
+    private final JsonNode right;
+    private String formattedPath;
+
+    DiffEntry(Kind kind, DiffPath path, DiffPath fromPath, PathFormat pathFormat, JsonNode left, JsonNode right) {
+        this.kind = kind;
+        this.path = path;
+        this.fromPath = fromPath;
+        this.pathFormat = pathFormat;
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * @return The kind of this difference.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return The JSON path of the differing value in the configured {@link PathFormat}, e.g.
+     *         {@code person.skills[1]} or {@code /person/skills/1}. The String is built on first use.
+     */
+    public String getPath() {
+        String formatted = formattedPath;
+        if (formatted == null) {
+            formatted = path.format(pathFormat);
+            formattedPath = formatted;
+        }
+        return formatted;
+    }
+
+    /**
+     * @return The JSON path of the differing value as segments.
+     */
+    public DiffPath getDiffPath() {
+        return path;
+    }
+
+    /**
+     * @return The nesting depth of the differing value; 0 for the root.
+     */
+    public int getDepth() {
+        return path.size();
+    }
+
+    /**
+     * @return For {@link Kind#MOVED}, the path of the element in the first JSON in the configured
+     *         {@link PathFormat}; null for all other kinds. The path in the second JSON is {@link #getPath()}.
+     */
+    public String getFromPath() {
+        return fromPath != null ? fromPath.format(pathFormat) : null;
+    }
+
+    /**
+     * @return For {@link Kind#MOVED}, the path of the element in the first JSON as segments; null otherwise.
+     */
+    public DiffPath getFromDiffPath() {
+        return fromPath;
+    }
+
+    /**
+     * @return The notation of the paths returned as Strings.
+     */
+    PathFormat getPathFormat() {
+        return pathFormat;
+    }
+
+    /**
+     * @return The value in the first JSON, or null if the kind is {@link Kind#EXTRA}.
+     */
+    public JsonNode getLeft() {
+        return left;
+    }
+
+    /**
+     * @return The value in the second JSON, or null if the kind is {@link Kind#MISSING}.
+     */
+    public JsonNode getRight() {
+        return right;
+    }
+
+    @Override
+    public String toString() {
+        if (kind == Kind.MOVED) {
+            return kind + " from " + getFromPath() + " to " + getPath() + ": " + right;
+        }
+        return kind + " at " + getPath() + ": " + left + " vs " + right;
+    }
+}
@@ -0,0 +1,25 @@
+package jsondiff;
+
+/**
+ * Text layouts produced by {@link TextDiffRenderer}.
+ */
+public enum DiffFormat {
+
+    /**
+     * One line per difference, indented by nesting depth and colored with ANSI escape codes. This is the
+     * format returned by {@link JsonDiff#getDiff} unless the instance is built with another one.
+     */
+    ANSI,
+
+    /**
+     * The same lines as {@link #ANSI} without escape codes, for log files and pipelines.
+     */
+    PLAIN,
+
+    /**
+     * One unindented line per difference, prefixed by a marker: {@code ~} for mismatches, {@code -} for
+     * missing values, {@code +} for extra values and {@code >} for moved array elements. Every line carries
+     * the full path and the values involved, so the output can be grepped and sorted.
+     */
+    COMPACT
+}
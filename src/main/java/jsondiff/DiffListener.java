@@ -0,0 +1,18 @@
+package jsondiff;
+
+/**
+ * Callback that receives differences as they are found during a comparison.
+ *
+ * Listeners are invoked on the comparing thread, in document order. A listener instance is only used by
+ * one comparison at a time unless it is explicitly shared by the caller.
+ */
+@FunctionalInterface
+public interface DiffListener {
+
+    /**
+     * This method is called once for every difference found.
+     *
+     * @param entry The difference.
+     */
+    void onDifference(DiffEntry entry);
+}
@@ -0,0 +1,117 @@
+package jsondiff;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe {@link DiffMetricsListener} that adds up the measurements of all comparisons, for example of a
+ * JsonDiff shared by a service, and that can be registered as a JMX MBean.
+ *
+ * Totals are kept in {@link LongAdder}s, so recording from many threads does not contend.
+ */
+public final class DiffMetrics implements DiffMetricsListener, DiffMetricsMBean {
+
+    private final LongAdder comparisons = new LongAdder();
+    private final LongAdder nodesVisited = new LongAdder();
+    private final LongAdder differences = new LongAdder();
+    private final LongAdder bytesParsed = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final LongAdder compareNanos = new LongAdder();
+    private final LongAdder renderNanos = new LongAdder();
+    private int maxDepth;
+    private DiffStats.Subtree slowestSubtree;
+
+    @Override
+    public void onComparison(DiffStats stats) {
+        comparisons.increment();
+        nodesVisited.add(stats.getNodesVisited());
+        differences.add(stats.getDifferenceCount());
+        bytesParsed.add(stats.getBytesParsed());
+        parseNanos.add(stats.getParseNanos());
+        compareNanos.add(stats.getCompareNanos());
+        renderNanos.add(stats.getRenderNanos());
+        DiffStats.Subtree slowest = stats.getSlowestSubtrees().isEmpty() ? null : stats.getSlowestSubtrees().get(0);
+        synchronized (this) {
+            maxDepth = Math.max(maxDepth, stats.getMaxDepth());
+            if (slowest != null && (slowestSubtree == null || slowest.getNanos() > slowestSubtree.getNanos())) {
+                slowestSubtree = slowest;
+            }
+        }
+    }
+
+    /**
+     * This method registers these metrics with the platform MBean server.
+     *
+     * @param name The object name, e.g. {@code jsondiff:type=DiffMetrics,name=orders}.
+     * @return The registered object name.
+     * @throws JMException If the name is malformed or already registered.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public long getComparisons() {
+        return comparisons.sum();
+    }
+
+    @Override
+    public long getNodesVisited() {
+        return nodesVisited.sum();
+    }
+
+    @Override
+    public long getDifferences() {
+        return differences.sum();
+    }
+
+    @Override
+    public long getBytesParsed() {
+        return bytesParsed.sum();
+    }
+
+    @Override
+    public long getParseMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(parseNanos.sum());
+    }
+
+    @Override
+    public long getCompareMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(compareNanos.sum());
+    }
+
+    @Override
+    public long getRenderMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(renderNanos.sum());
+    }
+
+    @Override
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public synchronized String getSlowestSubtree() {
+        return slowestSubtree != null ? slowestSubtree.toString() : "";
+    }
+
+    @Override
+    public void reset() {
+        comparisons.reset();
+        nodesVisited.reset();
+        differences.reset();
+        bytesParsed.reset();
+        parseNanos.reset();
+        compareNanos.reset();
+        renderNanos.reset();
+        synchronized (this) {
+            maxDepth = 0;
+            slowestSubtree = null;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package jsondiff;
+
+/**
+ * Callback that receives the measurements of every comparison made by a {@link JsonDiff} built with
+ * {@link JsonDiff.Builder#metrics(DiffMetricsListener)}.
+ *
+ * The listener is invoked on the comparing thread once the comparison has finished, so a listener shared by
+ * a JsonDiff that is used from several threads must be thread-safe. Comparisons that fail are not reported.
+ */
+@FunctionalInterface
+public interface DiffMetricsListener {
+
+    /**
+     * This method is called once for every finished comparison.
+     *
+     * @param stats The measurements of the comparison.
+     */
+    void onComparison(DiffStats stats);
+}
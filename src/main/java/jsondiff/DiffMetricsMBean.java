@@ -0,0 +1,57 @@
+package jsondiff;
+
+/**
+ * Management interface of {@link DiffMetrics}, exposing the totals over all recorded comparisons.
+ */
+public interface DiffMetricsMBean {
+
+    /**
+     * @return The number of comparisons recorded.
+     */
+    long getComparisons();
+
+    /**
+     * @return The number of pairs of values compared.
+     */
+    long getNodesVisited();
+
+    /**
+     * @return The number of differences reported.
+     */
+    long getDifferences();
+
+    /**
+     * @return The number of bytes or characters parsed.
+     */
+    long getBytesParsed();
+
+    /**
+     * @return The time spent parsing, in milliseconds.
+     */
+    long getParseMillis();
+
+    /**
+     * @return The time spent walking documents, in milliseconds.
+     */
+    long getCompareMillis();
+
+    /**
+     * @return The time spent in diff listeners such as renderers, in milliseconds.
+     */
+    long getRenderMillis();
+
+    /**
+     * @return The deepest nesting level compared.
+     */
+    int getMaxDepth();
+
+    /**
+     * @return The slowest subtree seen, as path and time, or an empty string if there was none.
+     */
+    String getSlowestSubtree();
+
+    /**
+     * This method clears all totals.
+     */
+    void reset();
+}
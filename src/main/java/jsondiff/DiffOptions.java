@@ -0,0 +1,426 @@
+package jsondiff;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Immutable settings that control how {@link JsonDiff} compares two JSON documents.
+ *
+ * Instances are created through {@link #builder()} and can be shared freely between threads.
+ */
+public final class DiffOptions {
+
+    /**
+     * The options used by a JsonDiff created with the no-argument constructor.
+     */
+    public static final DiffOptions DEFAULT = builder().build();
+
+    private final int maxDifferences;
+    private final ArrayAlignment arrayAlignment;
+    private final String arrayIdentityKey;
+    private final PathFormat pathFormat;
+    private final ArrayContainment arrayContainment;
+    private final List<String> ignoredPaths;
+    private final List<String> includedPaths;
+    private final ValueComparator valueComparator;
+    private final Map<String, ValueComparator> pathComparators;
+    private final Map<String, ArrayAlignment> pathAlignments;
+    private final PathMatcher pathMatcher;
+    private final ForkJoinPool forkJoinPool;
+    private final int parallelThreshold;
+
+    private DiffOptions(Builder builder, PathMatcher pathMatcher) {
+        this.maxDifferences = builder.maxDifferences;
+        this.arrayAlignment = builder.arrayAlignment;
+        this.arrayIdentityKey = builder.arrayIdentityKey;
+        this.pathFormat = builder.pathFormat;
+        this.arrayContainment = builder.arrayContainment;
+        this.ignoredPaths = Collections.unmodifiableList(new ArrayList<>(builder.ignoredPaths));
+        this.includedPaths = Collections.unmodifiableList(new ArrayList<>(builder.includedPaths));
+        this.valueComparator = builder.valueComparator;
+        this.pathComparators = Collections.unmodifiableMap(new LinkedHashMap<>(builder.pathComparators));
+        this.pathAlignments = Collections.unmodifiableMap(new LinkedHashMap<>(builder.pathAlignments));
+        this.pathMatcher = pathMatcher;
+        this.forkJoinPool = builder.forkJoinPool;
+        this.parallelThreshold = builder.parallelThreshold;
+    }
+
+    /**
+     * @return A builder initialized with the default settings.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return A builder initialized with the settings of this instance.
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.maxDifferences = maxDifferences;
+        builder.arrayAlignment = arrayAlignment;
+        builder.arrayIdentityKey = arrayIdentityKey;
+        builder.pathFormat = pathFormat;
+        builder.arrayContainment = arrayContainment;
+        builder.ignoredPaths.addAll(ignoredPaths);
+        builder.includedPaths.addAll(includedPaths);
+        builder.valueComparator = valueComparator;
+        builder.pathComparators.putAll(pathComparators);
+        builder.pathAlignments.putAll(pathAlignments);
+        builder.forkJoinPool = forkJoinPool;
+        builder.parallelThreshold = parallelThreshold;
+        return builder;
+    }
+
+    /**
+     * @return The number of differences after which a comparison stops, or {@link Integer#MAX_VALUE} if unlimited.
+     */
+    public int getMaxDifferences() {
+        return maxDifferences;
+    }
+
+    /**
+     * @return The strategy used to pair the elements of two arrays.
+     */
+    public ArrayAlignment getArrayAlignment() {
+        return arrayAlignment;
+    }
+
+    /**
+     * @return The array alignments by path pattern, in the order they were added.
+     */
+    public Map<String, ArrayAlignment> getPathAlignments() {
+        return pathAlignments;
+    }
+
+    /**
+     * @return The name of the identity field used by {@link ArrayAlignment#KEY}, or null.
+     */
+    public String getArrayIdentityKey() {
+        return arrayIdentityKey;
+    }
+
+    /**
+     * @return The notation of the paths returned by {@link DiffEntry#getPath()}.
+     */
+    public PathFormat getPathFormat() {
+        return pathFormat;
+    }
+
+    /**
+     * @return The rule deciding whether one array is contained in another in a subset check.
+     */
+    public ArrayContainment getArrayContainment() {
+        return arrayContainment;
+    }
+
+    /**
+     * @return The path patterns of the values that are not compared.
+     */
+    public List<String> getIgnoredPaths() {
+        return ignoredPaths;
+    }
+
+    /**
+     * @return The path patterns of the values that are compared, or an empty list if all values are.
+     */
+    public List<String> getIncludedPaths() {
+        return includedPaths;
+    }
+
+    /**
+     * @return The comparator for values without a comparator of their own, or null if values must be exactly equal.
+     */
+    public ValueComparator getValueComparator() {
+        return valueComparator;
+    }
+
+    /**
+     * @return The value comparators by path pattern, in the order they were added.
+     */
+    public Map<String, ValueComparator> getPathComparators() {
+        return pathComparators;
+    }
+
+    /**
+     * @return The compiled ignore, include and value comparator rules, or null if there are none.
+     */
+    PathMatcher getPathMatcher() {
+        return pathMatcher;
+    }
+
+    /**
+     * @return True if two values can be reported equal although they are not structurally equal, so that
+     * equality cannot be decided by {@link com.fasterxml.jackson.databind.JsonNode#equals} or fingerprints.
+     */
+    boolean hasRules() {
+        return pathMatcher != null || valueComparator != null || hasUnorderedArrays();
+    }
+
+    /**
+     * @return True if some arrays are compared as multisets, so that equality depends on the parsed trees
+     * and cannot be decided by streaming.
+     */
+    boolean hasUnorderedArrays() {
+        return arrayAlignment == ArrayAlignment.UNORDERED || pathAlignments.containsValue(ArrayAlignment.UNORDERED);
+    }
+
+    /**
+     * @return The pool used for parallel comparison, or null if comparisons run on the calling thread.
+     */
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    /**
+     * @return The minimum number of fields or elements of a container for it to be compared in parallel.
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Builder for {@link DiffOptions}.
+     */
+    public static final class Builder {
+
+        private int maxDifferences = Integer.MAX_VALUE;
+        private ArrayAlignment arrayAlignment = ArrayAlignment.INDEX;
+        private String arrayIdentityKey;
+        private PathFormat pathFormat = PathFormat.DOTTED;
+        private ArrayContainment arrayContainment = ArrayContainment.ORDERED;
+        private final List<String> ignoredPaths = new ArrayList<>();
+        private final List<String> includedPaths = new ArrayList<>();
+        private ValueComparator valueComparator;
+        private final Map<String, ValueComparator> pathComparators = new LinkedHashMap<>();
+        private final Map<String, ArrayAlignment> pathAlignments = new LinkedHashMap<>();
+        private ForkJoinPool forkJoinPool;
+        private int parallelThreshold = 1024;
+
+        private Builder() {
+        }
+
+        /**
+         * This method limits the number of differences reported by a comparison. Once the limit is reached
+         * the traversal stops, so the cost of comparing two very different documents is bounded by the
+         * time it takes to find the first differences.
+         *
+         * @param maxDifferences The maximum number of differences to report, at least 1.
+         * @return This builder.
+         * @throws IllegalArgumentException If the limit is less than 1.
+         */
+        public Builder maxDifferences(int maxDifferences) {
+            if (maxDifferences < 1) {
+                throw new IllegalArgumentException("maxDifferences must be at least 1, was " + maxDifferences);
+            }
+            this.maxDifferences = maxDifferences;
+            return this;
+        }
+
+        /**
+         * This method selects how the elements of two arrays are paired. The alignment applies to parsed
+         * trees; the streaming comparison of InputStreams always pairs array elements by position. With
+         * {@link ArrayAlignment#UNORDERED}, {@link JsonDiff#isEqual} parses its inputs into trees.
+         *
+         * @param arrayAlignment The alignment strategy.
+         * @return This builder.
+         */
+        public Builder arrayAlignment(ArrayAlignment arrayAlignment) {
+            this.arrayAlignment = Objects.requireNonNull(arrayAlignment, "arrayAlignment");
+            return this;
+        }
+
+        /**
+         * This method selects how the elements of the arrays matching a path pattern, and of all arrays
+         * below them, are paired, e.g. {@link ArrayAlignment#UNORDERED} for {@code **.tags}. Where patterns
+         * overlap, the one matching deepest wins, and among those the one added last.
+         * {@link ArrayAlignment#KEY} uses the {@link #arrayIdentityKey(String) arrayIdentityKey}.
+         *
+         * @param pattern        The path pattern, in the syntax of {@link #ignore(String...)}.
+         * @param arrayAlignment The alignment strategy for the matching arrays.
+         * @return This builder.
+         */
+        public Builder arrayAlignment(String pattern, ArrayAlignment arrayAlignment) {
+            Objects.requireNonNull(pattern, "pattern");
+            pathAlignments.remove(pattern);
+            pathAlignments.put(pattern, Objects.requireNonNull(arrayAlignment, "arrayAlignment"));
+            return this;
+        }
+
+        /**
+         * This method removes all array alignments set for path patterns.
+         *
+         * @return This builder.
+         */
+        Builder clearPathAlignments() {
+            pathAlignments.clear();
+            return this;
+        }
+
+        /**
+         * This method removes all ignore and include rules.
+         *
+         * @return This builder.
+         */
+        Builder clearPathRules() {
+            ignoredPaths.clear();
+            includedPaths.clear();
+            return this;
+        }
+
+        /**
+         * This method removes the global value comparator and all value comparators set for path patterns.
+         *
+         * @return This builder.
+         */
+        Builder clearValueComparators() {
+            valueComparator = null;
+            pathComparators.clear();
+            return this;
+        }
+
+        /**
+         * This method pairs object elements of arrays by the value of the given field, such as {@code id},
+         * and selects {@link ArrayAlignment#KEY}.
+         *
+         * @param arrayIdentityKey The name of the identity field.
+         * @return This builder.
+         */
+        public Builder arrayIdentityKey(String arrayIdentityKey) {
+            this.arrayIdentityKey = Objects.requireNonNull(arrayIdentityKey, "arrayIdentityKey");
+            this.arrayAlignment = ArrayAlignment.KEY;
+            return this;
+        }
+
+        /**
+         * This method selects the notation of the paths returned by {@link DiffEntry#getPath()}. Paths are
+         * tracked as segments during the comparison and only formatted when an entry's path is requested.
+         *
+         * @param pathFormat The path notation. Defaults to {@link PathFormat#DOTTED}.
+         * @return This builder.
+         */
+        public Builder pathFormat(PathFormat pathFormat) {
+            this.pathFormat = Objects.requireNonNull(pathFormat, "pathFormat");
+            return this;
+        }
+
+        /**
+         * This method selects how {@link JsonDiff#isSubset} checks that one array is contained in another.
+         *
+         * @param arrayContainment The containment rule. Defaults to {@link ArrayContainment#ORDERED}.
+         * @return This builder.
+         */
+        public Builder arrayContainment(ArrayContainment arrayContainment) {
+            this.arrayContainment = Objects.requireNonNull(arrayContainment, "arrayContainment");
+            return this;
+        }
+
+        /**
+         * This method excludes values from comparison, such as timestamps or request ids. Patterns are dotted
+         * paths from the root in which {@code [n]} matches an array index, {@code [*]} any index, {@code *}
+         * any single field or index, {@code **} any number of segments and {@code *} inside a field name any
+         * characters, e.g. {@code **.timestamp}, {@code *.metadata.etag} or {@code items[*].*_at}. A backslash
+         * escapes a {@code .} or {@code [} in a field name. Ignored values and everything below them are
+         * skipped before they are visited. Arrays are still aligned by their complete elements.
+         *
+         * @param patterns The path patterns to add.
+         * @return This builder.
+         */
+        public Builder ignore(String... patterns) {
+            for (String pattern : patterns) {
+                ignoredPaths.add(Objects.requireNonNull(pattern, "pattern"));
+            }
+            return this;
+        }
+
+        /**
+         * This method restricts the comparison to the values matching one of the given patterns, and
+         * everything below them. Containers on the way to a matching value are still descended into, and a
+         * change of such a container's type is reported. Ignore rules take precedence over include rules.
+         *
+         * @param patterns The path patterns to add, in the syntax of {@link #ignore(String...)}.
+         * @return This builder.
+         */
+        public Builder include(String... patterns) {
+            for (String pattern : patterns) {
+                includedPaths.add(Objects.requireNonNull(pattern, "pattern"));
+            }
+            return this;
+        }
+
+        /**
+         * This method relaxes the comparison of scalar values that are not exactly equal, e.g. to accept
+         * {@code 1} for {@code 1.0} or floating-point noise with {@link ValueComparator#numeric(double, double)}.
+         *
+         * @param valueComparator The comparator for all values without a comparator of their own, or null to
+         *                        require exact equality. Defaults to null.
+         * @return This builder.
+         */
+        public Builder valueComparator(ValueComparator valueComparator) {
+            this.valueComparator = valueComparator;
+            return this;
+        }
+
+        /**
+         * This method relaxes the comparison of the scalar values matching a path pattern, and of all values
+         * below them. Where patterns overlap, the one matching deepest wins, and among those the one added last.
+         *
+         * @param pattern         The path pattern, in the syntax of {@link #ignore(String...)}.
+         * @param valueComparator The comparator for the matching values.
+         * @return This builder.
+         */
+        public Builder valueComparator(String pattern, ValueComparator valueComparator) {
+            Objects.requireNonNull(pattern, "pattern");
+            pathComparators.remove(pattern);
+            pathComparators.put(pattern, Objects.requireNonNull(valueComparator, "valueComparator"));
+            return this;
+        }
+
+        /**
+         * This method enables parallel comparison of parsed trees on the given pool. Objects and arrays with
+         * at least {@link #parallelThreshold(int) parallelThreshold} fields or elements are split into chunks
+         * that are compared as fork-join tasks. The differences of all chunks are merged back in document
+         * order, so the result is identical to a sequential comparison.
+         *
+         * @param forkJoinPool The pool to run on, e.g. {@link ForkJoinPool#commonPool()}, or null to disable.
+         * @return This builder.
+         */
+        public Builder parallel(ForkJoinPool forkJoinPool) {
+            this.forkJoinPool = forkJoinPool;
+            return this;
+        }
+
+        /**
+         * @param parallelThreshold The minimum number of fields or elements of a container for it to be split
+         *                          into parallel tasks, at least 2. Defaults to 1024.
+         * @return This builder.
+         * @throws IllegalArgumentException If the threshold is less than 2.
+         */
+        public Builder parallelThreshold(int parallelThreshold) {
+            if (parallelThreshold < 2) {
+                throw new IllegalArgumentException("parallelThreshold must be at least 2, was " + parallelThreshold);
+            }
+            this.parallelThreshold = parallelThreshold;
+            return this;
+        }
+
+        /**
+         * @return The immutable options.
+         * @throws IllegalStateException    If {@link ArrayAlignment#KEY} is selected, globally or for a path,
+         *                                  without an identity key.
+         * @throws IllegalArgumentException If an ignore, include or comparator pattern is malformed.
+         */
+        public DiffOptions build() {
+            if ((arrayAlignment == ArrayAlignment.KEY || pathAlignments.containsValue(ArrayAlignment.KEY))
+                    && arrayIdentityKey == null) {
+                throw new IllegalStateException("ArrayAlignment.KEY requires an arrayIdentityKey");
+            }
+            return new DiffOptions(this, PathMatcher.compile(ignoredPaths, includedPaths, pathComparators, pathAlignments));
+        }
+    }
+}
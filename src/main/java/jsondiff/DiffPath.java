@@ -0,0 +1,164 @@
+package jsondiff;
+
+import java.util.Arrays;
+
+/**
+ * Immutable location of a value in a JSON document, as a sequence of field names and array indexes.
+ *
+ * Paths are only created for reported differences; the comparison itself tracks its position in a reusable
+ * stack, so comparing equal documents does not build any path. The String form is produced on demand in
+ * either {@link PathFormat}.
+ */
+public final class DiffPath {
+
+    /**
+     * The path of the root value.
+     */
+    public static final DiffPath ROOT = new DiffPath(new String[0], new int[0]);
+
+    private final String[] fieldNames;
+    private final int[] indexes;
+
+    /**
+     * @param fieldNames The field name of each segment, or null for array index segments.
+     * @param indexes    The array index of each segment; ignored for field segments.
+     */
+    DiffPath(String[] fieldNames, int[] indexes) {
+        this.fieldNames = fieldNames;
+        this.indexes = indexes;
+    }
+
+    /**
+     * @return The number of segments, which is the nesting depth of the value; 0 for the root.
+     */
+    public int size() {
+        return fieldNames.length;
+    }
+
+    /**
+     * @param segment The position of the segment, from 0 to {@code size() - 1}.
+     * @return True if the segment is an array index, false if it is a field name.
+     */
+    public boolean isIndex(int segment) {
+        return fieldNames[segment] == null;
+    }
+
+    /**
+     * @param segment The position of the segment.
+     * @return The field name of the segment, or null if it is an array index.
+     */
+    public String getFieldName(int segment) {
+        return fieldNames[segment];
+    }
+
+    /**
+     * @param segment The position of the segment.
+     * @return The array index of the segment, or -1 if it is a field name.
+     */
+    public int getIndex(int segment) {
+        return fieldNames[segment] == null ? indexes[segment] : -1;
+    }
+
+    /**
+     * @return True if the path points to an array element rather than an object field or the root.
+     */
+    public boolean isArrayElement() {
+        return fieldNames.length > 0 && fieldNames[fieldNames.length - 1] == null;
+    }
+
+    /**
+     * @param other Another path.
+     * @return True if both paths have the same parent, i.e. they only differ in their last segment.
+     */
+    boolean isSibling(DiffPath other) {
+        int size = fieldNames.length;
+        if (size == 0 || other.fieldNames.length != size) {
+            return false;
+        }
+        for (int i = 0; i < size - 1; i++) {
+            if (fieldNames[i] == null ? other.fieldNames[i] != null || indexes[i] != other.indexes[i]
+                    : !fieldNames[i].equals(other.fieldNames[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method renders the path in the given notation.
+     *
+     * @param format The notation.
+     * @return The path as a String.
+     */
+    public String format(PathFormat format) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < fieldNames.length; i++) {
+            if (format == PathFormat.JSON_POINTER) {
+                builder.append('/');
+                if (fieldNames[i] == null) {
+                    builder.append(indexes[i]);
+                } else {
+                    appendEscaped(builder, fieldNames[i]);
+                }
+            } else if (fieldNames[i] == null) {
+                builder.append('[').append(indexes[i]).append(']');
+            } else {
+                if (builder.length() > 0) {
+                    builder.append('.');
+                }
+                builder.append(fieldNames[i]);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void appendEscaped(StringBuilder builder, String fieldName) {
+        for (int i = 0; i < fieldName.length(); i++) {
+            char c = fieldName.charAt(i);
+            if (c == '~') {
+                builder.append("~0");
+            } else if (c == '/') {
+                builder.append("~1");
+            } else {
+                builder.append(c);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DiffPath)) {
+            return false;
+        }
+        DiffPath other = (DiffPath) o;
+        if (other.fieldNames.length != fieldNames.length || !Arrays.equals(fieldNames, other.fieldNames)) {
+            return false;
+        }
+        for (int i = 0; i < fieldNames.length; i++) {
+            if (fieldNames[i] == null && indexes[i] != other.indexes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < fieldNames.length; i++) {
+            hash = 31 * hash + (fieldNames[i] == null ? indexes[i] : fieldNames[i].hashCode());
+        }
+        return hash;
+    }
+
+    /**
+     * @return The path in {@link PathFormat#DOTTED} notation.
+     */
+    @Override
+    public String toString() {
+        return format(PathFormat.DOTTED);
+    }
+}
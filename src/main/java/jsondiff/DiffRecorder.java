@@ -0,0 +1,130 @@
+package jsondiff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Mutable collector of the measurements of a single comparison, only created when metrics are enabled.
+ *
+ * The walker calls {@link #enter(int)} and {@link #exit(PathStack)} around every pair of values it compares.
+ * Start times and node counts are kept per depth in arrays that are reused for the whole comparison, and a
+ * path is only snapshotted when a subtree makes it into the slowest ones seen so far. A recorder belongs to
+ * one walker; parallel child walkers get their own recorders, which are merged into the parent's.
+ */
+final class DiffRecorder {
+
+    /**
+     * The number of slowest subtrees kept.
+     */
+    static final int SLOWEST_SUBTREES = 10;
+
+    private final long[] differences = new long[DiffEntry.Kind.values().length];
+    private final PriorityQueue<DiffStats.Subtree> slowest =
+            new PriorityQueue<>(Comparator.comparingLong(DiffStats.Subtree::getNanos));
+    private long[] startNanos = new long[16];
+    private long[] startNodes = new long[16];
+    private long nodes;
+    private int maxDepth;
+    private long bytesParsed;
+    private long parseNanos;
+    private long compareNanos;
+    private long renderNanos;
+
+    /**
+     * @param bytes The number of bytes or characters parsed.
+     * @param nanos The time spent parsing.
+     */
+    void parsed(long bytes, long nanos) {
+        bytesParsed += bytes;
+        parseNanos += nanos;
+    }
+
+    /**
+     * This method wraps the listener of a comparison so that differences are counted and the time spent in
+     * the listener is measured.
+     *
+     * @param listener The listener receiving the differences.
+     * @return The measuring listener.
+     */
+    DiffListener record(DiffListener listener) {
+        return entry -> {
+            long start = System.nanoTime();
+            differences[entry.getKind().ordinal()]++;
+            listener.onDifference(entry);
+            renderNanos += System.nanoTime() - start;
+        };
+    }
+
+    /**
+     * This method is called before a pair of values at the given depth is compared.
+     *
+     * @param depth The depth of the values.
+     */
+    void enter(int depth) {
+        if (depth >= startNanos.length) {
+            startNanos = Arrays.copyOf(startNanos, Math.max(depth + 1, startNanos.length * 2));
+            startNodes = Arrays.copyOf(startNodes, startNanos.length);
+        }
+        nodes++;
+        maxDepth = Math.max(maxDepth, depth);
+        startNodes[depth] = nodes;
+        startNanos[depth] = System.nanoTime();
+    }
+
+    /**
+     * This method is called after the pair of values at the current position has been compared. Objects and
+     * arrays below the root are candidates for the slowest subtrees.
+     *
+     * @param path The position of the values.
+     */
+    void exit(PathStack path) {
+        int depth = path.depth();
+        long subtreeNodes = nodes - startNodes[depth] + 1;
+        if (depth > 0 && subtreeNodes > 1) {
+            long nanos = System.nanoTime() - startNanos[depth];
+            if (slowest.size() < SLOWEST_SUBTREES || nanos > slowest.peek().getNanos()) {
+                offer(new DiffStats.Subtree(path.snapshot(), nanos, subtreeNodes));
+            }
+        }
+    }
+
+    private void offer(DiffStats.Subtree subtree) {
+        slowest.add(subtree);
+        if (slowest.size() > SLOWEST_SUBTREES) {
+            slowest.poll();
+        }
+    }
+
+    /**
+     * This method adds the measurements of a child walker.
+     *
+     * @param other The recorder of the child walker.
+     */
+    void merge(DiffRecorder other) {
+        nodes += other.nodes;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        for (DiffStats.Subtree subtree : other.slowest) {
+            offer(subtree);
+        }
+    }
+
+    /**
+     * @param nanos The total time of the comparison, including the listener.
+     */
+    void compared(long nanos) {
+        compareNanos += nanos - renderNanos;
+    }
+
+    /**
+     * @return The measurements as an immutable snapshot.
+     */
+    DiffStats toStats() {
+        List<DiffStats.Subtree> subtrees = new ArrayList<>(slowest);
+        subtrees.sort(Comparator.comparingLong(DiffStats.Subtree::getNanos).reversed());
+        return new DiffStats(nodes, maxDepth, differences.clone(), bytesParsed, parseNanos, compareNanos, renderNanos,
+                subtrees);
+    }
+}
@@ -0,0 +1,549 @@
+package jsondiff;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embeddable HTTP service that compares JSON documents, built on the JDK's HttpServer.
+ *
+ * Every endpoint takes a POST with a JSON object holding the two documents as {@code left} and
+ * {@code right}, and answers with a JSON object:
+ * * {@code /diff}: {@code {"differences": [{"kind", "path", "from", "left", "right"}, ...]}}, with
+ *   {@code from} only for moved elements and values only where the kind has them.
+ * * {@code /equal}: {@code {"equal": true|false}}.
+ * * {@code /subset}: {@code {"subset": true|false}}, true if {@code left} is a subset of {@code right}.
+ * * {@code /patch}: {@code {"patch": [...]}}, the JSON patch turning {@code left} into {@code right}.
+ * * {@code /batch}: an array of request objects, each with an additional {@code op} of {@code diff},
+ *   {@code equal}, {@code subset} or {@code patch}, answered by an array of results in the same order. An
+ *   invalid item, or one whose comparison fails, is answered by {@code {"error": "..."}} without affecting
+ *   the others; if the rest of the body cannot be read, an error item ends the array. Batching many small
+ *   comparisons into one request saves the per-request cost of HTTP and of admission. Batches are formed
+ *   by the client: the server does not coalesce separate requests.
+ *
+ * Each request runs on a virtual thread of its own when the JVM supports them, and on a fixed pool of
+ * platform threads otherwise. Concurrency is limited by the total size of the request bodies being
+ * processed rather than by the number of requests, since memory is what a burst of large documents
+ * exhausts: a request is only read once its Content-Length, or the maximum request size if the body is
+ * chunked, fits in the budget. A request that cannot be admitted within the admission timeout is rejected
+ * with 503, so that overload shows up as fast rejections rather than as growing latency for everyone.
+ * Bodies are parsed straight from the connection without being buffered first; the items of a batch are
+ * read and answered one at a time. The result of a comparison is computed before it is written, so a
+ * comparison that fails is answered by 500, or by an error item within a batch.
+ *
+ * Other failures are answered by 400 for invalid requests, 404 for unknown endpoints, 405 for other
+ * methods than POST and 413 for bodies larger than the maximum request size, each with a JSON object
+ * holding an {@code error} message. The comparison options are those of the configured JsonDiff. By
+ * default the server only listens on the loopback address.
+ */
+public final class DiffServer implements Closeable {
+
+    private final JsonDiff jsonDiff;
+    private final ObjectMapper mapper;
+    private final InetSocketAddress address;
+    private final int backlog;
+    private final int maxRequestBytes;
+    private final Semaphore bytesInFlight;
+    private final long admissionTimeoutNanos;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private DiffServer(Builder builder) {
+        this.jsonDiff = builder.jsonDiff;
+        this.mapper = jsonDiff.getObjectMapper();
+        this.address = new InetSocketAddress(builder.address, builder.port);
+        this.backlog = builder.backlog;
+        this.maxRequestBytes = builder.maxRequestBytes;
+        this.bytesInFlight = new Semaphore(builder.maxBytesInFlight);
+        this.admissionTimeoutNanos = builder.admissionTimeout.toNanos();
+    }
+
+    /**
+     * @return A builder initialized with the default settings.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * This method binds the server to its address and starts accepting requests.
+     *
+     * @return This server.
+     * @throws IOException If the address cannot be bound.
+     * @throws IllegalStateException If the server has already been started.
+     */
+    public synchronized DiffServer start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("The server has already been started");
+        }
+        HttpServer created = HttpServer.create(address, backlog);
+        executor = newExecutor();
+        created.setExecutor(executor);
+        created.createContext("/", this::handle);
+        created.start();
+        server = created;
+        return this;
+    }
+
+    /**
+     * @return The port the server listens on, which is chosen by the system if the configured port is 0.
+     * @throws IllegalStateException If the server has not been started.
+     */
+    public synchronized int getPort() {
+        if (server == null) {
+            throw new IllegalStateException("The server has not been started");
+        }
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * This method stops accepting requests, closes all connections and stops the threads of the server.
+     */
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * This method creates an executor that runs each task on a new virtual thread, falling back to a fixed
+     * pool of platform threads on JVMs without virtual threads. It is looked up by reflection so the library
+     * still runs on the Java versions it is compiled for.
+     *
+     * @return The executor.
+     */
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newFixedThreadPool(4 * Runtime.getRuntime().availableProcessors(), new WorkerFactory());
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String name = exchange.getRequestURI().getPath();
+            Operation operation = Operation.of(name);
+            if (operation == null) {
+                sendError(exchange, 404, "Unknown endpoint " + name);
+                return;
+            }
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendError(exchange, 405, "Use POST");
+                return;
+            }
+            long length = contentLength(exchange);
+            if (length > maxRequestBytes) {
+                sendError(exchange, 413, "The request is larger than " + maxRequestBytes + " bytes");
+                return;
+            }
+            int permits = length >= 0 ? (int) Math.max(length, 1) : maxRequestBytes;
+            if (!bytesInFlight.tryAcquire(permits, admissionTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Too many bytes in flight");
+                return;
+            }
+            try {
+                respond(exchange, operation);
+            } finally {
+                bytesInFlight.release(permits);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void respond(HttpExchange exchange, Operation operation) throws IOException {
+        try (InputStream body = new LimitedInputStream(exchange.getRequestBody(), maxRequestBytes);
+             JsonParser parser = mapper.createParser(body)) {
+            if (operation == Operation.BATCH) {
+                respondBatch(exchange, parser);
+            } else {
+                respondSingle(exchange, operation, parser);
+            }
+        } catch (RequestTooLargeException e) {
+            sendError(exchange, 413, e.getMessage());
+        } catch (JsonProcessingException e) {
+            sendError(exchange, 400, "Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * This method answers a single comparison. The result is computed before the status is sent, so a
+     * comparison that fails is answered by 500 rather than by a truncated 200.
+     */
+    private void respondSingle(HttpExchange exchange, Operation operation, JsonParser parser) throws IOException {
+        JsonNode request = parser.readValueAsTree();
+        String invalid = validate(request);
+        if (invalid != null) {
+            sendError(exchange, 400, invalid);
+            return;
+        }
+        TokenBuffer result = new TokenBuffer(mapper, false);
+        try {
+            writeResult(result, operation, request);
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, "The comparison failed: " + e);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (JsonGenerator generator = mapper.createGenerator(exchange.getResponseBody())) {
+            result.serialize(generator);
+        }
+    }
+
+    /**
+     * This method answers a batch, reading and answering its items one at a time so that only one item and
+     * its result are held in memory. Once the status has been sent, an item that cannot be read ends the
+     * batch with an error item, and an item whose comparison fails is answered by an error item.
+     */
+    private void respondBatch(HttpExchange exchange, JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            sendError(exchange, 400, "A batch request must be an array");
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (JsonGenerator generator = mapper.createGenerator(exchange.getResponseBody())) {
+            generator.writeStartArray();
+            try {
+                for (JsonToken token = parser.nextToken(); token != null && token != JsonToken.END_ARRAY;
+                     token = parser.nextToken()) {
+                    writeItem(generator, parser.readValueAsTree());
+                }
+            } catch (RequestTooLargeException e) {
+                writeError(generator, e.getMessage());
+            } catch (JsonProcessingException e) {
+                writeError(generator, "Invalid JSON: " + e.getOriginalMessage());
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private void writeItem(JsonGenerator generator, JsonNode item) throws IOException {
+        Operation operation = Operation.of("/" + item.path("op").asText());
+        String invalid = operation == null || operation == Operation.BATCH ? "Unknown op " + item.path("op") : validate(item);
+        if (invalid != null) {
+            writeError(generator, invalid);
+            return;
+        }
+        TokenBuffer result = new TokenBuffer(mapper, false);
+        try {
+            writeResult(result, operation, item);
+        } catch (RuntimeException e) {
+            writeError(generator, "The comparison failed: " + e);
+            return;
+        }
+        result.serialize(generator);
+    }
+
+    private static String validate(JsonNode request) {
+        if (request == null || !request.isObject()) {
+            return "The request must be an object with left and right";
+        }
+        if (!request.has("left") || !request.has("right")) {
+            return "The request must have both left and right";
+        }
+        return null;
+    }
+
+    /**
+     * This method compares the documents of one request and writes the result object.
+     */
+    private void writeResult(JsonGenerator generator, Operation operation, JsonNode request) throws IOException {
+        JsonNode left = request.get("left");
+        JsonNode right = request.get("right");
+        generator.writeStartObject();
+        switch (operation) {
+            case DIFF:
+                generator.writeArrayFieldStart("differences");
+                jsonDiff.diff(left, right, entry -> writeEntry(generator, entry));
+                generator.writeEndArray();
+                break;
+            case EQUAL:
+                generator.writeBooleanField("equal", jsonDiff.isEqual(left, right));
+                break;
+            case SUBSET:
+                generator.writeBooleanField("subset", jsonDiff.isSubset(left, right));
+                break;
+            default:
+                generator.writeFieldName("patch");
+                generator.writeTree(jsonDiff.getPatch(left, right).toJson());
+                break;
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeEntry(JsonGenerator generator, DiffEntry entry) {
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("kind", entry.getKind().name());
+            generator.writeStringField("path", entry.getPath());
+            if (entry.getFromPath() != null) {
+                generator.writeStringField("from", entry.getFromPath());
+            }
+            if (entry.getLeft() != null) {
+                generator.writeFieldName("left");
+                generator.writeTree(entry.getLeft());
+            }
+            if (entry.getRight() != null) {
+                generator.writeFieldName("right");
+                generator.writeTree(entry.getRight());
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeError(JsonGenerator generator, String message) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("error", message);
+        generator.writeEndObject();
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = mapper.writeValueAsBytes(mapper.createObjectNode().put("error", message));
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static long contentLength(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (header == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The endpoints of the server.
+     */
+    private enum Operation {
+        DIFF, EQUAL, SUBSET, PATCH, BATCH;
+
+        static Operation of(String path) {
+            switch (path) {
+                case "/diff":
+                    return DIFF;
+                case "/equal":
+                    return EQUAL;
+                case "/subset":
+                    return SUBSET;
+                case "/patch":
+                    return PATCH;
+                case "/batch":
+                    return BATCH;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Request body that fails once more than the maximum request size has been read, for chunked bodies and
+     * bodies longer than their Content-Length claims.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long count;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) throws RequestTooLargeException {
+            count += read;
+            if (count > limit) {
+                throw new RequestTooLargeException("The request is larger than " + limit + " bytes");
+            }
+        }
+    }
+
+    private static final class RequestTooLargeException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        RequestTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+
+        private static final AtomicInteger THREADS = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "jsondiff-server-" + THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Builder for {@link DiffServer}.
+     */
+    public static final class Builder {
+
+        private JsonDiff jsonDiff = new JsonDiff();
+        private InetAddress address = InetAddress.getLoopbackAddress();
+        private int port = 8080;
+        private int backlog = 1024;
+        private int maxRequestBytes = 16 * 1024 * 1024;
+        private int maxBytesInFlight = 256 * 1024 * 1024;
+        private Duration admissionTimeout = Duration.ofSeconds(1);
+
+        private Builder() {
+        }
+
+        /**
+         * @param jsonDiff The JsonDiff comparing the documents, with its options and ObjectMapper. Defaults
+         *                 to a JsonDiff with the default options.
+         * @return This builder.
+         */
+        public Builder jsonDiff(JsonDiff jsonDiff) {
+            this.jsonDiff = Objects.requireNonNull(jsonDiff, "jsonDiff");
+            return this;
+        }
+
+        /**
+         * @param address The address to listen on. Defaults to the loopback address.
+         * @return This builder.
+         */
+        public Builder address(InetAddress address) {
+            this.address = Objects.requireNonNull(address, "address");
+            return this;
+        }
+
+        /**
+         * @param port The port to listen on, or 0 for a port chosen by the system. Defaults to 8080.
+         * @return This builder.
+         * @throws IllegalArgumentException If the port is not between 0 and 65535.
+         */
+        public Builder port(int port) {
+            if (port < 0 || port > 65535) {
+                throw new IllegalArgumentException("port must be between 0 and 65535, was " + port);
+            }
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param backlog The maximum number of connections waiting to be accepted, at least 1. Defaults to 1024.
+         * @return This builder.
+         * @throws IllegalArgumentException If the number is less than 1.
+         */
+        public Builder backlog(int backlog) {
+            if (backlog < 1) {
+                throw new IllegalArgumentException("backlog must be at least 1, was " + backlog);
+            }
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * @param maxRequestBytes The maximum size of a request body, at least 1. Defaults to 16 MiB.
+         * @return This builder.
+         * @throws IllegalArgumentException If the size is less than 1.
+         */
+        public Builder maxRequestBytes(int maxRequestBytes) {
+            if (maxRequestBytes < 1) {
+                throw new IllegalArgumentException("maxRequestBytes must be at least 1, was " + maxRequestBytes);
+            }
+            this.maxRequestBytes = maxRequestBytes;
+            return this;
+        }
+
+        /**
+         * @param maxBytesInFlight The maximum total size of the request bodies being processed at any time,
+         *                         at least 1. Defaults to 256 MiB.
+         * @return This builder.
+         * @throws IllegalArgumentException If the size is less than 1.
+         */
+        public Builder maxBytesInFlight(int maxBytesInFlight) {
+            if (maxBytesInFlight < 1) {
+                throw new IllegalArgumentException("maxBytesInFlight must be at least 1, was " + maxBytesInFlight);
+            }
+            this.maxBytesInFlight = maxBytesInFlight;
+            return this;
+        }
+
+        /**
+         * @param admissionTimeout How long a request waits for its bytes to fit in the budget before it is
+         *                         rejected with 503. Defaults to 1 second.
+         * @return This builder.
+         */
+        public Builder admissionTimeout(Duration admissionTimeout) {
+            this.admissionTimeout = Objects.requireNonNull(admissionTimeout, "admissionTimeout");
+            return this;
+        }
+
+        /**
+         * @return The server, which has to be started.
+         * @throws IllegalStateException If the maximum request size exceeds the bytes in flight, so that a
+         *                               request of the maximum size could never be admitted.
+         */
+        public DiffServer build() {
+            if (maxRequestBytes > maxBytesInFlight) {
+                throw new IllegalStateException("maxRequestBytes " + maxRequestBytes
+                        + " must not exceed maxBytesInFlight " + maxBytesInFlight);
+            }
+            return new DiffServer(this);
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A comparison of two documents that is kept up to date as the second document changes, created by
+ * {@link JsonDiff#session(JsonNode, JsonNode)}.
+ *
+ * The session compares both documents once and keeps the differences in a map sorted by path, in which
+ * the differences inside any subtree form one range. An update through {@link #apply(JsonPatch)} first
+ * determines the subtree each operation can affect: normally the changed value itself, or the enclosing
+ * array if elements are inserted or removed, since that shifts the following elements, or if the array is
+ * not aligned by index, since its elements are then matched by content. Only those subtrees are compared
+ * again and their ranges replaced, so the cost of an update depends on the size of the change rather than
+ * on the size of the documents. {@link #update(JsonNode)} accepts a whole new version instead, and finds
+ * the changed subtrees by an equality check that stops at unchanged values.
+ *
+ * The session takes ownership of both documents, which must not be modified other than through the
+ * session. The difference limit of the options does not apply, since every difference has to be known to
+ * compute deltas. A session is not thread-safe.
+ */
+public final class DiffSession {
+
+    private static final Comparator<DiffPath> PATH_ORDER = DiffSession::comparePaths;
+
+    private final DiffOptions options;
+    private final JsonNode first;
+    private JsonNode second;
+    private final NavigableMap<DiffPath, List<DiffEntry>> differences = new TreeMap<>(PATH_ORDER);
+    private int size;
+
+    DiffSession(DiffOptions options, JsonNode first, JsonNode second) {
+        this.options = options.toBuilder().maxDifferences(Integer.MAX_VALUE).build();
+        this.first = first;
+        this.second = second;
+        recompute(DiffPath.ROOT, new ArrayList<>());
+    }
+
+    /**
+     * @return The first document, which does not change during the session.
+     */
+    public JsonNode getFirst() {
+        return first;
+    }
+
+    /**
+     * @return The current second document.
+     */
+    public JsonNode getSecond() {
+        return second;
+    }
+
+    /**
+     * @return The current differences, ordered by path with the fields of an object in alphabetical order
+     *         rather than in document order.
+     */
+    public List<DiffEntry> getDifferences() {
+        List<DiffEntry> entries = new ArrayList<>(size);
+        for (List<DiffEntry> atPath : differences.values()) {
+            entries.addAll(atPath);
+        }
+        return entries;
+    }
+
+    /**
+     * @return The number of current differences.
+     */
+    public int getDifferenceCount() {
+        return size;
+    }
+
+    /**
+     * This method applies a JSON patch to the second document and compares the subtrees it changed again.
+     *
+     * @param patch The patch.
+     * @return The change in the differences.
+     * @throws IllegalArgumentException If an operation cannot be applied. The operations before it remain
+     *                                  applied and the differences of the session reflect them.
+     */
+    public DiffDelta apply(JsonPatch patch) {
+        List<DiffPath> scopes = new ArrayList<>();
+        IllegalArgumentException failure = null;
+        for (PatchOperation operation : patch.getOperations()) {
+            PatchOperation.Op op = operation.getOp();
+            try {
+                if (op == PatchOperation.Op.MOVE) {
+                    scopes.add(detach(scope(JsonPatch.tokens(operation.getFrom()), true)));
+                }
+                if (op != PatchOperation.Op.TEST) {
+                    scopes.add(detach(scope(JsonPatch.tokens(operation.getPath()), op != PatchOperation.Op.REPLACE)));
+                }
+                second = JsonPatch.of(List.of(operation)).apply(second);
+            } catch (IllegalArgumentException e) {
+                failure = e;
+                break;
+            }
+        }
+        DiffDelta delta = recompute(scopes);
+        if (failure != null) {
+            throw failure;
+        }
+        return delta;
+    }
+
+    /**
+     * This method replaces the second document with a new version and compares the subtrees that changed
+     * again. Finding them costs an equality check of the unchanged parts of both versions, which is much
+     * cheaper than comparing them with the first document and reporting their differences again. The
+     * session takes ownership of the new version.
+     *
+     * @param newSecond The new version of the second document.
+     * @return The change in the differences.
+     */
+    public DiffDelta update(JsonNode newSecond) {
+        List<String> tokens = new ArrayList<>();
+        List<String[]> changes = new ArrayList<>();
+        findChanges(second, newSecond, tokens, changes);
+        second = newSecond;
+        List<DiffPath> scopes = new ArrayList<>(changes.size());
+        for (String[] change : changes) {
+            scopes.add(scope(change, false));
+        }
+        return recompute(scopes);
+    }
+
+    /**
+     * This method collects the paths of the smallest subtrees in which two versions differ, descending
+     * into objects and into arrays of equal size.
+     */
+    private static void findChanges(JsonNode oldValue, JsonNode newValue, List<String> tokens, List<String[]> changes) {
+        if (oldValue.equals(newValue)) {
+            return;
+        }
+        if (oldValue.isObject() && newValue.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = oldValue.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode newField = newValue.get(field.getKey());
+                tokens.add(field.getKey());
+                if (newField == null) {
+                    changes.add(tokens.toArray(new String[0]));
+                } else {
+                    findChanges(field.getValue(), newField, tokens, changes);
+                }
+                tokens.remove(tokens.size() - 1);
+            }
+            Iterator<String> names = newValue.fieldNames();
+            while (names.hasNext()) {
+                String name = names.next();
+                if (!oldValue.has(name)) {
+                    tokens.add(name);
+                    changes.add(tokens.toArray(new String[0]));
+                    tokens.remove(tokens.size() - 1);
+                }
+            }
+        } else if (oldValue.isArray() && newValue.isArray() && oldValue.size() == newValue.size()) {
+            for (int i = 0; i < oldValue.size(); i++) {
+                tokens.add(Integer.toString(i));
+                findChanges(oldValue.get(i), newValue.get(i), tokens, changes);
+                tokens.remove(tokens.size() - 1);
+            }
+        } else {
+            changes.add(tokens.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * This method determines the subtree whose differences a change at a path of the second document can
+     * affect. That is the changed value itself, unless an ancestor is not compared field by field or
+     * element by element with the first document: an ancestor that is not a container of the same type in
+     * both documents is reported as a whole, and an array that is not aligned by index is matched by
+     * content. Likewise, inserting or removing an array element affects the whole array.
+     *
+     * @param tokens  The JSON Pointer tokens of the changed value.
+     * @param resizes True if the change may insert or remove the value rather than replace it.
+     * @return The path of the affected subtree.
+     */
+    private DiffPath scope(String[] tokens, boolean resizes) {
+        PathStack stack = new PathStack(options.getPathMatcher());
+        String[] fieldNames = new String[tokens.length];
+        int[] indexes = new int[tokens.length];
+        JsonNode node1 = first;
+        JsonNode node2 = second;
+        for (int i = 0; i < tokens.length; i++) {
+            boolean objects = node1 != null && node1.isObject() && node2 != null && node2.isObject();
+            boolean arrays = node1 != null && node1.isArray() && node2 != null && node2.isArray();
+            if (!objects && !arrays) {
+                return path(fieldNames, indexes, i);
+            }
+            if (arrays) {
+                ArrayAlignment alignment = stack.alignment();
+                if ((alignment != null ? alignment : options.getArrayAlignment()) != ArrayAlignment.INDEX
+                        || resizes && i == tokens.length - 1) {
+                    return path(fieldNames, indexes, i);
+                }
+                int index = index(tokens[i]);
+                if (index < 0) {
+                    return path(fieldNames, indexes, i);
+                }
+                indexes[i] = index;
+                stack.pushIndex(index);
+                node1 = node1.get(index);
+                node2 = node2.get(index);
+            } else {
+                fieldNames[i] = tokens[i];
+                stack.pushField(tokens[i]);
+                node1 = node1.get(tokens[i]);
+                node2 = node2.get(tokens[i]);
+            }
+        }
+        return path(fieldNames, indexes, tokens.length);
+    }
+
+    /**
+     * This method replaces the subtree at a path of the second document with a copy before it is edited in
+     * place. Every difference whose values the edit could reach lies inside the subtree, so the entries
+     * already reported keep the values they were reported with, and the delta compares them with the new
+     * ones. Copying costs as much as comparing the subtree again.
+     *
+     * @param scope The path of the subtree.
+     * @return The path.
+     */
+    private DiffPath detach(DiffPath scope) {
+        if (scope.size() == 0) {
+            second = second.deepCopy();
+            return scope;
+        }
+        JsonNode parent = second;
+        int last = scope.size() - 1;
+        for (int i = 0; i < last && parent != null; i++) {
+            parent = scope.isIndex(i) ? parent.get(scope.getIndex(i)) : parent.get(scope.getFieldName(i));
+        }
+        if (scope.isIndex(last)) {
+            if (parent instanceof ArrayNode && scope.getIndex(last) < parent.size()) {
+                ((ArrayNode) parent).set(scope.getIndex(last), parent.get(scope.getIndex(last)).deepCopy());
+            }
+        } else if (parent instanceof ObjectNode && parent.has(scope.getFieldName(last))) {
+            ((ObjectNode) parent).set(scope.getFieldName(last), parent.get(scope.getFieldName(last)).deepCopy());
+        }
+        return scope;
+    }
+
+    private static DiffPath path(String[] fieldNames, int[] indexes, int length) {
+        return length == 0 ? DiffPath.ROOT
+                : new DiffPath(Arrays.copyOf(fieldNames, length), Arrays.copyOf(indexes, length));
+    }
+
+    private static int index(String token) {
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * This method compares the given subtrees again, skipping those inside another one.
+     *
+     * @param scopes The paths of the subtrees.
+     * @return The change in the differences.
+     */
+    private DiffDelta recompute(List<DiffPath> scopes) {
+        scopes.sort(PATH_ORDER);
+        List<DiffEntry> removed = new ArrayList<>();
+        List<DiffEntry> added = new ArrayList<>();
+        DiffPath previous = null;
+        for (DiffPath scope : scopes) {
+            if (previous == null || !isPrefix(previous, scope)) {
+                removeRange(scope, removed);
+                recompute(scope, added);
+                previous = scope;
+            }
+        }
+        Map<List<Object>, Integer> counts = new HashMap<>();
+        for (DiffEntry entry : removed) {
+            counts.merge(key(entry), 1, Integer::sum);
+        }
+        List<DiffEntry> addedOnly = new ArrayList<>();
+        for (DiffEntry entry : added) {
+            List<Object> key = key(entry);
+            Integer count = counts.get(key);
+            if (count == null) {
+                addedOnly.add(entry);
+            } else if (count == 1) {
+                counts.remove(key);
+            } else {
+                counts.put(key, count - 1);
+            }
+        }
+        List<DiffEntry> removedOnly = new ArrayList<>();
+        for (DiffEntry entry : removed) {
+            List<Object> key = key(entry);
+            Integer count = counts.get(key);
+            if (count != null) {
+                removedOnly.add(entry);
+                if (count == 1) {
+                    counts.remove(key);
+                } else {
+                    counts.put(key, count - 1);
+                }
+            }
+        }
+        return new DiffDelta(removedOnly, addedOnly);
+    }
+
+    private static List<Object> key(DiffEntry entry) {
+        return Arrays.asList(entry.getKind(), entry.getDiffPath(), entry.getFromDiffPath(), entry.getLeft(),
+                entry.getRight());
+    }
+
+    private void removeRange(DiffPath scope, List<DiffEntry> removed) {
+        Iterator<Map.Entry<DiffPath, List<DiffEntry>>> range = differences.tailMap(scope, true).entrySet().iterator();
+        while (range.hasNext()) {
+            Map.Entry<DiffPath, List<DiffEntry>> entry = range.next();
+            if (!isPrefix(scope, entry.getKey())) {
+                break;
+            }
+            removed.addAll(entry.getValue());
+            size -= entry.getValue().size();
+            range.remove();
+        }
+    }
+
+    /**
+     * This method compares the subtrees at a path of both documents and records their differences.
+     */
+    private void recompute(DiffPath scope, List<DiffEntry> added) {
+        List<DiffEntry> found = new ArrayList<>();
+        DiffWalker walker = new DiffWalker(found::add, options);
+        PathStack stack = walker.path();
+        JsonNode node1 = first;
+        JsonNode node2 = second;
+        for (int i = 0; i < scope.size(); i++) {
+            if (scope.isIndex(i)) {
+                stack.pushIndex(scope.getIndex(i));
+                node1 = node1 != null && node1.isArray() ? node1.get(scope.getIndex(i)) : null;
+                node2 = node2 != null && node2.isArray() ? node2.get(scope.getIndex(i)) : null;
+            } else {
+                stack.pushField(scope.getFieldName(i));
+                node1 = node1 != null && node1.isObject() ? node1.get(scope.getFieldName(i)) : null;
+                node2 = node2 != null && node2.isObject() ? node2.get(scope.getFieldName(i)) : null;
+            }
+            if (stack.isSkipped()) {
+                return;
+            }
+        }
+        if (node1 != null && node2 != null) {
+            walker.compareNodes(node1, node2);
+        } else if (node1 != null) {
+            walker.report(DiffEntry.Kind.MISSING, node1, null);
+        } else if (node2 != null) {
+            walker.report(DiffEntry.Kind.EXTRA, null, node2);
+        }
+        for (DiffEntry entry : found) {
+            differences.computeIfAbsent(entry.getDiffPath(), path -> new ArrayList<>(1)).add(entry);
+        }
+        size += found.size();
+        added.addAll(found);
+    }
+
+    /**
+     * This method orders paths segment by segment, array indexes before field names, so that every path is
+     * directly followed by the paths inside it.
+     */
+    private static int comparePaths(DiffPath path1, DiffPath path2) {
+        int length = Math.min(path1.size(), path2.size());
+        for (int i = 0; i < length; i++) {
+            int order;
+            if (path1.isIndex(i)) {
+                order = path2.isIndex(i) ? Integer.compare(path1.getIndex(i), path2.getIndex(i)) : -1;
+            } else {
+                order = path2.isIndex(i) ? 1 : path1.getFieldName(i).compareTo(path2.getFieldName(i));
+            }
+            if (order != 0) {
+                return order;
+            }
+        }
+        return Integer.compare(path1.size(), path2.size());
+    }
+
+    private static boolean isPrefix(DiffPath prefix, DiffPath path) {
+        if (prefix.size() > path.size()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.size(); i++) {
+            if (prefix.isIndex(i) ? !path.isIndex(i) || prefix.getIndex(i) != path.getIndex(i)
+                    : path.isIndex(i) || !prefix.getFieldName(i).equals(path.getFieldName(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
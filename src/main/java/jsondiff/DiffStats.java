@@ -0,0 +1,154 @@
+package jsondiff;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable measurements of a single comparison, reported to a {@link DiffMetricsListener}.
+ *
+ * The time of a comparison is split into parsing of String inputs, walking the documents and running the
+ * {@link DiffListener}, which for {@link JsonDiff#getDiff} is the rendering of the text. Streams and files
+ * are tokenized while they are compared, so their parse time is part of the compare time. The subtree times
+ * are inclusive: the time of an object or array contains the time of everything below it.
+ */
+public final class DiffStats {
+
+    private final long nodesVisited;
+    private final int maxDepth;
+    private final long[] differences;
+    private final long bytesParsed;
+    private final long parseNanos;
+    private final long compareNanos;
+    private final long renderNanos;
+    private final List<Subtree> slowestSubtrees;
+
+    DiffStats(long nodesVisited, int maxDepth, long[] differences, long bytesParsed, long parseNanos,
+              long compareNanos, long renderNanos, List<Subtree> slowestSubtrees) {
+        this.nodesVisited = nodesVisited;
+        this.maxDepth = maxDepth;
+        this.differences = differences;
+        this.bytesParsed = bytesParsed;
+        this.parseNanos = parseNanos;
+        this.compareNanos = compareNanos;
+        this.renderNanos = renderNanos;
+        this.slowestSubtrees = Collections.unmodifiableList(slowestSubtrees);
+    }
+
+    /**
+     * @return The number of pairs of values compared. Subtrees skipped because of equal fingerprints or
+     * ignore rules are not counted.
+     */
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    /**
+     * @return The deepest nesting level at which values were compared; 0 for the root.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @param kind The kind of difference.
+     * @return The number of differences of that kind reported.
+     */
+    public long getDifferences(DiffEntry.Kind kind) {
+        return differences[kind.ordinal()];
+    }
+
+    /**
+     * @return The number of differences reported.
+     */
+    public long getDifferenceCount() {
+        long count = 0;
+        for (long kindCount : differences) {
+            count += kindCount;
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of bytes read from streams and files, or characters parsed from Strings.
+     */
+    public long getBytesParsed() {
+        return bytesParsed;
+    }
+
+    /**
+     * @return The time spent parsing String inputs into trees, in nanoseconds.
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * @return The time spent walking the documents, excluding the listener, in nanoseconds.
+     */
+    public long getCompareNanos() {
+        return compareNanos;
+    }
+
+    /**
+     * @return The time spent in the {@link DiffListener} receiving the differences, in nanoseconds.
+     */
+    public long getRenderNanos() {
+        return renderNanos;
+    }
+
+    /**
+     * @return The objects and arrays below the root that took longest to compare, slowest first, at most 10.
+     */
+    public List<Subtree> getSlowestSubtrees() {
+        return slowestSubtrees;
+    }
+
+    @Override
+    public String toString() {
+        return "DiffStats{nodes=" + nodesVisited + ", maxDepth=" + maxDepth + ", differences=" + getDifferenceCount()
+                + ", bytes=" + bytesParsed + ", parseNanos=" + parseNanos + ", compareNanos=" + compareNanos
+                + ", renderNanos=" + renderNanos + ", slowest=" + slowestSubtrees + "}";
+    }
+
+    /**
+     * The cost of comparing one object or array and everything below it.
+     */
+    public static final class Subtree {
+
+        private final DiffPath path;
+        private final long nanos;
+        private final long nodes;
+
+        Subtree(DiffPath path, long nanos, long nodes) {
+            this.path = path;
+            this.nanos = nanos;
+            this.nodes = nodes;
+        }
+
+        /**
+         * @return The path of the object or array.
+         */
+        public DiffPath getPath() {
+            return path;
+        }
+
+        /**
+         * @return The time spent comparing the subtree, in nanoseconds.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return The number of pairs of values compared in the subtree, including its root.
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        @Override
+        public String toString() {
+            return path + "=" + nanos + "ns/" + nodes;
+        }
+    }
+}
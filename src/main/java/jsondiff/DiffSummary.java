@@ -0,0 +1,265 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregate statistics of a comparison, grouped by path template, created by
+ * {@link JsonDiff#summarize(JsonNode, JsonNode)} and its variants.
+ *
+ * A path template is a path in {@link PathFormat#DOTTED} notation with every array index replaced by
+ * {@code [*]}, such as {@code orders[*].price}, so all elements of an array share their groups. For each
+ * template the summary counts how often values occur there and how many of them differ, by kind, and for
+ * numbers that differ it keeps the mean, minimum and maximum difference and a histogram of the relative
+ * change. Memory is fixed per template, however many values and differences there are. Once a comparison
+ * has seen 10,000 templates, further field names are grouped under a
+ * {@code *} segment of their parent, so objects used as maps with arbitrary keys do not grow the summary
+ * without bound.
+ *
+ * Values inside a missing or extra value are not counted, and array elements that are matched as equal by
+ * an alignment other than {@link ArrayAlignment#INDEX} are not visited, so their templates undercount
+ * occurrences. A summary is immutable.
+ */
+public final class DiffSummary {
+
+    /**
+     * The upper bounds of the buckets of the relative change histograms; the last bucket has no bound.
+     */
+    private static final double[] RELATIVE_CHANGE_BOUNDS = {0.001, 0.01, 0.05, 0.1, 0.25, 0.5, 1.0};
+
+    /**
+     * The number of buckets of the relative change histograms.
+     */
+    static final int BUCKETS = RELATIVE_CHANGE_BOUNDS.length + 1;
+
+    private final List<Group> groups;
+    private final Map<String, Group> groupsByTemplate = new LinkedHashMap<>();
+    private final long[] counts = new long[DiffEntry.Kind.values().length];
+
+    DiffSummary(List<Group> groups) {
+        this.groups = Collections.unmodifiableList(groups);
+        for (Group group : groups) {
+            groupsByTemplate.put(group.template, group);
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += group.counts[i];
+            }
+        }
+    }
+
+    /**
+     * @return The upper bounds of the buckets of {@link Group#getRelativeChangeHistogram()}: a change of
+     *         {@code |right - left| / max(|left|, |right|)} falls in the first bucket whose bound it does not
+     *         exceed, or in the last bucket if it exceeds them all.
+     */
+    public static double[] getRelativeChangeBounds() {
+        return RELATIVE_CHANGE_BOUNDS.clone();
+    }
+
+    /**
+     * @param relativeChange The relative change of a number.
+     * @return The histogram bucket of the change.
+     */
+    static int bucket(double relativeChange) {
+        int bucket = 0;
+        while (bucket < RELATIVE_CHANGE_BOUNDS.length && relativeChange > RELATIVE_CHANGE_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /**
+     * @return The groups of all templates at which values occurred, parents before their children.
+     */
+    public List<Group> getGroups() {
+        return groups;
+    }
+
+    /**
+     * @param template A path template, e.g. {@code orders[*].price}; the empty String for the root.
+     * @return The group of the template, or null if no value occurred there.
+     */
+    public Group getGroup(String template) {
+        return groupsByTemplate.get(template);
+    }
+
+    /**
+     * @return The total number of differences.
+     */
+    public long getDifferenceCount() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @param kind A kind of difference.
+     * @return The total number of differences of the kind.
+     */
+    public long getDifferenceCount(DiffEntry.Kind kind) {
+        return counts[kind.ordinal()];
+    }
+
+    /**
+     * This method counts the differences of a kind at a template and at all templates inside it, e.g. the
+     * missing fields under {@code customers[*].address}.
+     *
+     * @param template A path template; the empty String for the whole document.
+     * @param kind     A kind of difference.
+     * @return The number of differences.
+     */
+    public long getDifferenceCountUnder(String template, DiffEntry.Kind kind) {
+        long total = 0;
+        for (Group group : groups) {
+            String other = group.template;
+            if (other.startsWith(template) && (template.isEmpty() || other.length() == template.length()
+                    || other.charAt(template.length()) == '.' || other.charAt(template.length()) == '[')) {
+                total += group.counts[kind.ordinal()];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return One line for each template with differences.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Group group : groups) {
+            if (group.getDifferenceCount() > 0) {
+                builder.append(group).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The statistics of one path template.
+     */
+    public static final class Group {
+
+        private final String template;
+        private final long occurrences;
+        private final long[] counts;
+        private final long numericChanges;
+        private final double deltaSum;
+        private final double minDelta;
+        private final double maxDelta;
+        private final long[] histogram;
+
+        Group(String template, long occurrences, long[] counts, long numericChanges, double deltaSum,
+              double minDelta, double maxDelta, long[] histogram) {
+            this.template = template;
+            this.occurrences = occurrences;
+            this.counts = counts;
+            this.numericChanges = numericChanges;
+            this.deltaSum = deltaSum;
+            this.minDelta = minDelta;
+            this.maxDelta = maxDelta;
+            this.histogram = histogram;
+        }
+
+        /**
+         * @return The path template, e.g. {@code orders[*].price}; the empty String for the root.
+         */
+        public String getTemplate() {
+            return template;
+        }
+
+        /**
+         * @return The number of values at the template in either document: pairs of values that were
+         *         compared, plus missing and extra values.
+         */
+        public long getOccurrences() {
+            return occurrences;
+        }
+
+        /**
+         * @param kind A kind of difference.
+         * @return The number of differences of the kind at the template.
+         */
+        public long getCount(DiffEntry.Kind kind) {
+            return counts[kind.ordinal()];
+        }
+
+        /**
+         * @return The number of differences of all kinds at the template.
+         */
+        public long getDifferenceCount() {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * @return The fraction of the occurrences that are mismatched, missing or extra; moved array elements
+         *         do not count as changed.
+         */
+        public double getChangedRatio() {
+            long changed = getDifferenceCount() - counts[DiffEntry.Kind.MOVED.ordinal()];
+            return occurrences == 0 ? 0 : (double) changed / occurrences;
+        }
+
+        /**
+         * @return The number of mismatches where both values are numbers.
+         */
+        public long getNumericChangeCount() {
+            return numericChanges;
+        }
+
+        /**
+         * @return The mean of {@code right - left} over the numeric mismatches, or NaN if there are none.
+         */
+        public double getMeanDelta() {
+            return numericChanges == 0 ? Double.NaN : deltaSum / numericChanges;
+        }
+
+        /**
+         * @return The smallest {@code right - left} of the numeric mismatches, or NaN if there are none.
+         */
+        public double getMinDelta() {
+            return numericChanges == 0 ? Double.NaN : minDelta;
+        }
+
+        /**
+         * @return The largest {@code right - left} of the numeric mismatches, or NaN if there are none.
+         */
+        public double getMaxDelta() {
+            return numericChanges == 0 ? Double.NaN : maxDelta;
+        }
+
+        /**
+         * @return The number of numeric mismatches in each bucket of relative change, see
+         *         {@link DiffSummary#getRelativeChangeBounds()}.
+         */
+        public long[] getRelativeChangeHistogram() {
+            return histogram.clone();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(template.isEmpty() ? "$" : template).append(": ")
+                    .append(String.format("%.1f%%", getChangedRatio() * 100)).append(" of ").append(occurrences)
+                    .append(" changed");
+            for (DiffEntry.Kind kind : DiffEntry.Kind.values()) {
+                if (counts[kind.ordinal()] > 0) {
+                    builder.append(", ").append(counts[kind.ordinal()]).append(' ').append(kind);
+                }
+            }
+            if (numericChanges > 0) {
+                builder.append(String.format(", mean delta %g in [%g, %g], relative change histogram ",
+                        getMeanDelta(), minDelta, maxDelta)).append(Arrays.toString(histogram));
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,577 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Recursive comparison of two JsonNode trees that reports every difference to a {@link DiffListener}.
+ *
+ * A walker holds the state of a single comparison and is not meant to be shared between threads. Its
+ * position is tracked in a reusable {@link PathStack}, and a path is only copied out when a difference is
+ * reported, so walking equal documents allocates next to nothing. Once the configured maximum number of
+ * differences has been reported, the walker stops descending and ignores further differences. When a
+ * fork-join pool is configured, large objects and arrays are split into chunks that are compared by child
+ * walkers in parallel. Fields and elements excluded by the ignore and include rules of the options are
+ * skipped before they are descended into or reported, and scalar values that are not equal are passed to
+ * the value comparator for their path before they are reported as a mismatch.
+ */
+final class DiffWalker {
+
+    /**
+     * Upper bound for the elements of a bucket probed when pairing an array element by equivalence.
+     */
+    private static final int MAX_EQUIVALENCE_PROBES = 8;
+
+    private final DiffListener listener;
+    private final int maxDifferences;
+    private final ArrayAlignment arrayAlignment;
+    private final String arrayIdentityKey;
+    private final PathFormat pathFormat;
+    private final ValueComparator valueComparator;
+    private final boolean rules;
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final FingerprintIndex index1;
+    private final FingerprintIndex index2;
+    private final BaselineLayout layout;
+    private final DiffRecorder recorder;
+    private final PathStack path;
+    private Visitor visitor;
+    private int reported;
+
+    DiffWalker(DiffListener listener, DiffOptions options) {
+        this(listener, options, null, null, null, null);
+    }
+
+    /**
+     * Creates a walker that skips objects and arrays whose fingerprints are equal in both indexes, and that
+     * reads the fields of the objects of the first tree from its layout where available.
+     *
+     * @param listener The listener receiving the differences.
+     * @param options  The comparison options.
+     * @param index1   The fingerprint index of the first tree, or null.
+     * @param index2   The fingerprint index of the second tree, or null.
+     * @param layout   The precomputed tables of the first tree, or null.
+     * @param recorder The collector of measurements, or null if metrics are disabled.
+     */
+    DiffWalker(DiffListener listener, DiffOptions options, FingerprintIndex index1, FingerprintIndex index2,
+               BaselineLayout layout, DiffRecorder recorder) {
+        this.listener = listener;
+        this.maxDifferences = options.getMaxDifferences();
+        this.arrayAlignment = options.getArrayAlignment();
+        this.arrayIdentityKey = options.getArrayIdentityKey();
+        this.pathFormat = options.getPathFormat();
+        this.valueComparator = options.getValueComparator();
+        this.rules = options.hasRules();
+        this.pool = options.getForkJoinPool();
+        this.parallelThreshold = options.getParallelThreshold();
+        this.index1 = index1;
+        this.index2 = index2;
+        this.layout = layout;
+        this.recorder = recorder;
+        this.path = new PathStack(options.getPathMatcher());
+    }
+
+    /**
+     * Creates a walker for a part of the comparison of the parent, starting at the current position of the
+     * parent and limited to the differences the parent can still report.
+     */
+    private DiffWalker(DiffListener listener, DiffWalker parent) {
+        this(listener, parent, parent.maxDifferences - parent.reported);
+    }
+
+    private DiffWalker(DiffListener listener, DiffWalker parent, int maxDifferences) {
+        this.listener = listener;
+        this.maxDifferences = maxDifferences;
+        this.arrayAlignment = parent.arrayAlignment;
+        this.arrayIdentityKey = parent.arrayIdentityKey;
+        this.pathFormat = parent.pathFormat;
+        this.valueComparator = parent.valueComparator;
+        this.rules = parent.rules;
+        this.pool = parent.pool;
+        this.parallelThreshold = parent.parallelThreshold;
+        this.index1 = parent.index1;
+        this.index2 = parent.index2;
+        this.layout = parent.layout;
+        this.recorder = parent.recorder != null ? new DiffRecorder() : null;
+        this.path = parent.path.copy();
+    }
+
+    /**
+     * @return The current position of the walker, which callers driving the traversal may push and pop.
+     */
+    PathStack path() {
+        return path;
+    }
+
+    /**
+     * This method sets a callback that is told about every pair of values the walker compares. It is not
+     * passed to the child walkers of a parallel comparison, so it should only be set on sequential walkers.
+     *
+     * @param visitor The visitor, or null.
+     */
+    void setVisitor(Visitor visitor) {
+        this.visitor = visitor;
+    }
+
+    /**
+     * This method tells the visitor, if any, that a pair of values at the current path is being compared.
+     * Callers driving the traversal call it for the containers they descend into themselves.
+     */
+    void visit() {
+        if (visitor != null) {
+            visitor.onVisit(path);
+        }
+    }
+
+    /**
+     * @return The collector of measurements, or null if metrics are disabled.
+     */
+    DiffRecorder recorder() {
+        return recorder;
+    }
+
+    /**
+     * @return True if at least one difference has been reported.
+     */
+    boolean hasDifferences() {
+        return reported > 0;
+    }
+
+    /**
+     * @return True if the difference limit has been reached and the comparison should stop.
+     */
+    boolean isStopped() {
+        return reported >= maxDifferences;
+    }
+
+    /**
+     * This method compares two JsonNode objects at the current path and reports the differences to the listener.
+     *
+     * @param node1 The first JsonNode to compare.
+     * @param node2 The second JsonNode to compare.
+     */
+    void compareNodes(JsonNode node1, JsonNode node2) {
+        if (isStopped() || FingerprintIndex.sameFingerprint(index1, node1, index2, node2)) {
+            return;
+        }
+        visit();
+        if (recorder != null) {
+            recorder.enter(path.depth());
+        }
+        if (node1.isArray() && node2.isArray()) {
+            compareArrays(node1, node2);
+        } else if (node1.isObject() && node2.isObject()) {
+            compareObjects(node1, node2);
+        } else if (!node1.equals(node2) && !isEquivalent(node1, node2)) {
+            report(DiffEntry.Kind.VALUE_MISMATCH, node1, node2);
+        }
+        if (recorder != null) {
+            recorder.exit(path);
+        }
+    }
+
+    /**
+     * This method applies the value comparator for the current path to two values that are not equal.
+     *
+     * @param node1 The first value.
+     * @param node2 The second value.
+     * @return True if a comparator considers the values equivalent.
+     */
+    private boolean isEquivalent(JsonNode node1, JsonNode node2) {
+        ValueComparator comparator = path.comparator();
+        if (comparator == null) {
+            comparator = valueComparator;
+        }
+        return comparator != null && comparator.equivalent(node1, node2);
+    }
+
+    /**
+     * This method compares two JSON objects and reports the differences to the listener.
+     *
+     * @param node1 The first JSON object.
+     * @param node2 The second JSON object.
+     */
+    private void compareObjects(JsonNode node1, JsonNode node2) {
+        BaselineLayout.Fields layout1 = layout != null ? layout.get(node1) : null;
+        if (isParallel(node1.size())) {
+            BaselineLayout.Fields fields1 = layout1 != null ? layout1 : BaselineLayout.Fields.of(node1);
+            forEachRange(fields1.size(), (walker, from, to) -> {
+                for (int i = from; i < to && !walker.isStopped(); i++) {
+                    walker.compareField(fields1.fieldName(i), fields1.value(i), node2);
+                }
+            });
+        } else if (layout1 != null) {
+            for (int i = 0; i < layout1.size() && !isStopped(); i++) {
+                compareField(layout1.fieldName(i), layout1.value(i), node2);
+            }
+        } else {
+            Iterator<Map.Entry<String, JsonNode>> firstJsonFields = node1.fields();
+            while (firstJsonFields.hasNext() && !isStopped()) {
+                Map.Entry<String, JsonNode> field = firstJsonFields.next();
+                compareField(field.getKey(), field.getValue(), node2);
+            }
+        }
+
+        Iterator<Map.Entry<String, JsonNode>> secondJsonFields = node2.fields();
+        while (secondJsonFields.hasNext() && !isStopped()) {
+            Map.Entry<String, JsonNode> field = secondJsonFields.next();
+            String fieldName = field.getKey();
+            if (!node1.has(fieldName)) {
+                path.pushField(fieldName);
+                if (!path.isSkipped()) {
+                    report(DiffEntry.Kind.EXTRA, null, field.getValue());
+                }
+                path.pop();
+            }
+        }
+    }
+
+    /**
+     * This method compares a field of the first JSON object with the same field of the second.
+     *
+     * @param fieldName The name of the field.
+     * @param value1    The value of the field in the first JSON object.
+     * @param node2     The second JSON object.
+     */
+    private void compareField(String fieldName, JsonNode value1, JsonNode node2) {
+        JsonNode value2 = node2.get(fieldName);
+
+        path.pushField(fieldName);
+        if (!path.isSkipped()) {
+            if (value2 == null) {
+                report(DiffEntry.Kind.MISSING, value1, null);
+            } else {
+                compareNodes(value1, value2);
+            }
+        }
+        path.pop();
+    }
+
+    /**
+     * This method compares two JSON arrays and reports the differences to the listener. Unless the arrays
+     * are aligned by index, missing elements and elements compared with their counterpart are reported in
+     * the order of the first array, followed by the extra elements in the order of the second array.
+     *
+     * @param array1 The first JSON array.
+     * @param array2 The second JSON array.
+     */
+    private void compareArrays(JsonNode array1, JsonNode array2) {
+        ArrayAlignment alignment = path.alignment();
+        if (alignment == null) {
+            alignment = arrayAlignment;
+        }
+        if (alignment == ArrayAlignment.INDEX) {
+            int maxLength = Math.max(array1.size(), array2.size());
+            if (isParallel(maxLength)) {
+                forEachRange(maxLength, (walker, from, to) -> walker.compareElementsByIndex(array1, array2, from, to));
+            } else {
+                compareElementsByIndex(array1, array2, 0, maxLength);
+            }
+            return;
+        }
+
+        ArrayMatch match;
+        if (alignment == ArrayAlignment.KEY) {
+            match = ArrayMatch.byKey(array1, array2, arrayIdentityKey);
+        } else if (alignment == ArrayAlignment.UNORDERED) {
+            match = ArrayMatch.unordered(array1, array2, index1, index2);
+        } else {
+            match = ArrayMatch.byLcs(array1, array2, index1, index2);
+        }
+        if (rules && alignment != ArrayAlignment.KEY) {
+            pairEquivalentElements(array1, array2, match, alignment == ArrayAlignment.LCS);
+        }
+        if (isParallel(array1.size())) {
+            forEachRange(array1.size(), (walker, from, to) -> walker.compareMatchedElements(array1, array2, match, from, to));
+        } else {
+            compareMatchedElements(array1, array2, match, 0, array1.size());
+        }
+        path.pushIndex(0);
+        for (int j = 0; j < array2.size() && !isStopped(); j++) {
+            if (!match.isPaired(j)) {
+                path.setIndex(j);
+                if (path.isSkipped()) {
+                    continue;
+                }
+                report(DiffEntry.Kind.EXTRA, null, array2.get(j));
+            }
+        }
+        path.pop();
+    }
+
+    /**
+     * This method pairs the elements left unpaired by a hash-based match with an element of the other array
+     * they are equivalent to under the comparison rules, such as {@code 1} and {@code 1.0} under a numeric
+     * comparator. The leftover elements of the second array are bucketed by their hash under the rules, see
+     * {@link #ruleHash(JsonNode)}, and each leftover element of the first array takes the first element of its
+     * bucket that a probe comparison, limited to one difference, finds no difference with. At most
+     * {@link #MAX_EQUIVALENCE_PROBES} elements of a bucket are probed per element, so the pairing stays
+     * linear even where the rules leave no normal form to hash, such as for a numeric tolerance or a custom
+     * comparator; elements that find no partner within the bound are reported as missing and extra.
+     *
+     * @param array1 The first JSON array.
+     * @param array2 The second JSON array.
+     * @param match  The pairing of the elements, completed in place.
+     * @param moved  True if the new pairs are to be reported as moves.
+     */
+    private void pairEquivalentElements(JsonNode array1, JsonNode array2, ArrayMatch match, boolean moved) {
+        DiffWalker probe = new DiffWalker(entry -> { }, this, 1);
+        probe.path.pushIndex(0);
+        Map<Long, ArrayDeque<Integer>> buckets = new HashMap<>();
+        for (int j = 0; j < array2.size(); j++) {
+            probe.path.setIndex(j);
+            if (!match.isPaired(j) && !probe.path.isSkipped()) {
+                buckets.computeIfAbsent(probe.ruleHash(array2.get(j)), key -> new ArrayDeque<>()).add(j);
+            }
+        }
+        for (int i = 0; i < array1.size() && !buckets.isEmpty(); i++) {
+            probe.path.setIndex(i);
+            if (match.pairOf(i) >= 0 || probe.path.isSkipped()) {
+                continue;
+            }
+            long hash = probe.ruleHash(array1.get(i));
+            ArrayDeque<Integer> bucket = buckets.get(hash);
+            if (bucket == null) {
+                continue;
+            }
+            int probes = 0;
+            for (Iterator<Integer> it = bucket.iterator(); it.hasNext() && probes < MAX_EQUIVALENCE_PROBES; probes++) {
+                int j = it.next();
+                probe.reported = 0;
+                probe.path.setIndex(i);
+                probe.compareNodes(array1.get(i), array2.get(j));
+                if (!probe.hasDifferences()) {
+                    it.remove();
+                    match.pairEquivalent(i, j, moved);
+                    break;
+                }
+            }
+            if (bucket.isEmpty()) {
+                buckets.remove(hash);
+            }
+        }
+    }
+
+    /**
+     * This method hashes a value at the current path so that values that compare without differences under
+     * the rules hash the same: fields and elements excluded by ignore and include rules are left out, scalars
+     * are hashed in the normal form of their {@link NormalizedComparator}, and elements of unordered arrays
+     * are combined order-independently. Where a comparator has no normal form, the value hashes to a
+     * constant.
+     *
+     * @param node The value.
+     * @return The hash.
+     */
+    private long ruleHash(JsonNode node) {
+        ValueComparator comparator = path.comparator();
+        if (comparator == null) {
+            comparator = valueComparator;
+        }
+        if (comparator != null && !(comparator instanceof NormalizedComparator)) {
+            return 0;
+        }
+        if (node.isObject()) {
+            long hash = node.getNodeType().ordinal();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                path.pushField(field.getKey());
+                if (!path.isSkipped()) {
+                    hash += StructuralHash.mix(StructuralHash.ofString(field.getKey()) * 31 + ruleHash(field.getValue()));
+                }
+                path.pop();
+            }
+            return StructuralHash.mix(hash);
+        }
+        if (node.isArray()) {
+            ArrayAlignment alignment = path.alignment();
+            boolean unordered = (alignment != null ? alignment : arrayAlignment) == ArrayAlignment.UNORDERED;
+            long hash = node.getNodeType().ordinal();
+            path.pushIndex(0);
+            for (int i = 0; i < node.size(); i++) {
+                path.setIndex(i);
+                if (!path.isSkipped()) {
+                    long element = ruleHash(node.get(i));
+                    hash = unordered ? hash + StructuralHash.mix(element) : StructuralHash.mix(hash * 31 + element);
+                }
+            }
+            path.pop();
+            return StructuralHash.mix(hash);
+        }
+        return comparator != null ? ((NormalizedComparator) comparator).hash(node) : StructuralHash.ofScalar(node);
+    }
+
+    /**
+     * This method compares the elements [from, to) of the first JSON array with their counterparts in the
+     * second, if any.
+     *
+     * @param array1 The first JSON array.
+     * @param array2 The second JSON array.
+     * @param match  The pairing of the elements.
+     * @param from   The first index in the first array.
+     * @param to     The index after the last index in the first array.
+     */
+    private void compareMatchedElements(JsonNode array1, JsonNode array2, ArrayMatch match, int from, int to) {
+        path.pushIndex(from);
+        for (int i = from; i < to && !isStopped(); i++) {
+            path.setIndex(i);
+            if (path.isSkipped()) {
+                continue;
+            }
+            int j = match.pairOf(i);
+            if (j < 0) {
+                report(DiffEntry.Kind.MISSING, array1.get(i), null);
+                continue;
+            }
+            if (match.isMoved(i)) {
+                report(new DiffEntry(DiffEntry.Kind.MOVED, path.snapshotWithIndex(j), path.snapshot(), pathFormat,
+                        array1.get(i), array2.get(j)));
+            }
+            if (!match.isEqual(i)) {
+                compareNodes(array1.get(i), array2.get(j));
+            }
+        }
+        path.pop();
+    }
+
+    /**
+     * This method compares the elements [from, to) of two JSON arrays by pairing them by position.
+     *
+     * @param array1 The first JSON array.
+     * @param array2 The second JSON array.
+     * @param from   The first index.
+     * @param to     The index after the last index.
+     */
+    private void compareElementsByIndex(JsonNode array1, JsonNode array2, int from, int to) {
+        path.pushIndex(from);
+        for (int i = from; i < to && !isStopped(); i++) {
+            path.setIndex(i);
+            if (path.isSkipped()) {
+                continue;
+            }
+            if (i >= array1.size()) {
+                report(DiffEntry.Kind.EXTRA, null, array2.get(i));
+            } else if (i >= array2.size()) {
+                report(DiffEntry.Kind.MISSING, array1.get(i), null);
+            } else {
+                compareNodes(array1.get(i), array2.get(i));
+            }
+        }
+        path.pop();
+    }
+
+    private boolean isParallel(int size) {
+        return pool != null && size >= parallelThreshold;
+    }
+
+    /**
+     * This method splits the index range [0, size) into chunks that run as fork-join tasks, each with its
+     * own walker collecting its differences. The collected differences are then reported chunk by chunk,
+     * so the result is identical to a sequential run.
+     *
+     * @param size The size of the range.
+     * @param work The work to run for each chunk.
+     */
+    private void forEachRange(int size, RangeWork work) {
+        int chunkSize = Math.max(1, (size + pool.getParallelism() * 4 - 1) / (pool.getParallelism() * 4));
+        List<RangeTask> tasks = new ArrayList<>();
+        for (int from = 0; from < size; from += chunkSize) {
+            tasks.add(new RangeTask(this, work, from, Math.min(size, from + chunkSize)));
+        }
+        if (ForkJoinTask.getPool() == pool) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            pool.invoke(ForkJoinTask.adapt(() -> {
+                ForkJoinTask.invokeAll(tasks);
+            }));
+        }
+
+        for (RangeTask task : tasks) {
+            if (recorder != null) {
+                recorder.merge(task.walker.recorder);
+            }
+            for (DiffEntry entry : task.join()) {
+                if (isStopped()) {
+                    return;
+                }
+                report(entry);
+            }
+        }
+    }
+
+    /**
+     * Work over a chunk [from, to) of an index range, run by the given walker.
+     */
+    @FunctionalInterface
+    private interface RangeWork {
+        void run(DiffWalker walker, int from, int to);
+    }
+
+    /**
+     * Fork-join task that runs a chunk of work on a child walker and returns the differences it found. It is
+     * serializable only because ForkJoinTask is; it is never serialized, so its state is transient.
+     */
+    private static final class RangeTask extends RecursiveTask<List<DiffEntry>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<DiffEntry> entries = new ArrayList<>();
+        private final transient DiffWalker walker;
+        private final transient RangeWork work;
+        private final int from;
+        private final int to;
+
+        RangeTask(DiffWalker parent, RangeWork work, int from, int to) {
+            this.walker = new DiffWalker(entries::add, parent);
+            this.work = work;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<DiffEntry> compute() {
+            work.run(walker, from, to);
+            return entries;
+        }
+    }
+
+    /**
+     * This method hands a difference at the current path to the listener, unless the difference limit has
+     * been reached.
+     *
+     * @param kind  The kind of difference.
+     * @param left  The value in the first JSON, if any.
+     * @param right The value in the second JSON, if any.
+     */
+    void report(DiffEntry.Kind kind, JsonNode left, JsonNode right) {
+        if (!isStopped()) {
+            report(new DiffEntry(kind, path.snapshot(), null, pathFormat, left, right));
+        }
+    }
+
+    private void report(DiffEntry entry) {
+        reported++;
+        listener.onDifference(entry);
+    }
+
+    /**
+     * Callback that is told about every pair of values a walker compares, before their children.
+     */
+    interface Visitor {
+
+        /**
+         * @param path The position of the values, which is only valid during the call.
+         */
+        void onVisit(PathStack path);
+    }
+}
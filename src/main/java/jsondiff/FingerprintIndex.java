@@ -0,0 +1,77 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Structural fingerprints of every object and array of a JSON tree, computed once and reusable across
+ * any number of comparisons.
+ *
+ * A fingerprint is a 64-bit Merkle-style hash of a subtree: equal subtrees always have the same fingerprint,
+ * so when two subtrees have the same fingerprint the comparison skips them without walking their children.
+ * Different subtrees share a fingerprint only with a probability of about 2^-64 per comparison.
+ *
+ * The fingerprints are kept in a side table keyed by node identity, so the index is only valid as long as
+ * the indexed tree is not modified. An index is immutable and can be shared between threads.
+ */
+public final class FingerprintIndex {
+
+    private final JsonNode root;
+    private final Map<JsonNode, Long> fingerprints;
+
+    private FingerprintIndex(JsonNode root, Map<JsonNode, Long> fingerprints) {
+        this.root = root;
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * This method computes the fingerprints of all objects and arrays of a tree in a single bottom-up pass.
+     *
+     * @param root The root of the tree, which must not be modified while the index is in use.
+     * @return The index.
+     */
+    public static FingerprintIndex of(JsonNode root) {
+        Map<JsonNode, Long> fingerprints = new IdentityHashMap<>();
+        StructuralHash.of(root, fingerprints);
+        return new FingerprintIndex(root, fingerprints);
+    }
+
+    /**
+     * @return The root of the indexed tree.
+     */
+    public JsonNode getRoot() {
+        return root;
+    }
+
+    /**
+     * This method returns the fingerprint of a node. Objects and arrays of the indexed tree are looked up;
+     * scalars and nodes of other trees are hashed on demand.
+     *
+     * @param node The node.
+     * @return The 64-bit fingerprint.
+     */
+    public long fingerprint(JsonNode node) {
+        Long fingerprint = node.isContainerNode() ? fingerprints.get(node) : null;
+        return fingerprint != null ? fingerprint : StructuralHash.of(node);
+    }
+
+    /**
+     * This method checks whether two containers are known to be equal because both are indexed and have the
+     * same fingerprint.
+     *
+     * @param index1 The index of the first tree, or null.
+     * @param node1  A node of the first tree.
+     * @param index2 The index of the second tree, or null.
+     * @param node2  A node of the second tree.
+     * @return True if the subtrees can be skipped.
+     */
+    static boolean sameFingerprint(FingerprintIndex index1, JsonNode node1, FingerprintIndex index2, JsonNode node2) {
+        if (index1 == null || index2 == null) {
+            return false;
+        }
+        Long fingerprint1 = index1.fingerprints.get(node1);
+        return fingerprint1 != null && fingerprint1.equals(index2.fingerprints.get(node2));
+    }
+}
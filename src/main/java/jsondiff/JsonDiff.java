@@ -1,38 +1,99 @@
 package jsondiff;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.Map;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * Utility class for comparing JSON objects and providing detailed differences.
  *
  * Supports the following features:
- * * Compare two JSON strings or JsonNode objects.
- * * Pretty-print the differences with highlighted changes.
+ * * Compare two JSON strings, JsonNode objects, streams or files.
+ * * Pretty-print the differences with highlighted changes, or write them as plain or compact text.
+ * * Report the differences as typed {@link DiffEntry} objects to a {@link DiffListener}.
+ * * Generate and apply RFC 6902 JSON Patches.
+ * * Merge two versions of a JSON with their common ancestor.
+ * * Keep the differences up to date while a document is edited.
  * * Check equality and subset relationships between JSONs.
+ * * Summarize the differences of large documents per path template.
+ *
+ * Instances are immutable and safe to share between any number of threads, including virtual threads, so
+ * a service should create one instance per configuration through {@link #builder()} and reuse it. Every
+ * call keeps its state in objects of its own, and the ObjectMapper is only used to create parsers and read
+ * trees, which Jackson supports concurrently. Instances built without an ObjectMapper share one default
+ * mapper, so creating them is cheap.
  *
  * Author: Nikhil Pachpande
  * Version: 1.0
  */
 public class JsonDiff {
 
-    private final ObjectMapper objectMapper;
+    private static final ObjectMapper DEFAULT_OBJECT_MAPPER = new ObjectMapper();
 
-    // Using the ANSI escape codes for colorizing the output
-    private static final String RESET = "\u001B[0m";
-    private static final String RED = "\u001B[31m"; // For mismatches in the provided JSON strings or JsonNodes
-    private static final String YELLOW = "\u001B[33m"; // For missing fields from the JSON strings or JsonNodes
-    private static final String GREEN = "\u001B[32m"; // For extra fields in the JSON strings or JsonNodes
+    private final ObjectMapper objectMapper;
+    private final DiffFormat format;
+    private final DiffMetricsListener metrics;
+    private final DiffCache cache;
+    private final DiffOptions options;
+    private final DiffOptions patchOptions;
+    private final DiffOptions firstDifference;
+    private final DiffOptions summaryOptions;
 
     /**
      * The Constructor initializes the ObjectMapper for JSON processing.
      */
     public JsonDiff() {
-        this.objectMapper = new ObjectMapper();
+        this(DiffOptions.DEFAULT);
+    }
+
+    /**
+     * The Constructor initializes the ObjectMapper for JSON processing and applies the given options to
+     * every comparison made by this instance.
+     *
+     * @param options The comparison options.
+     */
+    public JsonDiff(DiffOptions options) {
+        this(builder().options(options));
+    }
+
+    private JsonDiff(Builder builder) {
+        this.objectMapper = builder.objectMapper != null ? builder.objectMapper : DEFAULT_OBJECT_MAPPER;
+        this.format = builder.format;
+        this.metrics = builder.metrics;
+        this.cache = builder.cache;
+        this.options = builder.options;
+        this.patchOptions = options.toBuilder()
+                .maxDifferences(Integer.MAX_VALUE)
+                .arrayAlignment(ArrayAlignment.INDEX)
+                .clearPathAlignments()
+                .clearPathRules()
+                .clearValueComparators()
+                .pathFormat(PathFormat.JSON_POINTER)
+                .build();
+        this.firstDifference = options.toBuilder()
+                .maxDifferences(1)
+                .build();
+        this.summaryOptions = options.toBuilder()
+                .maxDifferences(Integer.MAX_VALUE)
+                .parallel(null)
+                .build();
+    }
+
+    /**
+     * @return A builder initialized with the default settings.
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
@@ -42,106 +103,166 @@ public class JsonDiff {
      * @return A JsonNode representing the parsed JSON.
      * @throws IOException If the input string is not a valid JSON.
      */
-    private JsonNode parseJson(String jsonString) throws IOException {
+    JsonNode parseJson(String jsonString) throws IOException {
         return objectMapper.readTree(jsonString);
     }
 
     /**
-     * This method compares two JsonNode objects and appends the differences to the result.
+     * This method parses a JSON string into a JsonNode object and records the time and size, if metrics are
+     * enabled.
      *
-     * @param node1      The first JsonNode to compare.
-     * @param node2      The second JsonNode to compare.
-     * @param path       The current JSON path (for nested objects).
-     * @param diffResult The StringBuilder to append the differences to.
+     * @param jsonString The JSON string to parse.
+     * @param recorder   The collector of measurements, or null.
+     * @return A JsonNode representing the parsed JSON.
+     * @throws IOException If the input string is not a valid JSON.
      */
-    private void compareNodes(JsonNode node1, JsonNode node2, String path, StringBuilder diffResult) {
-        if (node1.isArray() && node2.isArray()) {
-            compareArrays(node1, node2, path, diffResult);
-        } else if (node1.isObject() && node2.isObject()) {
-            compareObjects(node1, node2, path, diffResult);
-        } else if (!node1.equals(node2)) {
-            diffResult.append(indent(path))
-                    .append(RED).append("Value mismatch at ").append(path)
-                    .append(": ").append(node1).append(" vs ").append(node2).append(RESET).append("\n");
+    JsonNode parseJson(String jsonString, DiffRecorder recorder) throws IOException {
+        if (recorder == null) {
+            return objectMapper.readTree(jsonString);
         }
+        long start = System.nanoTime();
+        JsonNode node = objectMapper.readTree(jsonString);
+        recorder.parsed(jsonString.length(), System.nanoTime() - start);
+        return node;
     }
 
     /**
-     * This method compares two JSON objects and appends the differences to the result.
+     * This method returns a detailed, pretty-printed diff between two JSON strings.
      *
-     * @param node1      The first JSON object.
-     * @param node2      The second JSON object.
-     * @param path       The current JSON path (for nested objects).
-     * @param diffResult The StringBuilder to append the differences to.
+     * @param json1 The first JSON string.
+     * @param json2 The second JSON string.
+     * @return A string containing the differences between the two JSONs.
+     * @throws IOException If the input strings are not valid JSON.
      */
-    private void compareObjects(JsonNode node1, JsonNode node2, String path, StringBuilder diffResult) {
-        Iterator<Map.Entry<String, JsonNode>> firstJsonFields = node1.fields();
+    public String getDiff(String json1, String json2) throws IOException {
+        if (cache != null) {
+            return cache.get(new DiffCache.Key(this, DiffCache.Operation.DIFF, json1, json2),
+                    () -> computeDiff(json1, json2));
+        }
+        return computeDiff(json1, json2);
+    }
 
-        while (firstJsonFields.hasNext()) {
-            Map.Entry<String, JsonNode> field = firstJsonFields.next();
-            String fieldName = field.getKey();
-            JsonNode value1 = field.getValue();
-            JsonNode value2 = node2.get(fieldName);
+    private String computeDiff(String json1, String json2) throws IOException {
+        DiffRecorder recorder = newRecorder();
+        JsonNode node1 = parseJson(json1, recorder);
+        JsonNode node2 = parseJson(json2, recorder);
 
-            String currentPath = path.isEmpty() ? fieldName : path + "." + fieldName;
+        StringBuilder diffResult = new StringBuilder();
+        compareTrees(node1, node2, null, null, null, new TextDiffRenderer(diffResult, format), recorder);
 
-            if (value2 == null) {
-                diffResult.append(indent(currentPath))
-                        .append(YELLOW).append("Missing in second JSON: ").append(currentPath).append(RESET).append("\n");
-            } else {
-                compareNodes(value1, value2, currentPath, diffResult);
-            }
-        }
+        return diffResult.toString();
+    }
 
-        Iterator<Map.Entry<String, JsonNode>> secondJsonFields = node2.fields();
-        while (secondJsonFields.hasNext()) {
-            Map.Entry<String, JsonNode> field = secondJsonFields.next();
-            String fieldName = field.getKey();
-            if (!node1.has(fieldName)) {
-                String currentPath = path.isEmpty() ? fieldName : path + "." + fieldName;
-                diffResult.append(indent(currentPath))
-                        .append(GREEN).append("Extra in second JSON: ").append(currentPath).append(RESET).append("\n");
-            }
-        }
+    /**
+     * This method returns a detailed, pretty-printed diff between two JSON documents read from streams.
+     * Unlike the String and JsonNode variants, neither document is parsed into a full tree: both
+     * inputs are tokenized in lockstep and only out-of-order object fields are buffered, so the
+     * documents may be far larger than the available heap. The streams are not closed.
+     *
+     * @param json1 The stream containing the first JSON document.
+     * @param json2 The stream containing the second JSON document.
+     * @return A string containing the differences between the two JSONs.
+     * @throws IOException If reading fails or the inputs are not valid JSON.
+     */
+    public String getDiff(InputStream json1, InputStream json2) throws IOException {
+        StringBuilder diffResult = new StringBuilder();
+        diff(json1, json2, new TextDiffRenderer(diffResult, format));
+
+        return diffResult.toString();
     }
 
     /**
-     * This method compares two JSON arrays and appends the differences to the result.
+     * This method streams two JSON documents and reports each difference to the listener as it is found.
+     * The streams are not closed.
      *
-     * @param array1     The first JSON array.
-     * @param array2     The second JSON array.
-     * @param path       The current JSON path (for nested arrays).
-     * @param diffResult The StringBuilder to append the differences to.
+     * @param json1    The stream containing the first JSON document.
+     * @param json2    The stream containing the second JSON document.
+     * @param listener The listener receiving the differences.
+     * @throws IOException If reading fails or the inputs are not valid JSON.
+     * @see #getDiff(InputStream, InputStream)
      */
-    private void compareArrays(JsonNode array1, JsonNode array2, String path, StringBuilder diffResult) {
-        int maxLength = Math.max(array1.size(), array2.size());
-        for (int i = 0; i < maxLength; i++) {
-            String currentPath = path + "[" + i + "]";
-            if (i >= array1.size()) {
-                diffResult.append(indent(currentPath))
-                        .append(GREEN).append("Extra in second JSON: ").append(array2.get(i)).append(RESET).append("\n");
-            } else if (i >= array2.size()) {
-                diffResult.append(indent(currentPath))
-                        .append(YELLOW).append("Missing in second JSON: ").append(array1.get(i)).append(RESET).append("\n");
-            } else {
-                compareNodes(array1.get(i), array2.get(i), currentPath, diffResult);
+    public void diff(InputStream json1, InputStream json2, DiffListener listener) throws IOException {
+        DiffRecorder recorder = newRecorder();
+        try (JsonParser parser1 = createParser(json1);
+             JsonParser parser2 = createParser(json2)) {
+            if (recorder == null) {
+                new StreamingDiff(objectMapper, parser1, parser2, new DiffWalker(listener, options)).compare();
+                return;
             }
+            long start = System.nanoTime();
+            DiffWalker walker = new DiffWalker(recorder.record(listener), options, null, null, null, recorder);
+            new StreamingDiff(objectMapper, parser1, parser2, walker).compare();
+            recorder.parsed(bytesRead(parser1) + bytesRead(parser2), 0);
+            finish(recorder, start);
         }
     }
 
+    private static long bytesRead(JsonParser parser) {
+        JsonLocation location = parser.currentLocation();
+        return location.getByteOffset() >= 0 ? location.getByteOffset() : location.getCharOffset();
+    }
+
     /**
-     * This method returns a detailed, pretty-printed diff between two JSON strings.
+     * This method returns a detailed, pretty-printed diff between two JSON files. The files are memory-mapped
+     * and streamed as bytes, so they are never decoded into Strings nor parsed into full trees, see
+     * {@link #getDiff(InputStream, InputStream)}.
      *
-     * @param json1 The first JSON string.
-     * @param json2 The second JSON string.
+     * @param file1 The first JSON file.
+     * @param file2 The second JSON file.
      * @return A string containing the differences between the two JSONs.
-     * @throws IOException If the input strings are not valid JSON.
+     * @throws IOException If reading fails or the files are not valid JSON.
      */
-    public String getDiff(String json1, String json2) throws IOException {
-        JsonNode node1 = parseJson(json1);
-        JsonNode node2 = parseJson(json2);
+    public String getDiff(Path file1, Path file2) throws IOException {
+        StringBuilder diffResult = new StringBuilder();
+        diff(file1, file2, new TextDiffRenderer(diffResult, format));
 
-        return getDiff(node1, node2);
+        return diffResult.toString();
+    }
+
+    /**
+     * This method streams two memory-mapped JSON files and reports each difference to the listener as it is
+     * found.
+     *
+     * @param file1    The first JSON file.
+     * @param file2    The second JSON file.
+     * @param listener The listener receiving the differences.
+     * @throws IOException If reading fails or the files are not valid JSON.
+     */
+    public void diff(Path file1, Path file2, DiffListener listener) throws IOException {
+        try (InputStream json1 = new MappedFileInputStream(file1);
+             InputStream json2 = new MappedFileInputStream(file2)) {
+            diff(json1, json2, listener);
+        }
+    }
+
+    /**
+     * This method streams two memory-mapped JSON files and writes their differences to the given target as
+     * they are found, so memory use does not grow with the size of the files or of the diff.
+     *
+     * @param file1  The first JSON file.
+     * @param file2  The second JSON file.
+     * @param out    The target to write to, such as a Writer or a StringBuilder.
+     * @param format The layout of the lines.
+     * @throws IOException If reading fails, the files are not valid JSON or writing fails.
+     */
+    public void writeDiff(Path file1, Path file2, Appendable out, DiffFormat format) throws IOException {
+        try (InputStream json1 = new MappedFileInputStream(file1);
+             InputStream json2 = new MappedFileInputStream(file2)) {
+            writeDiff(json1, json2, out, format);
+        }
+    }
+
+    /**
+     * This method creates a streaming parser that leaves the underlying stream open.
+     *
+     * @param json The stream to read JSON tokens from.
+     * @return A JsonParser positioned before the first token.
+     * @throws IOException If the parser cannot be created.
+     */
+    private JsonParser createParser(InputStream json) throws IOException {
+        JsonParser parser = objectMapper.getFactory().createParser(json);
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        return parser;
     }
 
     /**
@@ -153,34 +274,480 @@ public class JsonDiff {
      */
     public String getDiff(JsonNode node1, JsonNode node2) {
         StringBuilder diffResult = new StringBuilder();
-        compareNodes(node1, node2, "", diffResult);
+        diff(node1, node2, new TextDiffRenderer(diffResult, format));
 
         return diffResult.toString();
     }
 
+    /**
+     * This method compares two JSON strings and reports each difference to the listener as it is found.
+     *
+     * @param json1    The first JSON string.
+     * @param json2    The second JSON string.
+     * @param listener The listener receiving the differences.
+     * @throws IOException If the input strings are not valid JSON.
+     */
+    public void diff(String json1, String json2, DiffListener listener) throws IOException {
+        DiffRecorder recorder = newRecorder();
+        JsonNode node1 = parseJson(json1, recorder);
+        JsonNode node2 = parseJson(json2, recorder);
+        compareTrees(node1, node2, null, null, null, listener, recorder);
+    }
+
+    /**
+     * This method compares two JsonNode objects and reports each difference to the listener as it is found.
+     * No text is formatted, so this is the cheapest way to count, filter or route differences.
+     *
+     * @param node1    The first JsonNode.
+     * @param node2    The second JsonNode.
+     * @param listener The listener receiving the differences.
+     */
+    public void diff(JsonNode node1, JsonNode node2, DiffListener listener) {
+        compareTrees(node1, node2, null, null, null, listener, newRecorder());
+    }
+
+    /**
+     * This method writes the differences between two JSON strings to the given target as they are found.
+     *
+     * @param json1  The first JSON string.
+     * @param json2  The second JSON string.
+     * @param out    The target to write to, such as a Writer or a StringBuilder.
+     * @param format The layout of the lines.
+     * @throws IOException If the input strings are not valid JSON or writing fails.
+     */
+    public void writeDiff(String json1, String json2, Appendable out, DiffFormat format) throws IOException {
+        DiffRecorder recorder = newRecorder();
+        JsonNode node1 = parseJson(json1, recorder);
+        JsonNode node2 = parseJson(json2, recorder);
+        try {
+            compareTrees(node1, node2, null, null, null, new TextDiffRenderer(out, format), recorder);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * This method writes the differences between two JsonNode objects to the given target as they are found.
+     *
+     * @param node1  The first JsonNode.
+     * @param node2  The second JsonNode.
+     * @param out    The target to write to, such as a Writer or a StringBuilder.
+     * @param format The layout of the lines.
+     * @throws IOException If writing fails.
+     */
+    public void writeDiff(JsonNode node1, JsonNode node2, Appendable out, DiffFormat format) throws IOException {
+        try {
+            diff(node1, node2, new TextDiffRenderer(out, format));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * This method streams two JSON documents and writes their differences to the given target as they are
+     * found, so neither the documents nor the diff are held in memory. The streams are not closed.
+     *
+     * @param json1  The stream containing the first JSON document.
+     * @param json2  The stream containing the second JSON document.
+     * @param out    The target to write to, such as a Writer or a StringBuilder.
+     * @param format The layout of the lines.
+     * @throws IOException If reading fails, the inputs are not valid JSON or writing fails.
+     */
+    public void writeDiff(InputStream json1, InputStream json2, Appendable out, DiffFormat format) throws IOException {
+        try {
+            diff(json1, json2, new TextDiffRenderer(out, format));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * This method returns a detailed, pretty-printed diff between an indexed baseline and a JsonNode.
+     *
+     * @param baseline The fingerprint index of the first JsonNode, see {@link FingerprintIndex#of(JsonNode)}.
+     * @param node2    The second JsonNode.
+     * @return A string containing the differences between the two JsonNodes.
+     */
+    public String getDiff(FingerprintIndex baseline, JsonNode node2) {
+        StringBuilder diffResult = new StringBuilder();
+        diff(baseline, FingerprintIndex.of(node2), new TextDiffRenderer(diffResult, format));
+
+        return diffResult.toString();
+    }
+
+    /**
+     * This method compares an indexed baseline with a JsonNode and reports each difference to the listener.
+     * The second node is indexed for this call only; the baseline index is reused as is.
+     *
+     * @param baseline The fingerprint index of the first JsonNode.
+     * @param node2    The second JsonNode.
+     * @param listener The listener receiving the differences.
+     */
+    public void diff(FingerprintIndex baseline, JsonNode node2, DiffListener listener) {
+        diff(baseline, FingerprintIndex.of(node2), listener);
+    }
+
+    /**
+     * This method compares two indexed trees and reports each difference to the listener. Objects and arrays
+     * with equal fingerprints are skipped without being walked.
+     *
+     * @param index1   The fingerprint index of the first JsonNode.
+     * @param index2   The fingerprint index of the second JsonNode.
+     * @param listener The listener receiving the differences.
+     */
+    public void diff(FingerprintIndex index1, FingerprintIndex index2, DiffListener listener) {
+        compareTrees(index1.getRoot(), index2.getRoot(), index1, index2, null, listener, newRecorder());
+    }
+
+    /**
+     * This method returns the RFC 6902 JSON Patch that turns the first JSON string into the second.
+     *
+     * @param json1 The source JSON string.
+     * @param json2 The target JSON string.
+     * @return The patch; applying it to the source yields a document equal to the target.
+     * @throws IOException If the input strings are not valid JSON.
+     */
+    public JsonPatch getPatch(String json1, String json2) throws IOException {
+        return getPatch(parseJson(json1), parseJson(json2));
+    }
+
+    /**
+     * This method returns the RFC 6902 JSON Patch that turns the first JsonNode into the second. The patch is
+     * built from the same traversal as the diff, with array elements paired by position, and consists of
+     * add, remove and replace operations. The difference limit, array alignment, ignore and include rules and
+     * value comparators of this instance's options do not apply, since a patch must contain every change.
+     *
+     * @param node1 The source JsonNode.
+     * @param node2 The target JsonNode.
+     * @return The patch; applying it to a copy of the source yields a document equal to the target.
+     */
+    public JsonPatch getPatch(JsonNode node1, JsonNode node2) {
+        JsonPatch.Generator generator = new JsonPatch.Generator();
+        new DiffWalker(generator, patchOptions).compareNodes(node1, node2);
+        return generator.toPatch();
+    }
+
+    /**
+     * This method merges two JSON strings that were both derived from a common ancestor.
+     *
+     * @param base   The common ancestor.
+     * @param ours   Our version.
+     * @param theirs Their version.
+     * @return The merged document and the conflicts, see {@link #merge(JsonNode, JsonNode, JsonNode)}.
+     * @throws IOException If an input string is not valid JSON.
+     */
+    public MergeResult merge(String base, String ours, String theirs) throws IOException {
+        return merge(parseJson(base), parseJson(ours), parseJson(theirs));
+    }
+
+    /**
+     * This method merges two JsonNodes that were both derived from a common ancestor, in one lockstep walk
+     * over the three trees. Changes made on only one side are taken over. Objects are merged field by field,
+     * and arrays element by element if neither side changed their length. Any other value changed
+     * differently on both sides is a conflict, reported with its path in the configured {@link PathFormat};
+     * the merged document keeps our value there. The other options do not apply.
+     *
+     * @param base   The common ancestor.
+     * @param ours   Our version.
+     * @param theirs Their version.
+     * @return The merged document, which shares unchanged and one-sided subtrees with ours and theirs, and
+     *         the conflicts.
+     */
+    public MergeResult merge(JsonNode base, JsonNode ours, JsonNode theirs) {
+        return new ThreeWayMerge(base, ours, theirs, options.getPathFormat()).merge();
+    }
+
+    /**
+     * This method compares two JSON strings and returns aggregate statistics of their differences per path
+     * template instead of the differences themselves, see {@link DiffSummary}.
+     *
+     * @param json1 The first JSON string.
+     * @param json2 The second JSON string.
+     * @return The summary.
+     * @throws IOException If the input strings are not valid JSON.
+     */
+    public DiffSummary summarize(String json1, String json2) throws IOException {
+        return summarize(parseJson(json1), parseJson(json2));
+    }
+
+    /**
+     * This method compares two JsonNode objects and returns aggregate statistics of their differences per
+     * path template instead of the differences themselves, see {@link DiffSummary}. The difference limit of
+     * the options does not apply and the comparison runs sequentially.
+     *
+     * @param node1 The first JsonNode.
+     * @param node2 The second JsonNode.
+     * @return The summary.
+     */
+    public DiffSummary summarize(JsonNode node1, JsonNode node2) {
+        SummaryCollector collector = new SummaryCollector();
+        DiffWalker walker = new DiffWalker(collector, summaryOptions);
+        walker.setVisitor(collector);
+        walker.compareNodes(node1, node2);
+        return collector.toSummary();
+    }
+
+    /**
+     * This method streams two memory-mapped JSON files and returns aggregate statistics of their differences
+     * per path template, see {@link DiffSummary}. Neither the documents nor their differences are held in
+     * memory, so files of any size can be summarized in memory that only depends on the number of templates.
+     * As with {@link #getDiff(InputStream, InputStream)}, arrays are compared by index.
+     *
+     * @param file1 The first JSON file.
+     * @param file2 The second JSON file.
+     * @return The summary.
+     * @throws IOException If reading fails or the files are not valid JSON.
+     */
+    public DiffSummary summarize(Path file1, Path file2) throws IOException {
+        SummaryCollector collector = new SummaryCollector();
+        try (InputStream json1 = new MappedFileInputStream(file1);
+             InputStream json2 = new MappedFileInputStream(file2);
+             JsonParser parser1 = createParser(json1);
+             JsonParser parser2 = createParser(json2)) {
+            DiffWalker walker = new DiffWalker(collector, summaryOptions);
+            walker.setVisitor(collector);
+            new StreamingDiff(objectMapper, parser1, parser2, walker).compare();
+        }
+        return collector.toSummary();
+    }
+
+    /**
+     * This method starts a session that compares two JSON strings and keeps the differences up to date as
+     * the second one is edited, see {@link DiffSession}.
+     *
+     * @param json1 The first JSON string.
+     * @param json2 The second JSON string.
+     * @return The session.
+     * @throws IOException If the input strings are not valid JSON.
+     */
+    public DiffSession session(String json1, String json2) throws IOException {
+        return new DiffSession(options, parseJson(json1), parseJson(json2));
+    }
+
+    /**
+     * This method starts a session that compares two JsonNode objects and keeps the differences up to date
+     * as the second one is edited, see {@link DiffSession}. The session takes ownership of both nodes.
+     *
+     * @param node1 The first JsonNode.
+     * @param node2 The second JsonNode.
+     * @return The session.
+     */
+    public DiffSession session(JsonNode node1, JsonNode node2) {
+        return new DiffSession(options, node1, node2);
+    }
+
+    /**
+     * This method parses a baseline JSON string once and compiles it for repeated comparisons against many
+     * candidates, see {@link PreparedBaseline}.
+     *
+     * @param baseline The baseline JSON string.
+     * @return The immutable, thread-safe compiled baseline.
+     * @throws IOException If the input string is not valid JSON.
+     */
+    public PreparedBaseline prepare(String baseline) throws IOException {
+        return new PreparedBaseline(this, parseJson(baseline));
+    }
+
+    /**
+     * This method compiles a baseline JsonNode for repeated comparisons against many candidates. The node is
+     * copied, so later changes to it do not affect the compiled baseline.
+     *
+     * @param baseline The baseline JsonNode.
+     * @return The immutable, thread-safe compiled baseline.
+     */
+    public PreparedBaseline prepare(JsonNode baseline) {
+        return new PreparedBaseline(this, baseline.deepCopy());
+    }
+
+    DiffOptions getOptions() {
+        return options;
+    }
+
+    DiffFormat getFormat() {
+        return format;
+    }
+
+    ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * @return A collector for the measurements of one comparison, or null if metrics are disabled.
+     */
+    DiffRecorder newRecorder() {
+        return metrics != null ? new DiffRecorder() : null;
+    }
+
+    /**
+     * This method compares two trees and reports the measurements of the comparison, if metrics are enabled.
+     *
+     * @param node1    The first JsonNode.
+     * @param node2    The second JsonNode.
+     * @param index1   The fingerprint index of the first tree, or null.
+     * @param index2   The fingerprint index of the second tree, or null.
+     * @param layout   The precomputed tables of the first tree, or null.
+     * @param listener The listener receiving the differences.
+     * @param recorder The collector of measurements, or null.
+     */
+    void compareTrees(JsonNode node1, JsonNode node2, FingerprintIndex index1, FingerprintIndex index2,
+                      BaselineLayout layout, DiffListener listener, DiffRecorder recorder) {
+        if (recorder == null) {
+            new DiffWalker(listener, options, index1, index2, layout, null).compareNodes(node1, node2);
+            return;
+        }
+        long start = System.nanoTime();
+        new DiffWalker(recorder.record(listener), options, index1, index2, layout, recorder).compareNodes(node1, node2);
+        finish(recorder, start);
+    }
+
+    private void finish(DiffRecorder recorder, long start) {
+        recorder.compared(System.nanoTime() - start);
+        metrics.onComparison(recorder.toStats());
+    }
+
+    /**
+     * This method returns the differences between two JSON strings as a list of entries.
+     *
+     * @param json1 The first JSON string.
+     * @param json2 The second JSON string.
+     * @return The differences, in document order.
+     * @throws IOException If the input strings are not valid JSON.
+     */
+    public List<DiffEntry> getDifferences(String json1, String json2) throws IOException {
+        List<DiffEntry> differences = new ArrayList<>();
+        diff(json1, json2, differences::add);
+        return differences;
+    }
+
+    /**
+     * This method returns the differences between two JsonNode objects as a list of entries.
+     *
+     * @param node1 The first JsonNode.
+     * @param node2 The second JsonNode.
+     * @return The differences, in document order.
+     */
+    public List<DiffEntry> getDifferences(JsonNode node1, JsonNode node2) {
+        List<DiffEntry> differences = new ArrayList<>();
+        diff(node1, node2, differences::add);
+        return differences;
+    }
+
     /**
      * This method checks if two JSON strings are equal.
      *
+     * No trees are built: identical strings are only tokenized once to check that they are valid JSON, and
+     * otherwise both strings
+     * are tokenized in lockstep until the first difference, so unequal inputs that differ early are
+     * rejected without reading the rest of the documents. If some arrays are compared as
+     * {@link ArrayAlignment#UNORDERED} multisets, both strings are parsed instead.
+     *
      * @param json1 The first JSON string.
      * @param json2 The second JSON string.
      * @return True if the JSONs are equal, false otherwise.
      * @throws IOException If the input strings are not valid JSON.
      */
     public boolean isEqual(String json1, String json2) throws IOException {
-        JsonNode node1 = parseJson(json1);
-        JsonNode node2 = parseJson(json2);
-        return isEqual(node1, node2);
+        if (json1.equals(json2)) {
+            validate(json1);
+            return true;
+        }
+        if (cache != null) {
+            return cache.get(new DiffCache.Key(this, DiffCache.Operation.EQUAL, json1, json2),
+                    () -> computeEqual(json1, json2));
+        }
+        return computeEqual(json1, json2);
     }
 
     /**
-     * This method checks if two JsonNode objects are equal.
+     * This method reads the value of a JSON string token by token without building a tree, failing the way
+     * parsing it would.
+     *
+     * @param json The JSON string.
+     * @throws IOException If the string is not valid JSON.
+     */
+    private void validate(String json) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            if (parser.nextToken() != null) {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private boolean computeEqual(String json1, String json2) throws IOException {
+        if (options.hasUnorderedArrays()) {
+            return isEqual(parseJson(json1), parseJson(json2));
+        }
+        try (JsonParser parser1 = objectMapper.getFactory().createParser(json1);
+             JsonParser parser2 = objectMapper.getFactory().createParser(json2)) {
+            DiffWalker walker = new DiffWalker(entry -> { }, firstDifference);
+            new StreamingDiff(objectMapper, parser1, parser2, walker).compare();
+            return !walker.hasDifferences();
+        }
+    }
+
+    /**
+     * This method checks if two JSON files are equal. Both memory-mapped files are tokenized in lockstep
+     * until the first difference, unless some arrays are compared as {@link ArrayAlignment#UNORDERED}
+     * multisets, in which case both files are parsed.
+     *
+     * @param file1 The first JSON file.
+     * @param file2 The second JSON file.
+     * @return True if the JSONs are equal, false otherwise.
+     * @throws IOException If reading fails or the files are not valid JSON.
+     */
+    public boolean isEqual(Path file1, Path file2) throws IOException {
+        if (options.hasUnorderedArrays()) {
+            try (InputStream json1 = new MappedFileInputStream(file1);
+                 InputStream json2 = new MappedFileInputStream(file2)) {
+                return isEqual(objectMapper.readTree(json1), objectMapper.readTree(json2));
+            }
+        }
+        try (InputStream json1 = new MappedFileInputStream(file1);
+             InputStream json2 = new MappedFileInputStream(file2);
+             JsonParser parser1 = createParser(json1);
+             JsonParser parser2 = createParser(json2)) {
+            DiffWalker walker = new DiffWalker(entry -> { }, firstDifference);
+            new StreamingDiff(objectMapper, parser1, parser2, walker).compare();
+            return !walker.hasDifferences();
+        }
+    }
+
+    /**
+     * This method checks if two JsonNode objects are equal. With ignore, include or value comparator rules,
+     * the trees are walked until the first difference that the rules do not excuse.
      *
      * @param node1 The first JsonNode.
      * @param node2 The second JsonNode.
      * @return True if the JsonNodes are equal, false otherwise.
      */
     public boolean isEqual(JsonNode node1, JsonNode node2) {
-        return node1.equals(node2);
+        if (!options.hasRules()) {
+            return node1.equals(node2);
+        }
+        DiffWalker walker = new DiffWalker(entry -> { }, firstDifference);
+        walker.compareNodes(node1, node2);
+        return !walker.hasDifferences();
+    }
+
+    /**
+     * This method checks if an indexed baseline is equal to a JsonNode by comparing their fingerprints first,
+     * so a baseline with a different fingerprint is rejected without being walked. Matching fingerprints are
+     * confirmed with {@link JsonNode#equals}, since two different trees may share a 64-bit hash. With
+     * ignore, include or value comparator rules, the fingerprints only decide equal subtrees and the rest is
+     * walked.
+     *
+     * @param baseline The fingerprint index of the first JsonNode.
+     * @param node2    The second JsonNode.
+     * @return True if the JsonNodes are equal, false otherwise.
+     */
+    public boolean isEqual(FingerprintIndex baseline, JsonNode node2) {
+        if (!options.hasRules()) {
+            return baseline.fingerprint(baseline.getRoot()) == StructuralHash.of(node2)
+                    && baseline.getRoot().equals(node2);
+        }
+        DiffWalker walker = new DiffWalker(entry -> { }, firstDifference, baseline, FingerprintIndex.of(node2), null, null);
+        walker.compareNodes(baseline.getRoot(), node2);
+        return !walker.hasDifferences();
     }
 
     /**
@@ -221,35 +788,109 @@ public class JsonDiff {
     }
 
     /**
-     * This method checks if the first JsonNode is a subset of the second JsonNode.
+     * This method checks if the first JsonNode is a subset of the second JsonNode. The check is recursive:
+     * every field of a nested object must be contained in the same field of the other object, and arrays
+     * are contained according to the configured {@link ArrayContainment}. It stops at the first violation.
      *
      * @param node1 The first JsonNode.
      * @param node2 The second JsonNode.
      * @return True if node1 is a subset of node2, false otherwise.
      */
     public boolean isSubset(JsonNode node1, JsonNode node2) {
-        Iterator<Map.Entry<String, JsonNode>> fields = node1.fields();
-        while (fields.hasNext()) {
-            Map.Entry<String, JsonNode> field = fields.next();
-            String key = field.getKey();
-            JsonNode value1 = field.getValue();
-            JsonNode value2 = node2.get(key);
-
-            if (value2 == null || !value1.equals(value2)) {
-                return false;
-            }
-        }
-        return true;
+        return new SubsetCheck(options.getArrayContainment()).isSubset(node1, node2);
     }
 
     /**
-     * This method adds indentation for pretty-printed output.
-     *
-     * @param path The current JSON path.
-     * @return A string with proper indentation.
+     * Builder for {@link JsonDiff}.
      */
-    private String indent(String path) {
-        int depth = path.isEmpty() ? 0 : path.split("\\.").length + path.split("\\[").length - 1;
-        return "  ".repeat(depth);
+    public static final class Builder {
+
+        private DiffOptions options = DiffOptions.DEFAULT;
+        private ObjectMapper objectMapper;
+        private DiffFormat format = DiffFormat.ANSI;
+        private DiffMetricsListener metrics;
+        private DiffCache cache;
+
+        private Builder() {
+        }
+
+        /**
+         * @param options The options applied to every comparison. Defaults to {@link DiffOptions#DEFAULT}.
+         * @return This builder.
+         */
+        public Builder options(DiffOptions options) {
+            this.options = Objects.requireNonNull(options, "options");
+            return this;
+        }
+
+        /**
+         * This method sets the mapper used to parse documents and read buffered values, e.g. one configured
+         * with number or duplicate-key handling that matches the producers of the documents. The mapper must
+         * not be reconfigured once it is in use.
+         *
+         * @param objectMapper The mapper. Defaults to a shared mapper with Jackson's default settings.
+         * @return This builder.
+         */
+        public Builder objectMapper(ObjectMapper objectMapper) {
+            this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper");
+            return this;
+        }
+
+        /**
+         * This method sets the factory used to create parsers, e.g. one with field-name canonicalization
+         * or buffer recycling tuned for the expected documents and threads. A mapper is created around a
+         * {@link JsonFactory#copy() copy} of it, so the caller's factory keeps its own codec.
+         *
+         * @param jsonFactory The factory.
+         * @return This builder.
+         */
+        public Builder jsonFactory(JsonFactory jsonFactory) {
+            return objectMapper(new ObjectMapper(Objects.requireNonNull(jsonFactory, "jsonFactory").copy()));
+        }
+
+        /**
+         * @param format The layout of the diffs returned as Strings by {@link JsonDiff#getDiff} and
+         *               {@link PreparedBaseline#diffAgainst(String)}. Defaults to {@link DiffFormat#ANSI}.
+         * @return This builder.
+         */
+        public Builder format(DiffFormat format) {
+            this.format = Objects.requireNonNull(format, "format");
+            return this;
+        }
+
+        /**
+         * This method enables measurements of every comparison that reports differences, i.e. the diff,
+         * getDiff, writeDiff and getDifferences methods and prepared baselines. Each comparison then counts
+         * the values it visits and times its phases and largest subtrees; without a listener, none of this
+         * is done. Use {@link DiffMetrics} to add up the measurements and expose them through JMX.
+         *
+         * @param metrics The listener receiving the measurements, or null to disable metrics. Defaults to null.
+         * @return This builder.
+         */
+        public Builder metrics(DiffMetricsListener metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * This method enables caching of the results of {@link JsonDiff#getDiff(String, String)} and
+         * {@link JsonDiff#isEqual(String, String)}, so that comparing the same two strings again only costs
+         * digesting them. Results served from the cache are not reported to the metrics listener.
+         *
+         * @param cache The cache, which may be shared with other instances, or null to disable caching.
+         *              Defaults to null.
+         * @return This builder.
+         */
+        public Builder cache(DiffCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * @return The immutable, thread-safe JsonDiff.
+         */
+        public JsonDiff build() {
+            return new JsonDiff(this);
+        }
     }
 }
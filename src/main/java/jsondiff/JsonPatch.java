@@ -0,0 +1,343 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An RFC 6902 JSON Patch: an ordered list of operations that turns one JSON document into another.
+ *
+ * Patches are generated by {@link JsonDiff#getPatch(JsonNode, JsonNode)} from the same traversal that
+ * produces the diff, so a patch holds only the changed values and is typically far smaller than the
+ * document. Applying a patch walks only the paths it touches, so its cost depends on the size of the patch
+ * and the depth of its paths, not on the size of the document.
+ *
+ * A patch is immutable and can be applied to any number of documents, also concurrently.
+ */
+public final class JsonPatch {
+
+    private final List<PatchOperation> operations;
+
+    private JsonPatch(List<PatchOperation> operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * @param operations The operations, in the order they are to be applied.
+     * @return The patch.
+     */
+    public static JsonPatch of(List<PatchOperation> operations) {
+        return new JsonPatch(Collections.unmodifiableList(new ArrayList<>(operations)));
+    }
+
+    /**
+     * This method reads a JSON patch document.
+     *
+     * @param json An array of operation objects.
+     * @return The patch.
+     * @throws IllegalArgumentException If the document is not a valid JSON patch.
+     */
+    public static JsonPatch fromJson(JsonNode json) {
+        if (!json.isArray()) {
+            throw new IllegalArgumentException("A JSON patch must be an array, was " + json.getNodeType());
+        }
+        List<PatchOperation> operations = new ArrayList<>(json.size());
+        for (JsonNode operation : json) {
+            operations.add(PatchOperation.fromJson(operation));
+        }
+        return new JsonPatch(Collections.unmodifiableList(operations));
+    }
+
+    /**
+     * @return The operations, in the order they are applied.
+     */
+    public List<PatchOperation> getOperations() {
+        return operations;
+    }
+
+    /**
+     * @return True if the patch has no operations.
+     */
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    /**
+     * @return The patch as a JSON patch document.
+     */
+    public ArrayNode toJson() {
+        ArrayNode json = JsonNodeFactory.instance.arrayNode(operations.size());
+        for (PatchOperation operation : operations) {
+            json.add(operation.toJson());
+        }
+        return json;
+    }
+
+    /**
+     * This method applies the patch to a document in place. Values are copied into the document, so the
+     * patch stays reusable. Application is not atomic: if an operation fails, the operations before it
+     * remain applied, so callers that need all-or-nothing semantics should apply the patch to a copy.
+     *
+     * @param target The document to modify.
+     * @return The patched document: the target itself, unless an operation replaced the root.
+     * @throws IllegalArgumentException If an operation cannot be applied, e.g. because its path does not exist
+     *                                  or a test operation fails.
+     */
+    public JsonNode apply(JsonNode target) {
+        JsonNode root = target;
+        for (PatchOperation operation : operations) {
+            root = apply(root, operation);
+        }
+        return root;
+    }
+
+    private static JsonNode apply(JsonNode root, PatchOperation operation) {
+        String[] path = tokens(operation.getPath());
+        switch (operation.getOp()) {
+            case ADD:
+                return add(root, path, operation.value().deepCopy(), operation);
+            case REMOVE:
+                remove(root, path, operation);
+                return root;
+            case REPLACE:
+                return replace(root, path, operation.value().deepCopy(), operation);
+            case MOVE: {
+                String[] from = tokens(operation.getFrom());
+                if (isPrefix(from, path) && from.length < path.length) {
+                    throw failure(operation, "cannot move a value into itself");
+                }
+                return add(root, path, remove(root, from, operation), operation);
+            }
+            case COPY:
+                return add(root, path, resolve(root, tokens(operation.getFrom()), operation).deepCopy(), operation);
+            default:
+                if (!resolve(root, path, operation).equals(operation.value())) {
+                    throw failure(operation, "test failed");
+                }
+                return root;
+        }
+    }
+
+    private static JsonNode add(JsonNode root, String[] path, JsonNode value, PatchOperation operation) {
+        if (path.length == 0) {
+            return value;
+        }
+        JsonNode parent = resolveParent(root, path, operation);
+        String last = path[path.length - 1];
+        if (parent.isObject()) {
+            ((ObjectNode) parent).set(last, value);
+        } else if (last.equals("-")) {
+            ((ArrayNode) parent).add(value);
+        } else {
+            int index = index(last, parent.size(), operation);
+            ((ArrayNode) parent).insert(index, value);
+        }
+        return root;
+    }
+
+    private static JsonNode remove(JsonNode root, String[] path, PatchOperation operation) {
+        if (path.length == 0) {
+            throw failure(operation, "cannot remove the root");
+        }
+        JsonNode parent = resolveParent(root, path, operation);
+        String last = path[path.length - 1];
+        JsonNode removed;
+        if (parent.isObject()) {
+            removed = ((ObjectNode) parent).remove(last);
+        } else {
+            removed = ((ArrayNode) parent).remove(index(last, parent.size() - 1, operation));
+        }
+        if (removed == null) {
+            throw failure(operation, "no value at " + String.join("/", path));
+        }
+        return removed;
+    }
+
+    private static JsonNode replace(JsonNode root, String[] path, JsonNode value, PatchOperation operation) {
+        if (path.length == 0) {
+            return value;
+        }
+        JsonNode parent = resolveParent(root, path, operation);
+        String last = path[path.length - 1];
+        if (parent.isObject()) {
+            if (!parent.has(last)) {
+                throw failure(operation, "no field " + last);
+            }
+            ((ObjectNode) parent).set(last, value);
+        } else {
+            ((ArrayNode) parent).set(index(last, parent.size() - 1, operation), value);
+        }
+        return root;
+    }
+
+    private static JsonNode resolveParent(JsonNode root, String[] path, PatchOperation operation) {
+        JsonNode parent = resolve(root, path, path.length - 1, operation);
+        if (!parent.isContainerNode()) {
+            throw failure(operation, "parent is not an object or array");
+        }
+        return parent;
+    }
+
+    private static JsonNode resolve(JsonNode root, String[] path, PatchOperation operation) {
+        return resolve(root, path, path.length, operation);
+    }
+
+    /**
+     * This method follows the first {@code length} tokens of a path from the root.
+     */
+    private static JsonNode resolve(JsonNode root, String[] path, int length, PatchOperation operation) {
+        JsonNode node = root;
+        for (int i = 0; i < length; i++) {
+            JsonNode child = null;
+            if (node.isObject()) {
+                child = node.get(path[i]);
+            } else if (node.isArray()) {
+                child = node.get(index(path[i], node.size() - 1, operation));
+            }
+            if (child == null) {
+                throw failure(operation, "no value at segment " + i);
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * This method parses an array index token as defined by RFC 6901: digits without leading zeros.
+     *
+     * @param token The token.
+     * @param max   The largest valid index.
+     * @param operation The operation, for error messages.
+     * @return The index.
+     */
+    private static int index(String token, int max, PatchOperation operation) {
+        int index = 0;
+        boolean valid = !token.isEmpty() && token.length() <= 9 && (token.length() == 1 || token.charAt(0) != '0');
+        for (int i = 0; valid && i < token.length(); i++) {
+            char c = token.charAt(i);
+            valid = c >= '0' && c <= '9';
+            index = index * 10 + (c - '0');
+        }
+        if (!valid || index > max) {
+            throw failure(operation, "invalid array index " + token);
+        }
+        return index;
+    }
+
+    /**
+     * This method splits a JSON Pointer into its unescaped reference tokens.
+     *
+     * @param pointer The JSON Pointer, empty for the root.
+     * @return The tokens.
+     */
+    static String[] tokens(String pointer) {
+        if (pointer.isEmpty()) {
+            return new String[0];
+        }
+        if (pointer.charAt(0) != '/') {
+            throw new IllegalArgumentException("Invalid JSON Pointer: " + pointer);
+        }
+        List<String> tokens = new ArrayList<>();
+        int start = 1;
+        for (int i = 1; i <= pointer.length(); i++) {
+            if (i == pointer.length() || pointer.charAt(i) == '/') {
+                String token = pointer.substring(start, i);
+                if (token.indexOf('~') >= 0) {
+                    token = token.replace("~1", "/").replace("~0", "~");
+                }
+                tokens.add(token);
+                start = i + 1;
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private static boolean isPrefix(String[] prefix, String[] path) {
+        if (prefix.length > path.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (!prefix[i].equals(path[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static IllegalArgumentException failure(PatchOperation operation, String reason) {
+        return new IllegalArgumentException("Cannot apply " + operation + ": " + reason);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof JsonPatch && operations.equals(((JsonPatch) o).operations);
+    }
+
+    @Override
+    public int hashCode() {
+        return operations.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toJson().toString();
+    }
+
+    /**
+     * Listener that turns the differences of an index-aligned comparison with JSON Pointer paths into patch
+     * operations. Missing array elements are always reported as a run at the end of their array, in
+     * ascending order; they are buffered and emitted in descending order so that every removal still
+     * refers to the original index.
+     */
+    static final class Generator implements DiffListener {
+
+        private final List<PatchOperation> operations = new ArrayList<>();
+        private final List<DiffEntry> removals = new ArrayList<>();
+
+        @Override
+        public void onDifference(DiffEntry entry) {
+            boolean arrayRemoval = entry.getKind() == DiffEntry.Kind.MISSING && entry.getDiffPath().isArrayElement();
+            if (!removals.isEmpty()
+                    && !(arrayRemoval && entry.getDiffPath().isSibling(removals.get(0).getDiffPath()))) {
+                flushRemovals();
+            }
+            switch (entry.getKind()) {
+                case MISSING:
+                    if (arrayRemoval) {
+                        removals.add(entry);
+                    } else {
+                        operations.add(PatchOperation.remove(entry.getPath()));
+                    }
+                    break;
+                case EXTRA:
+                    operations.add(PatchOperation.add(entry.getPath(), entry.getRight()));
+                    break;
+                case VALUE_MISMATCH:
+                    operations.add(PatchOperation.replace(entry.getPath(), entry.getRight()));
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected difference in an index-aligned comparison: " + entry);
+            }
+        }
+
+        private void flushRemovals() {
+            for (int i = removals.size() - 1; i >= 0; i--) {
+                operations.add(PatchOperation.remove(removals.get(i).getPath()));
+            }
+            removals.clear();
+        }
+
+        /**
+         * @return The patch of all differences received so far.
+         */
+        JsonPatch toPatch() {
+            flushRemovals();
+            return new JsonPatch(Collections.unmodifiableList(operations));
+        }
+    }
+}
@@ -1,109 +1,153 @@
 package jsondiff;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
 
 /**
- * Demo class to showcase the use of the methods in JsonDiff class
+ * Command line tool that compares two JSON files.
+ *
+ * Usage: {@code jsondiff.Main [--format ansi|plain|compact] [--limit N] [--pointer] FILE1 FILE2}
+ * or {@code jsondiff.Main [--limit N] [--pointer] --serve PORT}
+ *
+ * The files are memory-mapped and streamed, so files of many gigabytes can be compared with a small heap,
+ * and the differences are written to standard output as they are found. Like diff(1), the exit status is 0
+ * if the files are equal, 1 if they differ and 2 if an error occurred. With {@code --serve}, the tool instead
+ * runs a {@link DiffServer} on localhost until it is terminated.
  */
 public class Main {
 
-    public static void main(String[] args) {
-        JsonDiff jsonDiff = new JsonDiff();
-
-        String jsonString1 = "{\"name\": \"John\", \"age\": 25}";
-        String jsonString2 = "{\"name\": \"John\", \"age\": 26, \"country\": \"USA\"}";
-
-        String nestedJson1 = """
-                {
-                  "person": {
-                    "name": "John",
-                    "age": 25,
-                    "address": {
-                      "city": "New York",
-                      "zip": "10001"
-                    }
-                  }
-                }
-                """;
-
-        String nestedJson2 = """
-                {
-                  "person": {
-                    "name": "John",
-                    "age": 25,
-                    "address": {
-                      "city": "Los Angeles",
-                      "zip": "90001"
-                    }
-                  }
-                }
-                """;
+    static final int EQUAL = 0;
+    static final int DIFFERENT = 1;
+    static final int ERROR = 2;
 
-        String arrayJson1 = """
-                {
-                  "skills": ["coding", "design", "testing"]
-                }
-                """;
-
-        String arrayJson2 = """
-                {
-                  "skills": ["coding", "writing"]
-                }
-                """;
+    private static final String USAGE = "Usage: jsondiff.Main [--format ansi|plain|compact] [--limit N] [--pointer] FILE1 FILE2\n"
+            + "       jsondiff.Main [--limit N] [--pointer] --serve PORT\n"
+            + "  -f, --format   Output format. Defaults to ansi on a terminal and plain otherwise.\n"
+            + "  -n, --limit    Stop after N differences.\n"
+            + "  -p, --pointer  Print paths as JSON Pointers instead of dotted paths.\n"
+            + "  -s, --serve    Serve comparisons over HTTP on localhost instead of comparing files.\n"
+            + "Exit status is 0 if the files are equal, 1 if they differ and 2 on errors.";
 
+    public static void main(String[] args) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024);
+        int status = run(args, out, System.err, System.console() != null);
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode jsonNode1 = mapper.readTree(jsonString1);
-            JsonNode jsonNode2 = mapper.readTree(jsonString2);
-
-            System.out.println("JsonNode Comparison ");
-            System.out.println(jsonDiff.getDiff(jsonNode1, jsonNode2));
-
-            boolean isNodesNotEqual = jsonDiff.isNotEqual(jsonNode1, jsonNode2);
-            System.out.println("Are JsonNode objects not equal? " + isNodesNotEqual);
-            
+            out.flush();
         } catch (IOException e) {
-            System.err.println("Error parsing JSON nodes: " + e.getMessage());
+            System.err.println("Error writing output: " + e.getMessage());
+            status = ERROR;
         }
+        System.exit(status);
+    }
 
-        String identicalJson1 = "{\"name\": \"Bob\", \"age\": 30}";
-        String identicalJson2 = "{\"name\": \"Bob\", \"age\": 30}";
-
+    /**
+     * This method runs the tool.
+     *
+     * @param args     The command line arguments.
+     * @param out      The target for the differences.
+     * @param err      The target for usage and error messages.
+     * @param terminal True if the output goes to a terminal, which selects colored output by default.
+     * @return The exit status.
+     */
+    static int run(String[] args, Appendable out, PrintStream err, boolean terminal) {
+        DiffFormat format = terminal ? DiffFormat.ANSI : DiffFormat.PLAIN;
+        DiffOptions.Builder options = DiffOptions.builder();
+        Path[] files = new Path[2];
+        int fileCount = 0;
+        int port = -1;
         try {
-            System.out.println("\nSimple JSON Comparison ");
-            System.out.println(jsonDiff.getDiff(jsonString1, jsonString2));
-
-            System.out.println("\nNested JSON Object Comparison ");
-            System.out.println(jsonDiff.getDiff(nestedJson1, nestedJson2));
-
-            System.out.println("\nJSON Array Comparison ");
-            System.out.println(jsonDiff.getDiff(arrayJson1, arrayJson2));
-
-            System.out.println("\nIdentical JSON Comparison ");
-            String identicalDiff = jsonDiff.getDiff(identicalJson1, identicalJson2);
-            if (identicalDiff.isEmpty()) {
-                System.out.println("No differences found!");
-            } else {
-                System.out.println(identicalDiff);
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-h":
+                    case "--help":
+                        err.println(USAGE);
+                        return EQUAL;
+                    case "-f":
+                    case "--format":
+                        format = DiffFormat.valueOf(value(args, ++i).toUpperCase(Locale.ROOT));
+                        break;
+                    case "-n":
+                    case "--limit":
+                        options.maxDifferences(Integer.parseInt(value(args, ++i)));
+                        break;
+                    case "-p":
+                    case "--pointer":
+                        options.pathFormat(PathFormat.JSON_POINTER);
+                        break;
+                    case "-s":
+                    case "--serve":
+                        port = Integer.parseInt(value(args, ++i));
+                        break;
+                    default:
+                        if (args[i].startsWith("-") || fileCount == 2) {
+                            throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                        }
+                        files[fileCount++] = Path.of(args[i]);
+                        break;
+                }
             }
+            if (port >= 0 ? fileCount != 0 : fileCount != 2) {
+                throw new IllegalArgumentException(port >= 0 ? "Expected no files with --serve" : "Expected two files");
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return ERROR;
+        }
+        if (port >= 0) {
+            return serve(port, options.build(), err);
+        }
 
-            boolean isEqual = jsonDiff.isEqual(jsonString1, jsonString2);
-            System.out.println("\nJSON String 1 " + jsonString1);
-            System.out.println("JSON String 2 " + jsonString2);
-
-            System.out.println("\nAre JSONs equal? " + isEqual);
+        try {
+            boolean[] different = new boolean[1];
+            TextDiffRenderer renderer = new TextDiffRenderer(out, format);
+            new JsonDiff(options.build()).diff(files[0], files[1], entry -> {
+                different[0] = true;
+                renderer.onDifference(entry);
+            });
+            return different[0] ? DIFFERENT : EQUAL;
+        } catch (IOException | UncheckedIOException e) {
+            err.println("Error comparing " + files[0] + " and " + files[1] + ": " + e.getMessage());
+            return ERROR;
+        }
+    }
 
-            boolean isSubset = jsonDiff.isSubset(jsonString1, jsonString2);
-            System.out.println("Is JSON1 a subset of JSON2? " + isSubset);
+    /**
+     * This method runs a server until the JVM is terminated.
+     *
+     * @param port    The port to listen on.
+     * @param options The comparison options.
+     * @param err     The target for status and error messages.
+     * @return The exit status, if the server could not be started or the thread is interrupted.
+     */
+    private static int serve(int port, DiffOptions options, PrintStream err) {
+        try {
+            DiffServer server = DiffServer.builder().jsonDiff(new JsonDiff(options)).port(port).build().start();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            err.println("Listening on http://localhost:" + server.getPort());
+            new CountDownLatch(1).await();
+            return EQUAL;
+        } catch (IOException | IllegalArgumentException e) {
+            err.println("Error starting the server: " + e.getMessage());
+            return ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EQUAL;
+        }
+    }
 
-            boolean isNotEqual = jsonDiff.isNotEqual(jsonString1, jsonString2);
-            System.out.println("Are JSONs not equal? " + isNotEqual);
-            
-        } catch (IOException e) {
-            System.err.println("Error generating JSON diff: " + e.getMessage());
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
         }
+        return args[i];
     }
 }
@@ -0,0 +1,85 @@
+package jsondiff;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * InputStream over a memory-mapped file of any size.
+ *
+ * The file is mapped in windows of at most {@link #WINDOW_SIZE} bytes by default, one at a time, so files larger than
+ * the 2 GB limit of a single mapping can be read and only the pages currently being parsed need to be
+ * resident. Bytes are copied straight from the page cache into the reader's buffer without being decoded
+ * into Strings on the way. A window is released by the garbage collector once the stream has moved past it.
+ */
+final class MappedFileInputStream extends InputStream {
+
+    static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    MappedFileInputStream(Path path) throws IOException {
+        this(path, WINDOW_SIZE);
+    }
+
+    MappedFileInputStream(Path path, long windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return ensureWindow() ? window.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureWindow()) {
+            return -1;
+        }
+        int count = Math.min(length, window.remaining());
+        window.get(buffer, offset, count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return window != null ? window.remaining() : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * This method maps the next window once the current one has been read completely.
+     *
+     * @return False at the end of the file.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private boolean ensureWindow() throws IOException {
+        if (window != null && window.hasRemaining()) {
+            return true;
+        }
+        long nextStart = window == null ? windowStart : windowStart + window.capacity();
+        if (nextStart >= size) {
+            return false;
+        }
+        window = channel.map(FileChannel.MapMode.READ_ONLY, nextStart, Math.min(windowSize, size - nextStart));
+        windowStart = nextStart;
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A value that was changed differently on both sides of a three-way merge, see {@link JsonDiff#merge}.
+ *
+ * Absent values are null, so a field that was deleted on one side and modified on the other has a null
+ * {@link #getOurs()} or {@link #getTheirs()}, and a field added on both sides has a null {@link #getBase()}.
+ */
+public final class MergeConflict {
+
+    private final DiffPath path;
+    private final PathFormat pathFormat;
+    private final JsonNode base;
+    private final JsonNode ours;
+    private final JsonNode theirs;
+
+    MergeConflict(DiffPath path, PathFormat pathFormat, JsonNode base, JsonNode ours, JsonNode theirs) {
+        this.path = path;
+        this.pathFormat = pathFormat;
+        this.base = base;
+        this.ours = ours;
+        this.theirs = theirs;
+    }
+
+    /**
+     * @return The JSON path of the conflicting value in the configured {@link PathFormat}.
+     */
+    public String getPath() {
+        return path.format(pathFormat);
+    }
+
+    /**
+     * @return The JSON path of the conflicting value as segments.
+     */
+    public DiffPath getDiffPath() {
+        return path;
+    }
+
+    /**
+     * @return The value in the common ancestor, or null if it was absent.
+     */
+    public JsonNode getBase() {
+        return base;
+    }
+
+    /**
+     * @return The value on our side, or null if it was deleted.
+     */
+    public JsonNode getOurs() {
+        return ours;
+    }
+
+    /**
+     * @return The value on their side, or null if it was deleted.
+     */
+    public JsonNode getTheirs() {
+        return theirs;
+    }
+
+    @Override
+    public String toString() {
+        return getPath() + ": base " + base + ", ours " + ours + ", theirs " + theirs;
+    }
+}
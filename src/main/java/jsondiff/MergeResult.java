@@ -0,0 +1,43 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a three-way merge, see {@link JsonDiff#merge}.
+ */
+public final class MergeResult {
+
+    private final JsonNode merged;
+    private final List<MergeConflict> conflicts;
+
+    MergeResult(JsonNode merged, List<MergeConflict> conflicts) {
+        this.merged = merged;
+        this.conflicts = Collections.unmodifiableList(conflicts);
+    }
+
+    /**
+     * @return True if both sides changed the same value differently.
+     */
+    public boolean hasConflicts() {
+        return !conflicts.isEmpty();
+    }
+
+    /**
+     * @return The conflicts, in document order of our side.
+     */
+    public List<MergeConflict> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * @return The merged document, which shares the subtrees it takes whole with the inputs, so it must be
+     * copied before either is modified. Where there are conflicts it holds
+     * our value, or lacks the value if we deleted it; it is null only if both sides deleted the root.
+     */
+    public JsonNode getMerged() {
+        return merged;
+    }
+}
@@ -0,0 +1,37 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Value comparator that can also hash a scalar value so that values it considers equivalent, and values that
+ * are exactly equal, hash to the same value. The built-in comparators of {@link ValueComparator} are of this
+ * kind, which lets unordered arrays bucket their elements under the rules instead of probing every pair.
+ */
+final class NormalizedComparator implements ValueComparator {
+
+    static final long NUMBER_SEED = 0x27D4EB2F165667C5L;
+    static final long TEXT_SEED = 0x85EBCA77C2B2AE63L;
+
+    private final ValueComparator comparator;
+    private final ToLongFunction<JsonNode> normalizer;
+
+    NormalizedComparator(ValueComparator comparator, ToLongFunction<JsonNode> normalizer) {
+        this.comparator = comparator;
+        this.normalizer = normalizer;
+    }
+
+    @Override
+    public boolean equivalent(JsonNode left, JsonNode right) {
+        return comparator.equivalent(left, right);
+    }
+
+    /**
+     * @param value A scalar value.
+     * @return The hash of the value, equal for all values this comparator considers equivalent.
+     */
+    long hash(JsonNode value) {
+        return normalizer.applyAsLong(value);
+    }
+}
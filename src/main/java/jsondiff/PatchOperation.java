@@ -0,0 +1,222 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * A single operation of a {@link JsonPatch}, as defined by RFC 6902.
+ *
+ * Paths are JSON Pointers (RFC 6901). Operations are immutable: the value is copied when the operation is
+ * created and again whenever it is inserted into a document, so applying an operation never shares nodes
+ * between the patch and the target.
+ */
+public final class PatchOperation {
+
+    /**
+     * The operations of RFC 6902.
+     */
+    public enum Op {
+        /** Inserts a value into an array or sets an object field. */
+        ADD,
+        /** Removes the value at the path, which must exist. */
+        REMOVE,
+        /** Replaces the value at the path, which must exist. */
+        REPLACE,
+        /** Removes the value at the from path and adds it at the path. */
+        MOVE,
+        /** Adds a copy of the value at the from path at the path. */
+        COPY,
+        /** Checks that the value at the path equals the given value. */
+        TEST;
+
+        /**
+         * @return The name of the operation in a JSON patch document, e.g. {@code add}.
+         */
+        public String getName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Op op;
+    private final String path;
+    private final String from;
+    private final JsonNode value;
+
+    private PatchOperation(Op op, String path, String from, JsonNode value) {
+        this.op = op;
+        this.path = Objects.requireNonNull(path, "path");
+        this.from = from;
+        this.value = value != null ? value.deepCopy() : null;
+    }
+
+    /**
+     * @param path  The JSON Pointer of the value to add.
+     * @param value The value.
+     * @return An {@link Op#ADD} operation.
+     */
+    public static PatchOperation add(String path, JsonNode value) {
+        return new PatchOperation(Op.ADD, path, null, Objects.requireNonNull(value, "value"));
+    }
+
+    /**
+     * @param path The JSON Pointer of the value to remove.
+     * @return A {@link Op#REMOVE} operation.
+     */
+    public static PatchOperation remove(String path) {
+        return new PatchOperation(Op.REMOVE, path, null, null);
+    }
+
+    /**
+     * @param path  The JSON Pointer of the value to replace.
+     * @param value The new value.
+     * @return A {@link Op#REPLACE} operation.
+     */
+    public static PatchOperation replace(String path, JsonNode value) {
+        return new PatchOperation(Op.REPLACE, path, null, Objects.requireNonNull(value, "value"));
+    }
+
+    /**
+     * @param from The JSON Pointer of the value to move.
+     * @param path The JSON Pointer of the new location.
+     * @return A {@link Op#MOVE} operation.
+     */
+    public static PatchOperation move(String from, String path) {
+        return new PatchOperation(Op.MOVE, path, Objects.requireNonNull(from, "from"), null);
+    }
+
+    /**
+     * @param from The JSON Pointer of the value to copy.
+     * @param path The JSON Pointer of the new location.
+     * @return A {@link Op#COPY} operation.
+     */
+    public static PatchOperation copy(String from, String path) {
+        return new PatchOperation(Op.COPY, path, Objects.requireNonNull(from, "from"), null);
+    }
+
+    /**
+     * @param path  The JSON Pointer of the value to check.
+     * @param value The expected value.
+     * @return A {@link Op#TEST} operation.
+     */
+    public static PatchOperation test(String path, JsonNode value) {
+        return new PatchOperation(Op.TEST, path, null, Objects.requireNonNull(value, "value"));
+    }
+
+    /**
+     * This method reads one operation of a JSON patch document.
+     *
+     * @param json An object with an {@code op}, a {@code path} and, depending on the operation, a
+     *             {@code value} or a {@code from} member.
+     * @return The operation.
+     * @throws IllegalArgumentException If the object is not a valid operation.
+     */
+    public static PatchOperation fromJson(JsonNode json) {
+        String name = text(json, "op");
+        Op op;
+        try {
+            op = Op.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown patch operation: " + name);
+        }
+        String path = text(json, "path");
+        switch (op) {
+            case MOVE:
+            case COPY:
+                return new PatchOperation(op, path, text(json, "from"), null);
+            case REMOVE:
+                return new PatchOperation(op, path, null, null);
+            default:
+                JsonNode value = json.get("value");
+                if (value == null) {
+                    throw new IllegalArgumentException("Patch operation " + name + " requires a value: " + json);
+                }
+                return new PatchOperation(op, path, null, value);
+        }
+    }
+
+    private static String text(JsonNode json, String member) {
+        JsonNode value = json.get(member);
+        if (value == null || !value.isTextual()) {
+            throw new IllegalArgumentException("Patch operation requires a string " + member + ": " + json);
+        }
+        return value.asText();
+    }
+
+    /**
+     * @return The operation.
+     */
+    public Op getOp() {
+        return op;
+    }
+
+    /**
+     * @return The JSON Pointer the operation applies to.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return For {@link Op#MOVE} and {@link Op#COPY}, the JSON Pointer of the source; null otherwise.
+     */
+    public String getFrom() {
+        return from;
+    }
+
+    /**
+     * @return For {@link Op#ADD}, {@link Op#REPLACE} and {@link Op#TEST}, a copy of the value; null otherwise.
+     */
+    public JsonNode getValue() {
+        return value != null ? value.deepCopy() : null;
+    }
+
+    /**
+     * The value itself, for internal use by the applier which copies it where needed.
+     */
+    JsonNode value() {
+        return value;
+    }
+
+    /**
+     * @return The operation as an object of a JSON patch document.
+     */
+    public ObjectNode toJson() {
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        json.put("op", op.getName());
+        if (from != null) {
+            json.put("from", from);
+        }
+        json.put("path", path);
+        if (value != null) {
+            json.set("value", value.deepCopy());
+        }
+        return json;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PatchOperation)) {
+            return false;
+        }
+        PatchOperation other = (PatchOperation) o;
+        return op == other.op && path.equals(other.path) && Objects.equals(from, other.from)
+                && Objects.equals(value, other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(op, path, from, value);
+    }
+
+    @Override
+    public String toString() {
+        return toJson().toString();
+    }
+}
@@ -0,0 +1,19 @@
+package jsondiff;
+
+/**
+ * Notation used to turn a {@link DiffPath} into a String.
+ */
+public enum PathFormat {
+
+    /**
+     * Field names joined by dots and array indexes in brackets, e.g. {@code person.skills[1]}. The root is
+     * the empty string. This is the notation of the text output.
+     */
+    DOTTED,
+
+    /**
+     * JSON Pointer as defined by RFC 6901, e.g. {@code /person/skills/1}, with {@code ~} and {@code /} in
+     * field names escaped as {@code ~0} and {@code ~1}. The root is the empty string.
+     */
+    JSON_POINTER
+}
@@ -0,0 +1,446 @@
+package jsondiff;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ignore, include, value comparator and array alignment rules compiled into a lazily built deterministic
+ * automaton over path segments.
+ *
+ * Rules are globs over dotted paths, anchored at the root:
+ * <ul>
+ *   <li>{@code name} matches an object field; {@code *} inside a name matches any characters, e.g. {@code *_at}.</li>
+ *   <li>{@code [3]} matches array index 3 and {@code [*]} any array index.</li>
+ *   <li>{@code *} matches any single field or index, and {@code **} any number of segments, including none.</li>
+ * </ul>
+ * A backslash escapes a {@code .}, {@code [} or backslash in a field name. A value is ignored if it matches an
+ * ignore rule or lies below a match. If there are include rules, only values matching one of them, lying below
+ * a match or lying on the way to one are compared. Ignore rules take precedence. A value comparator or
+ * array alignment applies to the values matching its rule and everything below them; where several match,
+ * the one matching deepest wins, and among those the one added last.
+ *
+ * Each automaton state is the set of rule positions reachable by the path so far. States and their
+ * transitions are created on first use and cached, so after warm-up following a path segment costs one
+ * hash lookup for field names that occur in the rules and one field read for all other names and indexes.
+ * Where a name glob may match, names are looked up by name, and once a state has cached too many of them,
+ * by the set of globs they match. Once no rule can change the outcome below a value any more, its state loops onto itself. The automaton is shared by all comparisons using the same options and is thread-safe.
+ */
+final class PathMatcher {
+
+    /**
+     * Upper bound for the cached transitions of a state on field names that only match name globs. Past it,
+     * such names are looked up by the set of name globs they match instead.
+     */
+    private static final int MAX_GLOB_TRANSITIONS = 1024;
+
+    private final Segment[][] rules;
+    private final int[] offsets;
+    private final int excludeCount;
+    private final int includeEnd;
+    private final int comparatorEnd;
+    private final ValueComparator[] comparators;
+    private final ArrayAlignment[] alignments;
+    private final boolean hasIncludes;
+    private final Set<String> literalNames = new HashSet<>();
+    private final Set<Integer> literalIndexes = new HashSet<>();
+    private final boolean hasNameGlobs;
+    private final Map<StateKey, State> states = new ConcurrentHashMap<>();
+    private final State root;
+
+    private PathMatcher(List<String> excludes, List<String> includes, Map<String, ValueComparator> comparators,
+                        Map<String, ArrayAlignment> alignments) {
+        this.excludeCount = excludes.size();
+        this.includeEnd = excludeCount + includes.size();
+        this.comparatorEnd = includeEnd + comparators.size();
+        this.hasIncludes = !includes.isEmpty();
+        this.comparators = comparators.values().toArray(new ValueComparator[0]);
+        this.alignments = alignments.values().toArray(new ArrayAlignment[0]);
+        this.rules = new Segment[comparatorEnd + alignments.size()][];
+        this.offsets = new int[rules.length + 1];
+        List<String> patterns = new ArrayList<>(excludes);
+        patterns.addAll(includes);
+        patterns.addAll(comparators.keySet());
+        patterns.addAll(alignments.keySet());
+        boolean nameGlobs = false;
+        for (int r = 0; r < rules.length; r++) {
+            rules[r] = parse(patterns.get(r));
+            offsets[r + 1] = offsets[r] + rules[r].length + 1;
+            for (Segment segment : rules[r]) {
+                if (segment.type == SegmentType.FIELD) {
+                    literalNames.add(segment.name);
+                } else if (segment.type == SegmentType.INDEX) {
+                    literalIndexes.add(segment.index);
+                } else if (segment.type == SegmentType.FIELD_GLOB) {
+                    nameGlobs = true;
+                }
+            }
+        }
+        this.hasNameGlobs = nameGlobs;
+
+        BitSet start = new BitSet(offsets[rules.length]);
+        for (int r = 0; r < rules.length; r++) {
+            start.set(offsets[r]);
+        }
+        this.root = state(closure(start), false, -1, -1);
+    }
+
+    /**
+     * This method compiles ignore, include, value comparator and array alignment rules.
+     *
+     * @param excludes    The ignore rules.
+     * @param includes    The include rules; if empty, everything not ignored is included.
+     * @param comparators The value comparators by rule, in the order they were added.
+     * @param alignments  The array alignments by rule, in the order they were added.
+     * @return The matcher, or null if there are no rules at all.
+     * @throws IllegalArgumentException If a rule is not a valid pattern.
+     */
+    static PathMatcher compile(List<String> excludes, List<String> includes, Map<String, ValueComparator> comparators,
+                               Map<String, ArrayAlignment> alignments) {
+        if (excludes.isEmpty() && includes.isEmpty() && comparators.isEmpty() && alignments.isEmpty()) {
+            return null;
+        }
+        return new PathMatcher(excludes, includes, comparators, alignments);
+    }
+
+    /**
+     * @return The state of the root value.
+     */
+    State root() {
+        return root;
+    }
+
+    private BitSet closure(BitSet positions) {
+        for (int r = 0; r < rules.length; r++) {
+            Segment[] segments = rules[r];
+            for (int p = 0; p < segments.length; p++) {
+                if (positions.get(offsets[r] + p) && segments[p].type == SegmentType.ANY_DEEP) {
+                    positions.set(offsets[r] + p + 1);
+                }
+            }
+        }
+        return positions;
+    }
+
+    private State step(State from, String fieldName, int index) {
+        BitSet next = new BitSet(offsets[rules.length]);
+        for (int r = 0; r < rules.length; r++) {
+            Segment[] segments = rules[r];
+            for (int p = 0; p < segments.length; p++) {
+                if (from.positions.get(offsets[r] + p)) {
+                    Segment segment = segments[p];
+                    if (segment.type == SegmentType.ANY_DEEP) {
+                        next.set(offsets[r] + p);
+                    } else if (segment.matches(fieldName, index)) {
+                        next.set(offsets[r] + p + 1);
+                    }
+                }
+            }
+        }
+        return state(closure(next), from.included, from.comparatorRule, from.alignmentRule);
+    }
+
+    /**
+     * This method interns the state for a set of positions. Positions of include rules are dropped once the
+     * path is inside an included value, as they can no longer change the outcome.
+     *
+     * @param positions      The reachable rule positions.
+     * @param insideInclude  True if an ancestor matched an include rule.
+     * @param inheritedComparator The comparator rule that applies to the parent, or -1.
+     * @param inheritedAlignment  The alignment rule that applies to the parent, or -1.
+     */
+    private State state(BitSet positions, boolean insideInclude, int inheritedComparator, int inheritedAlignment) {
+        boolean matched = insideInclude;
+        for (int r = excludeCount; r < includeEnd && !matched; r++) {
+            matched = positions.get(offsets[r] + rules[r].length);
+        }
+        if (matched) {
+            positions.clear(offsets[excludeCount], offsets[includeEnd]);
+        }
+        boolean included = matched;
+        int comparatorRule = lastMatch(positions, includeEnd, comparatorEnd, inheritedComparator);
+        int alignmentRule = lastMatch(positions, comparatorEnd, rules.length, inheritedAlignment);
+        return states.computeIfAbsent(new StateKey(positions, included, comparatorRule, alignmentRule),
+                key -> new State(positions, included, comparatorRule, alignmentRule));
+    }
+
+    /**
+     * @return The last of the rules [from, to) that is fully matched, or the inherited rule if none is.
+     */
+    private int lastMatch(BitSet positions, int from, int to, int inherited) {
+        for (int r = to - 1; r >= from; r--) {
+            if (positions.get(offsets[r] + rules[r].length)) {
+                return r;
+            }
+        }
+        return inherited;
+    }
+
+    private static Segment[] parse(String pattern) {
+        List<Segment> segments = new ArrayList<>();
+        int i = pattern.startsWith("$") ? 1 : 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '.') {
+                i++;
+            } else if (c == '[') {
+                int end = pattern.indexOf(']', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed [ in path pattern: " + pattern);
+                }
+                String index = pattern.substring(i + 1, end);
+                if (index.equals("*")) {
+                    segments.add(new Segment(SegmentType.ANY_INDEX, null, -1));
+                } else {
+                    try {
+                        segments.add(new Segment(SegmentType.INDEX, null, Integer.parseInt(index)));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid index [" + index + "] in path pattern: " + pattern);
+                    }
+                }
+                i = end + 1;
+            } else {
+                StringBuilder name = new StringBuilder();
+                boolean glob = false;
+                for (; i < pattern.length() && pattern.charAt(i) != '.' && pattern.charAt(i) != '['; i++) {
+                    char n = pattern.charAt(i);
+                    if (n == '\\' && i + 1 < pattern.length()) {
+                        n = pattern.charAt(++i);
+                    } else if (n == '*') {
+                        glob = true;
+                    }
+                    name.append(n);
+                }
+                String text = name.toString();
+                if (text.equals("**")) {
+                    segments.add(new Segment(SegmentType.ANY_DEEP, null, -1));
+                } else if (text.equals("*")) {
+                    segments.add(new Segment(SegmentType.ANY, null, -1));
+                } else {
+                    segments.add(new Segment(glob ? SegmentType.FIELD_GLOB : SegmentType.FIELD, text, -1));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            throw new IllegalArgumentException("Empty path pattern: " + pattern);
+        }
+        return segments.toArray(new Segment[0]);
+    }
+
+    /**
+     * The position of a path relative to the rules, and its cached transitions.
+     */
+    final class State {
+
+        private final BitSet positions;
+        private final boolean included;
+        private final int comparatorRule;
+        private final int alignmentRule;
+        private final ValueComparator comparator;
+        private final ArrayAlignment alignment;
+        private final boolean skipped;
+        private final Segment[] nameGlobs;
+        private final Map<String, State> fields = new ConcurrentHashMap<>();
+        private final Map<BitSet, State> globFields = new ConcurrentHashMap<>();
+        private final Map<Integer, State> indexes = new ConcurrentHashMap<>();
+        private volatile State otherField;
+        private volatile State otherIndex;
+
+        private State(BitSet positions, boolean included, int comparatorRule, int alignmentRule) {
+            this.positions = positions;
+            this.included = included;
+            this.comparatorRule = comparatorRule;
+            this.alignmentRule = alignmentRule;
+            this.comparator = comparatorRule >= 0 ? comparators[comparatorRule - includeEnd] : null;
+            this.alignment = alignmentRule >= 0 ? alignments[alignmentRule - comparatorEnd] : null;
+            boolean excluded = false;
+            boolean liveInclude = false;
+            for (int r = 0; r < includeEnd; r++) {
+                int end = offsets[r] + rules[r].length;
+                if (r < excludeCount) {
+                    excluded |= positions.get(end);
+                } else if (!positions.get(offsets[r], end).isEmpty()) {
+                    liveInclude = true;
+                }
+            }
+            this.skipped = excluded || hasIncludes && !included && !liveInclude;
+            List<Segment> globs = new ArrayList<>();
+            for (int r = 0; hasNameGlobs && r < rules.length; r++) {
+                for (int p = 0; p < rules[r].length; p++) {
+                    if (positions.get(offsets[r] + p) && rules[r][p].type == SegmentType.FIELD_GLOB) {
+                        globs.add(rules[r][p]);
+                    }
+                }
+            }
+            this.nameGlobs = globs.toArray(new Segment[0]);
+        }
+
+        /**
+         * @return True if the value at this state is not compared, and neither is anything below it.
+         */
+        boolean isSkipped() {
+            return skipped;
+        }
+
+        /**
+         * @return The value comparator that applies to the value at this state, or null.
+         */
+        ValueComparator comparator() {
+            return comparator;
+        }
+
+        /**
+         * @return The array alignment that applies to the value at this state, or null.
+         */
+        ArrayAlignment alignment() {
+            return alignment;
+        }
+
+        /**
+         * @param fieldName The name of a field of the object at this state.
+         * @return The state of the field.
+         */
+        State field(String fieldName) {
+            if (literalNames.contains(fieldName) || nameGlobs.length > 0 && fields.size() < MAX_GLOB_TRANSITIONS) {
+                return fields.computeIfAbsent(fieldName, name -> step(this, name, -1));
+            }
+            if (nameGlobs.length > 0) {
+                State state = fields.get(fieldName);
+                if (state != null) {
+                    return state;
+                }
+                BitSet matched = new BitSet(nameGlobs.length);
+                for (int g = 0; g < nameGlobs.length; g++) {
+                    if (nameGlobs[g].matches(fieldName, -1)) {
+                        matched.set(g);
+                    }
+                }
+                if (!matched.isEmpty()) {
+                    return globFields.computeIfAbsent(matched, key -> step(this, fieldName, -1));
+                }
+            }
+            State state = otherField;
+            if (state == null) {
+                state = step(this, null, -1);
+                otherField = state;
+            }
+            return state;
+        }
+
+        /**
+         * @param index The index of an element of the array at this state.
+         * @return The state of the element.
+         */
+        State index(int index) {
+            if (literalIndexes.contains(index)) {
+                return indexes.computeIfAbsent(index, i -> step(this, null, i));
+            }
+            State state = otherIndex;
+            if (state == null) {
+                state = step(this, null, Integer.MIN_VALUE);
+                otherIndex = state;
+            }
+            return state;
+        }
+    }
+
+    private enum SegmentType {
+        FIELD, FIELD_GLOB, INDEX, ANY_INDEX, ANY, ANY_DEEP
+    }
+
+    /**
+     * One segment of a rule. A field name of null stands for a field whose name occurs in no rule, and an
+     * index of {@link Integer#MIN_VALUE} for an index that occurs in no rule.
+     */
+    private static final class Segment {
+
+        private final SegmentType type;
+        private final String name;
+        private final int index;
+
+        Segment(SegmentType type, String name, int index) {
+            this.type = type;
+            this.name = name;
+            this.index = index;
+        }
+
+        boolean matches(String fieldName, int elementIndex) {
+            boolean isField = elementIndex == -1;
+            switch (type) {
+                case FIELD:
+                    return isField && name.equals(fieldName);
+                case FIELD_GLOB:
+                    return isField && fieldName != null && glob(name, fieldName);
+                case INDEX:
+                    return !isField && index == elementIndex;
+                case ANY_INDEX:
+                    return !isField;
+                default:
+                    return true;
+            }
+        }
+
+        /**
+         * This method matches a name against a glob in which {@code *} stands for any characters.
+         */
+        private static boolean glob(String glob, String name) {
+            int g = 0;
+            int n = 0;
+            int star = -1;
+            int mark = 0;
+            while (n < name.length()) {
+                if (g < glob.length() && glob.charAt(g) != '*' && glob.charAt(g) == name.charAt(n)) {
+                    g++;
+                    n++;
+                } else if (g < glob.length() && glob.charAt(g) == '*') {
+                    star = g++;
+                    mark = n;
+                } else if (star >= 0) {
+                    g = star + 1;
+                    n = ++mark;
+                } else {
+                    return false;
+                }
+            }
+            while (g < glob.length() && glob.charAt(g) == '*') {
+                g++;
+            }
+            return g == glob.length();
+        }
+    }
+
+    private static final class StateKey {
+
+        private final BitSet positions;
+        private final boolean included;
+        private final int comparatorRule;
+        private final int alignmentRule;
+
+        StateKey(BitSet positions, boolean included, int comparatorRule, int alignmentRule) {
+            this.positions = positions;
+            this.included = included;
+            this.comparatorRule = comparatorRule;
+            this.alignmentRule = alignmentRule;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StateKey)) {
+                return false;
+            }
+            StateKey other = (StateKey) o;
+            return other.included == included && other.comparatorRule == comparatorRule
+                    && other.alignmentRule == alignmentRule && other.positions.equals(positions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(positions, included, comparatorRule, alignmentRule);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package jsondiff;
+
+import java.util.Arrays;
+
+/**
+ * Mutable stack of path segments that tracks the position of a comparison without allocating.
+ *
+ * Segments are stored in two parallel arrays that grow with the maximum depth and are reused for the whole
+ * comparison. An immutable {@link DiffPath} is only copied out when a difference is reported. With path
+ * rules such as ignore rules, a third array holds the {@link PathMatcher} state of every segment,
+ * which is advanced as segments are pushed, so the rules for the current position are known in constant time.
+ */
+final class PathStack {
+
+    private String[] fieldNames;
+    private int[] indexes;
+    private PathMatcher.State[] states;
+    private int depth;
+
+    /**
+     * @param matcher The ignore and include rules to track, or null.
+     */
+    PathStack(PathMatcher matcher) {
+        this.fieldNames = new String[16];
+        this.indexes = new int[16];
+        if (matcher != null) {
+            this.states = new PathMatcher.State[17];
+            this.states[0] = matcher.root();
+        }
+    }
+
+    private PathStack(PathStack other) {
+        this.fieldNames = Arrays.copyOf(other.fieldNames, other.fieldNames.length);
+        this.indexes = Arrays.copyOf(other.indexes, other.indexes.length);
+        this.states = other.states != null ? Arrays.copyOf(other.states, other.states.length) : null;
+        this.depth = other.depth;
+    }
+
+    /**
+     * @return An independent copy of this stack, for use by another thread.
+     */
+    PathStack copy() {
+        return new PathStack(this);
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    void pushField(String fieldName) {
+        ensureCapacity();
+        fieldNames[depth++] = fieldName;
+        if (states != null) {
+            states[depth] = states[depth - 1].field(fieldName);
+        }
+    }
+
+    void pushIndex(int index) {
+        ensureCapacity();
+        fieldNames[depth] = null;
+        indexes[depth++] = index;
+        if (states != null) {
+            states[depth] = states[depth - 1].index(index);
+        }
+    }
+
+    /**
+     * This method replaces the index of the top segment, which must be an array index.
+     *
+     * @param index The new index.
+     */
+    void setIndex(int index) {
+        indexes[depth - 1] = index;
+        if (states != null) {
+            states[depth] = states[depth - 1].index(index);
+        }
+    }
+
+    /**
+     * @return True if an ignore or include rule excludes the current position from comparison.
+     */
+    boolean isSkipped() {
+        return states != null && states[depth].isSkipped();
+    }
+
+    /**
+     * @return The value comparator a rule assigns to the current position, or null.
+     */
+    ValueComparator comparator() {
+        return states != null ? states[depth].comparator() : null;
+    }
+
+    /**
+     * @return The array alignment a rule assigns to the current position, or null.
+     */
+    ArrayAlignment alignment() {
+        return states != null ? states[depth].alignment() : null;
+    }
+
+    void pop() {
+        fieldNames[--depth] = null;
+    }
+
+    boolean isIndex(int segment) {
+        return fieldNames[segment] == null;
+    }
+
+    String fieldName(int segment) {
+        return fieldNames[segment];
+    }
+
+    int index(int segment) {
+        return indexes[segment];
+    }
+
+    /**
+     * @return The current position as an immutable path.
+     */
+    DiffPath snapshot() {
+        return depth == 0 ? DiffPath.ROOT : new DiffPath(Arrays.copyOf(fieldNames, depth), Arrays.copyOf(indexes, depth));
+    }
+
+    /**
+     * @param index The index to use for the top segment.
+     * @return The current position with the top array index replaced, as an immutable path.
+     */
+    DiffPath snapshotWithIndex(int index) {
+        int[] snapshotIndexes = Arrays.copyOf(indexes, depth);
+        snapshotIndexes[depth - 1] = index;
+        return new DiffPath(Arrays.copyOf(fieldNames, depth), snapshotIndexes);
+    }
+
+    private void ensureCapacity() {
+        if (depth == fieldNames.length) {
+            fieldNames = Arrays.copyOf(fieldNames, depth * 2);
+            indexes = Arrays.copyOf(indexes, depth * 2);
+            if (states != null) {
+                states = Arrays.copyOf(states, depth * 2 + 1);
+            }
+        }
+    }
+}
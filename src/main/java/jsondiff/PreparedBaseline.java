@@ -0,0 +1,110 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A baseline JSON document compiled once for comparison against many candidates, created by
+ * {@link JsonDiff#prepare(String)}.
+ *
+ * The baseline is parsed once, its subtrees are fingerprinted and the field tables of all its
+ * objects are precomputed. Each comparison then only parses and indexes the candidate, and skips
+ * every subtree whose fingerprint matches the baseline, so the cost of a comparison depends on the size of
+ * the candidate rather than on the baseline.
+ *
+ * A prepared baseline is immutable and thread-safe: any number of threads may compare candidates against it
+ * concurrently. The comparison options are those of the JsonDiff that prepared it.
+ */
+public final class PreparedBaseline {
+
+    private final JsonDiff jsonDiff;
+    private final FingerprintIndex index;
+    private final BaselineLayout layout;
+
+    PreparedBaseline(JsonDiff jsonDiff, JsonNode baseline) {
+        this.jsonDiff = jsonDiff;
+        this.index = FingerprintIndex.of(baseline);
+        this.layout = BaselineLayout.of(baseline);
+    }
+
+    /**
+     * This method returns a detailed, pretty-printed diff between the baseline and a candidate JSON string.
+     *
+     * @param candidate The candidate JSON string.
+     * @return A string containing the differences between the baseline and the candidate.
+     * @throws IOException If the candidate is not valid JSON.
+     */
+    public String diffAgainst(String candidate) throws IOException {
+        StringBuilder diffResult = new StringBuilder();
+        diffAgainst(candidate, new TextDiffRenderer(diffResult, jsonDiff.getFormat()));
+
+        return diffResult.toString();
+    }
+
+    /**
+     * This method returns a detailed, pretty-printed diff between the baseline and a candidate JsonNode.
+     *
+     * @param candidate The candidate JsonNode.
+     * @return A string containing the differences between the baseline and the candidate.
+     */
+    public String diffAgainst(JsonNode candidate) {
+        StringBuilder diffResult = new StringBuilder();
+        diffAgainst(candidate, new TextDiffRenderer(diffResult, jsonDiff.getFormat()));
+
+        return diffResult.toString();
+    }
+
+    /**
+     * This method compares the baseline with a candidate JSON string and reports each difference to the listener.
+     *
+     * @param candidate The candidate JSON string.
+     * @param listener  The listener receiving the differences.
+     * @throws IOException If the candidate is not valid JSON.
+     */
+    public void diffAgainst(String candidate, DiffListener listener) throws IOException {
+        DiffRecorder recorder = jsonDiff.newRecorder();
+        compare(jsonDiff.parseJson(candidate, recorder), listener, recorder);
+    }
+
+    /**
+     * This method compares the baseline with a candidate JsonNode and reports each difference to the listener.
+     *
+     * @param candidate The candidate JsonNode.
+     * @param listener  The listener receiving the differences.
+     */
+    public void diffAgainst(JsonNode candidate, DiffListener listener) {
+        compare(candidate, listener, jsonDiff.newRecorder());
+    }
+
+    private void compare(JsonNode candidate, DiffListener listener, DiffRecorder recorder) {
+        jsonDiff.compareTrees(index.getRoot(), candidate, index, FingerprintIndex.of(candidate), layout, listener, recorder);
+    }
+
+    /**
+     * This method returns the differences between the baseline and a candidate JSON string as a list of entries.
+     *
+     * @param candidate The candidate JSON string.
+     * @return The differences, in document order.
+     * @throws IOException If the candidate is not valid JSON.
+     */
+    public List<DiffEntry> getDifferences(String candidate) throws IOException {
+        List<DiffEntry> differences = new ArrayList<>();
+        diffAgainst(candidate, differences::add);
+        return differences;
+    }
+
+    /**
+     * This method checks if a candidate JSON string is equal to the baseline. Candidates whose fingerprint
+     * differs are rejected without walking the baseline, and matching fingerprints are confirmed structurally.
+     *
+     * @param candidate The candidate JSON string.
+     * @return True if the candidate is equal to the baseline, false otherwise.
+     * @throws IOException If the candidate is not valid JSON.
+     */
+    public boolean isEqualTo(String candidate) throws IOException {
+        return jsonDiff.isEqual(index, jsonDiff.parseJson(candidate));
+    }
+}
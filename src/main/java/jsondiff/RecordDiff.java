@@ -0,0 +1,79 @@
+package jsondiff;
+
+import java.util.List;
+
+/**
+ * The result of comparing one pair of records of two JSON Lines streams, see {@link BatchDiff}.
+ */
+public final class RecordDiff {
+
+    /**
+     * The outcome for a record.
+     */
+    public enum Status {
+        /** The record is present in both streams and equal. */
+        EQUAL,
+        /** The record is present in both streams and differs, see {@link #getDifferences()}. */
+        CHANGED,
+        /** The record is present in the first stream but has no counterpart in the second. */
+        MISSING,
+        /** The record is present in the second stream but has no counterpart in the first. */
+        EXTRA
+    }
+
+    private final Status status;
+    private final long leftIndex;
+    private final long rightIndex;
+    private final String key;
+    private final List<DiffEntry> differences;
+
+    RecordDiff(Status status, long leftIndex, long rightIndex, String key, List<DiffEntry> differences) {
+        this.status = status;
+        this.leftIndex = leftIndex;
+        this.rightIndex = rightIndex;
+        this.key = key;
+        this.differences = differences;
+    }
+
+    /**
+     * @return The outcome for the record.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The 0-based index of the record among the records of the first stream, or -1 for {@link Status#EXTRA}.
+     */
+    public long getLeftIndex() {
+        return leftIndex;
+    }
+
+    /**
+     * @return The 0-based index of the record among the records of the second stream, or -1 for {@link Status#MISSING}.
+     */
+    public long getRightIndex() {
+        return rightIndex;
+    }
+
+    /**
+     * @return The value of the key field the records were paired by, or null when pairing by line number or
+     *         if the record has no key.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return The differences of a {@link Status#CHANGED} record, in document order; empty otherwise.
+     */
+    public List<DiffEntry> getDifferences() {
+        return differences;
+    }
+
+    @Override
+    public String toString() {
+        return status + " record " + (leftIndex >= 0 ? leftIndex : rightIndex)
+                + (key != null ? " (key " + key + ")" : "") + (differences.isEmpty() ? "" : ": " + differences);
+    }
+}
@@ -0,0 +1,18 @@
+package jsondiff;
+
+/**
+ * Callback that receives the per-record results of a {@link BatchDiff}.
+ *
+ * Listeners are always invoked on the thread that called {@link BatchDiff#diff}, one record at a time, so
+ * they do not need to be thread-safe.
+ */
+@FunctionalInterface
+public interface RecordListener {
+
+    /**
+     * This method is called once for every record of either stream.
+     *
+     * @param result The result for the record.
+     */
+    void onRecord(RecordDiff result);
+}
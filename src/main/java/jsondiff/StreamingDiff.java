@@ -0,0 +1,235 @@
+package jsondiff;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Token-level diff engine that walks two JSON documents with a pair of parsers advancing in lockstep.
+ *
+ * Containers that line up on both sides are compared token by token without ever being materialized.
+ * Only the values of object fields that appear in a different order are buffered as JsonNodes, until
+ * their counterpart shows up on the other side, and only on one side at a time, so a field inserted or
+ * removed on one side does not make the rest of the object be buffered. Scalars, array elements that have no counterpart and
+ * values whose types differ are read as small trees and handed to the regular tree comparison, so the
+ * reported differences are the same as the ones produced for parsed trees. Differences inside objects
+ * whose fields are out of order may be reported in a different order. Object fields that are known to
+ * have no counterpart are read one at a time so that their entries carry the value, like array elements
+ * without a counterpart. Once the
+ * walker's difference limit is reached, reading stops and the rest of both inputs is left unread. Values
+ * excluded by ignore or include rules are skipped token by token on both sides without being read.
+ */
+final class StreamingDiff {
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser1;
+    private final JsonParser parser2;
+    private final DiffWalker walker;
+    private int peakBuffered;
+
+    StreamingDiff(ObjectMapper objectMapper, JsonParser parser1, JsonParser parser2, DiffWalker walker) {
+        this.objectMapper = objectMapper;
+        this.parser1 = parser1;
+        this.parser2 = parser2;
+        this.walker = walker;
+    }
+
+    /**
+     * @return The largest number of object fields that were buffered at the same time in one object.
+     */
+    int getPeakBuffered() {
+        return peakBuffered;
+    }
+
+    /**
+     * This method compares the two documents from their first token to the end of the root value.
+     *
+     * @throws IOException If reading fails or the inputs are not valid JSON.
+     */
+    void compare() throws IOException {
+        JsonToken token1 = parser1.nextToken();
+        JsonToken token2 = parser2.nextToken();
+
+        if (token1 == null || token2 == null) {
+            JsonNode node1 = token1 == null ? MissingNode.getInstance() : readValue(parser1);
+            JsonNode node2 = token2 == null ? MissingNode.getInstance() : readValue(parser2);
+            walker.compareNodes(node1, node2);
+        } else {
+            compareValues();
+        }
+    }
+
+    /**
+     * This method compares the values both parsers are currently positioned on. On return, both parsers
+     * are positioned on the last token of their value, unless the comparison was stopped early.
+     *
+     * @throws IOException If reading fails or the inputs are not valid JSON.
+     */
+    private void compareValues() throws IOException {
+        JsonToken token1 = parser1.currentToken();
+        JsonToken token2 = parser2.currentToken();
+
+        DiffRecorder recorder = walker.recorder();
+        if (token1 == JsonToken.START_ARRAY && token2 == JsonToken.START_ARRAY) {
+            walker.visit();
+            if (recorder != null) {
+                recorder.enter(walker.path().depth());
+            }
+            compareArrays();
+            if (recorder != null) {
+                recorder.exit(walker.path());
+            }
+        } else if (token1 == JsonToken.START_OBJECT && token2 == JsonToken.START_OBJECT) {
+            walker.visit();
+            if (recorder != null) {
+                recorder.enter(walker.path().depth());
+            }
+            compareObjects();
+            if (recorder != null) {
+                recorder.exit(walker.path());
+            }
+        } else {
+            walker.compareNodes(readValue(parser1), readValue(parser2));
+        }
+    }
+
+    /**
+     * This method compares two JSON objects field by field. Fields with the same name at the same position
+     * are compared by streaming. Otherwise a field whose counterpart is already buffered is compared with
+     * it, and if neither is, only one side advances: the field of the side with fewer buffered fields is
+     * buffered, so that a field inserted on one side costs one buffered value and both parsers are back in
+     * step at the next field.
+     *
+     * @throws IOException If reading fails or the inputs are not valid JSON.
+     */
+    private void compareObjects() throws IOException {
+        Map<String, JsonNode> pending1 = new LinkedHashMap<>();
+        Map<String, JsonNode> pending2 = new LinkedHashMap<>();
+        PathStack path = walker.path();
+
+        JsonToken token1 = parser1.nextToken();
+        JsonToken token2 = parser2.nextToken();
+        while ((token1 == JsonToken.FIELD_NAME || token2 == JsonToken.FIELD_NAME) && !walker.isStopped()) {
+            String fieldName1 = token1 == JsonToken.FIELD_NAME ? parser1.currentName() : null;
+            String fieldName2 = token2 == JsonToken.FIELD_NAME ? parser2.currentName() : null;
+
+            if (fieldName1 != null && fieldName1.equals(fieldName2)) {
+                parser1.nextToken();
+                parser2.nextToken();
+                path.pushField(fieldName1);
+                if (path.isSkipped()) {
+                    parser1.skipChildren();
+                    parser2.skipChildren();
+                } else {
+                    compareValues();
+                }
+                path.pop();
+                token1 = parser1.nextToken();
+                token2 = parser2.nextToken();
+                continue;
+            }
+
+            boolean advance1;
+            if (fieldName1 == null || fieldName2 == null) {
+                advance1 = fieldName1 != null;
+            } else if (pending2.containsKey(fieldName1) || pending1.containsKey(fieldName2)) {
+                advance1 = pending2.containsKey(fieldName1);
+            } else {
+                advance1 = pending1.size() < pending2.size();
+            }
+            JsonParser parser = advance1 ? parser1 : parser2;
+            Map<String, JsonNode> own = advance1 ? pending1 : pending2;
+            Map<String, JsonNode> other = advance1 ? pending2 : pending1;
+            String fieldName = advance1 ? fieldName1 : fieldName2;
+
+            parser.nextToken();
+            path.pushField(fieldName);
+            JsonNode buffered = other.remove(fieldName);
+            if (path.isSkipped()) {
+                parser.skipChildren();
+            } else if (buffered != null) {
+                JsonNode value = readValue(parser);
+                walker.compareNodes(advance1 ? value : buffered, advance1 ? buffered : value);
+            } else if ((advance1 ? fieldName2 : fieldName1) == null) {
+                JsonNode value = readValue(parser);
+                walker.report(advance1 ? DiffEntry.Kind.MISSING : DiffEntry.Kind.EXTRA,
+                        advance1 ? value : null, advance1 ? null : value);
+            } else {
+                own.put(fieldName, readValue(parser));
+                peakBuffered = Math.max(peakBuffered, pending1.size() + pending2.size());
+            }
+            path.pop();
+            if (advance1) {
+                token1 = parser1.nextToken();
+            } else {
+                token2 = parser2.nextToken();
+            }
+        }
+
+        for (Map.Entry<String, JsonNode> field : pending1.entrySet()) {
+            path.pushField(field.getKey());
+            walker.report(DiffEntry.Kind.MISSING, field.getValue(), null);
+            path.pop();
+        }
+        for (Map.Entry<String, JsonNode> field : pending2.entrySet()) {
+            path.pushField(field.getKey());
+            walker.report(DiffEntry.Kind.EXTRA, null, field.getValue());
+            path.pop();
+        }
+    }
+
+    /**
+     * This method compares two JSON arrays element by element. Only elements without a counterpart are
+     * read into memory, one at a time, so that they can be printed.
+     *
+     * @throws IOException If reading fails or the inputs are not valid JSON.
+     */
+    private void compareArrays() throws IOException {
+        PathStack path = walker.path();
+        JsonToken token1 = parser1.nextToken();
+        JsonToken token2 = parser2.nextToken();
+        path.pushIndex(0);
+        for (int i = 0; (token1 != JsonToken.END_ARRAY || token2 != JsonToken.END_ARRAY) && !walker.isStopped(); i++) {
+            path.setIndex(i);
+            if (path.isSkipped()) {
+                if (token1 != JsonToken.END_ARRAY) {
+                    parser1.skipChildren();
+                    token1 = parser1.nextToken();
+                }
+                if (token2 != JsonToken.END_ARRAY) {
+                    parser2.skipChildren();
+                    token2 = parser2.nextToken();
+                }
+            } else if (token1 == JsonToken.END_ARRAY) {
+                walker.report(DiffEntry.Kind.EXTRA, null, readValue(parser2));
+                token2 = parser2.nextToken();
+            } else if (token2 == JsonToken.END_ARRAY) {
+                walker.report(DiffEntry.Kind.MISSING, readValue(parser1), null);
+                token1 = parser1.nextToken();
+            } else {
+                compareValues();
+                token1 = parser1.nextToken();
+                token2 = parser2.nextToken();
+            }
+        }
+        path.pop();
+    }
+
+    /**
+     * This method reads the value the parser is positioned on into a JsonNode, leaving the parser on the
+     * last token of that value.
+     *
+     * @param parser The parser to read from.
+     * @return The value as a JsonNode.
+     * @throws IOException If reading fails or the input is not valid JSON.
+     */
+    private JsonNode readValue(JsonParser parser) throws IOException {
+        return objectMapper.readTree(parser);
+    }
+}
@@ -0,0 +1,134 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 64-bit structural hash of a JsonNode tree, consistent with {@link JsonNode#equals(Object)}.
+ *
+ * Equal trees always hash to the same value. Object fields are combined order-independently, as object
+ * equality ignores field order, while array elements are combined in order. Nodes of different types,
+ * including numbers of different widths, hash differently because they never compare equal.
+ */
+final class StructuralHash {
+
+    private static final long OBJECT_SEED = 0x9E3779B97F4A7C15L;
+    private static final long ARRAY_SEED = 0xC2B2AE3D27D4EB4FL;
+    private static final long FIELD_SEED = 0x165667B19E3779F9L;
+
+    private StructuralHash() {
+    }
+
+    /**
+     * This method computes the structural hash of a tree.
+     *
+     * @param node The root of the tree.
+     * @return The 64-bit hash.
+     */
+    static long of(JsonNode node) {
+        return of(node, null);
+    }
+
+    /**
+     * This method computes the structural hash of a tree, reusing and recording the hashes of its objects
+     * and arrays in a memo table keyed by node identity.
+     *
+     * @param node The root of the tree.
+     * @param memo The memo table, or null to hash without memoizing.
+     * @return The 64-bit hash.
+     */
+    static long of(JsonNode node, Map<JsonNode, Long> memo) {
+        if (!node.isContainerNode()) {
+            return ofScalar(node);
+        }
+        if (memo != null) {
+            Long hash = memo.get(node);
+            if (hash != null) {
+                return hash;
+            }
+        }
+        long hash = ofContainer(node, memo);
+        if (memo != null) {
+            memo.put(node, hash);
+        }
+        return hash;
+    }
+
+    private static long ofContainer(JsonNode node, Map<JsonNode, Long> memo) {
+        if (node.isObject()) {
+            long hash = OBJECT_SEED;
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                hash += mix(ofString(field.getKey()) * FIELD_SEED + of(field.getValue(), memo));
+            }
+            return mix(hash + node.size());
+        }
+        long hash = ARRAY_SEED;
+        for (int i = 0; i < node.size(); i++) {
+            hash = mix(hash * 31 + of(node.get(i), memo));
+        }
+        return mix(hash + node.size());
+    }
+
+    /**
+     * This method hashes a value that has no children.
+     *
+     * @param node The scalar node.
+     * @return The 64-bit hash.
+     */
+    static long ofScalar(JsonNode node) {
+        long type = node.getNodeType().ordinal() + 1L;
+        if (node.isTextual()) {
+            return mix(type * OBJECT_SEED + ofString(node.textValue()));
+        }
+        if (node.isNumber()) {
+            type = type * 31 + node.numberType().ordinal();
+            long value;
+            if (node.isIntegralNumber() && node.canConvertToLong()) {
+                value = node.longValue();
+            } else if (node.isDouble() || node.isFloat()) {
+                value = Double.doubleToLongBits(node.doubleValue());
+            } else {
+                value = node.hashCode();
+            }
+            return mix(type * OBJECT_SEED + value);
+        }
+        if (node.isBoolean()) {
+            return mix(type * OBJECT_SEED + (node.booleanValue() ? 1 : 0));
+        }
+        return mix(type * OBJECT_SEED + node.hashCode());
+    }
+
+    /**
+     * This method hashes a string with 64-bit FNV-1a over its characters.
+     *
+     * @param value The string.
+     * @return The 64-bit hash.
+     */
+    static long ofString(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * This method spreads the bits of a hash (the MurmurHash3 finalizer).
+     *
+     * @param hash The value to mix.
+     * @return The mixed value.
+     */
+    static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,248 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Recursive containment check behind {@link JsonDiff#isSubset}.
+ *
+ * A value is contained in another if both are equal scalars, if both are objects and every field of the
+ * first is contained in the same field of the second, or if both are arrays whose elements are contained
+ * according to the {@link ArrayContainment} rule. The check returns on the first violation without looking
+ * at the rest of either document.
+ */
+final class SubsetCheck {
+
+    private final ArrayContainment arrayContainment;
+    private Map<JsonNode, Long> hashes;
+
+    SubsetCheck(ArrayContainment arrayContainment) {
+        this.arrayContainment = arrayContainment;
+    }
+
+    /**
+     * @param node1 The value that should be contained.
+     * @param node2 The value that should contain it.
+     * @return True if the first value is contained in the second.
+     */
+    boolean isSubset(JsonNode node1, JsonNode node2) {
+        if (node1 == node2) {
+            return true;
+        }
+        if (node1.isObject()) {
+            return node2.isObject() && isObjectSubset(node1, node2);
+        }
+        if (node1.isArray()) {
+            if (!node2.isArray() || node1.size() > node2.size()) {
+                return false;
+            }
+            return arrayContainment == ArrayContainment.ORDERED
+                    ? isOrderedSubset(node1, node2)
+                    : isUnorderedSubset(node1, node2);
+        }
+        return node1.equals(node2);
+    }
+
+    private boolean isObjectSubset(JsonNode node1, JsonNode node2) {
+        if (node1.size() > node2.size()) {
+            return false;
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = node1.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value2 = node2.get(field.getKey());
+            if (value2 == null || !isSubset(field.getValue(), value2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method matches every element of the first array with the earliest element of the second array
+     * after the previous match that contains it. Taking the earliest match never rules out a later one, so
+     * a single pass decides whether the first array is a subsequence of the second.
+     */
+    private boolean isOrderedSubset(JsonNode array1, JsonNode array2) {
+        int j = 0;
+        for (int i = 0; i < array1.size(); i++) {
+            JsonNode element = array1.get(i);
+            while (j < array2.size() && !isSubset(element, array2.get(j))) {
+                j++;
+            }
+            if (j == array2.size() || array2.size() - j < array1.size() - i) {
+                return false;
+            }
+            j++;
+        }
+        return true;
+    }
+
+    /**
+     * This method indexes the elements of the second array by structural hash and matches every element of
+     * the first array that occurs unchanged in O(1). Taking an equal element never rules out a matching,
+     * since anything contained in it is also contained in the element it is contained in. Scalars without an
+     * equal element are a violation. The remaining objects and arrays are then matched with containing
+     * elements, see {@link #matchContainers}.
+     */
+    private boolean isUnorderedSubset(JsonNode array1, JsonNode array2) {
+        if (hashes == null) {
+            hashes = new IdentityHashMap<>();
+        }
+        Map<Long, ArrayDeque<Integer>> index = new HashMap<>();
+        for (int j = 0; j < array2.size(); j++) {
+            index.computeIfAbsent(StructuralHash.of(array2.get(j), hashes), key -> new ArrayDeque<>()).add(j);
+        }
+
+        boolean[] used = new boolean[array2.size()];
+        int[] unmatched = new int[array1.size()];
+        int unmatchedCount = 0;
+        for (int i = 0; i < array1.size(); i++) {
+            JsonNode element = array1.get(i);
+            if (!takeEqual(index, StructuralHash.of(element, hashes), element, array2, used)) {
+                if (!element.isContainerNode()) {
+                    return false;
+                }
+                unmatched[unmatchedCount++] = i;
+            }
+        }
+
+        if (unmatchedCount == 0) {
+            return true;
+        }
+        return matchContainers(array1, array2, unmatched, unmatchedCount, used);
+    }
+
+    /**
+     * This method finds a distinct containing element of the second array for each of the remaining objects
+     * and arrays of the first one, as a maximum bipartite matching with augmenting paths: an element
+     * that finds no free candidate tries to move the element holding one of its candidates to another
+     * candidate. Unlike taking the first candidate, this never misses a matching that exists.
+     *
+     * Candidates are looked up in an index of the unused objects and arrays of the second array by their
+     * {@link #containmentKeys}, which every element containing a value shares with it. Each remaining element
+     * is only checked against the elements of its least common key, typically a handful where the elements
+     * carry an identifying scalar field. In the worst case, where no key tells the elements apart, it checks
+     * every remaining element against every unused one, u * m containment checks, and the matching takes
+     * O(u * u * m) steps, where u is the number of remaining elements and m the size of the second array.
+     */
+    private boolean matchContainers(JsonNode array1, JsonNode array2, int[] unmatched, int unmatchedCount,
+                                    boolean[] used) {
+        Map<Long, ArrayDeque<Integer>> index = new HashMap<>();
+        for (int j = 0; j < array2.size(); j++) {
+            JsonNode container = array2.get(j);
+            if (!used[j] && container.isContainerNode()) {
+                for (long key : containmentKeys(container)) {
+                    ArrayDeque<Integer> bucket = index.computeIfAbsent(key, k -> new ArrayDeque<>());
+                    if (bucket.isEmpty() || bucket.peekLast() != j) {
+                        bucket.add(j);
+                    }
+                }
+            }
+        }
+
+        int[][] candidates = new int[unmatchedCount][];
+        int[] buffer = new int[array2.size()];
+        for (int u = 0; u < unmatchedCount; u++) {
+            JsonNode element = array1.get(unmatched[u]);
+            ArrayDeque<Integer> bucket = null;
+            for (long key : containmentKeys(element)) {
+                ArrayDeque<Integer> keyed = index.get(key);
+                if (keyed == null) {
+                    return false;
+                }
+                if (bucket == null || keyed.size() < bucket.size()) {
+                    bucket = keyed;
+                }
+            }
+            int count = 0;
+            for (int j : bucket) {
+                if (isSubset(element, array2.get(j))) {
+                    buffer[count++] = j;
+                }
+            }
+            if (count == 0) {
+                return false;
+            }
+            candidates[u] = Arrays.copyOf(buffer, count);
+        }
+
+        int[] holder = new int[array2.size()];
+        Arrays.fill(holder, -1);
+        boolean[] visited = new boolean[array2.size()];
+        for (int u = 0; u < unmatchedCount; u++) {
+            Arrays.fill(visited, false);
+            if (!augment(u, candidates, holder, visited)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method computes the keys that any value containing the given object or array also has: its type,
+     * and for each field the field name with the scalar value or the type of the object or array it holds,
+     * or for each element of an array the scalar value or type of the element. Only the direct children are
+     * looked at, so computing the keys of all elements of an array is linear in their number of children.
+     *
+     * @param node An object or array.
+     * @return The keys, possibly with repetitions.
+     */
+    private static long[] containmentKeys(JsonNode node) {
+        long[] keys = new long[node.size() + 1];
+        keys[0] = StructuralHash.mix(node.getNodeType().ordinal());
+        int k = 1;
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                keys[k++] = StructuralHash.mix(StructuralHash.ofString(field.getKey()) * 31 + shallowHash(field.getValue()));
+            }
+        } else {
+            for (JsonNode element : node) {
+                keys[k++] = StructuralHash.mix(keys[0] * 31 + shallowHash(element));
+            }
+        }
+        return keys;
+    }
+
+    private static long shallowHash(JsonNode node) {
+        return node.isContainerNode() ? node.getNodeType().ordinal() : StructuralHash.ofScalar(node);
+    }
+
+    private static boolean augment(int u, int[][] candidates, int[] holder, boolean[] visited) {
+        for (int j : candidates[u]) {
+            if (!visited[j]) {
+                visited[j] = true;
+                if (holder[j] < 0 || augment(holder[j], candidates, holder, visited)) {
+                    holder[j] = u;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean takeEqual(Map<Long, ArrayDeque<Integer>> index, long hash, JsonNode element,
+                                     JsonNode array2, boolean[] used) {
+        ArrayDeque<Integer> candidates = index.get(hash);
+        if (candidates == null) {
+            return false;
+        }
+        for (Iterator<Integer> it = candidates.iterator(); it.hasNext(); ) {
+            int j = it.next();
+            if (element.equals(array2.get(j))) {
+                it.remove();
+                used[j] = true;
+                return true;
+            }
+        }
+        return false;
+    }
+}
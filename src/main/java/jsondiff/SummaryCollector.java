@@ -0,0 +1,143 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates the values visited and the differences reported by a walker into a trie of path templates,
+ * from which a {@link DiffSummary} is built.
+ *
+ * The walker visits values depth first and visits every container before its children, so the node of
+ * the parent of the current value is always the last node resolved one level up. Each visit and each
+ * difference therefore costs one child lookup, without building a path or a template String.
+ */
+final class SummaryCollector implements DiffListener, DiffWalker.Visitor {
+
+    /**
+     * The number of templates after which new field names are grouped under a {@code *} segment.
+     */
+    static final int MAX_TEMPLATES = 10_000;
+
+    private final Node root = new Node("");
+    private Node[] stack = new Node[16];
+    private int templates = 1;
+
+    @Override
+    public void onVisit(PathStack path) {
+        int depth = path.depth();
+        if (depth >= stack.length) {
+            Node[] grown = new Node[Math.max(depth + 1, stack.length * 2)];
+            System.arraycopy(stack, 0, grown, 0, stack.length);
+            stack = grown;
+        }
+        Node node = depth == 0 ? root : child(stack[depth - 1], path.isIndex(depth - 1), path.fieldName(depth - 1));
+        stack[depth] = node;
+        node.compared++;
+    }
+
+    @Override
+    public void onDifference(DiffEntry entry) {
+        DiffPath path = entry.getDiffPath();
+        int depth = path.size();
+        Node node = depth == 0 ? root
+                : child(stack[depth - 1], path.isIndex(depth - 1), path.getFieldName(depth - 1));
+        DiffEntry.Kind kind = entry.getKind();
+        node.counts[kind.ordinal()]++;
+        JsonNode left = entry.getLeft();
+        JsonNode right = entry.getRight();
+        if (kind == DiffEntry.Kind.VALUE_MISMATCH && left.isNumber() && right.isNumber()) {
+            node.addNumericChange(left.doubleValue(), right.doubleValue());
+        }
+    }
+
+    private Node child(Node parent, boolean index, String fieldName) {
+        if (index) {
+            if (parent.elements == null) {
+                parent.elements = new Node(parent.template + "[*]");
+                templates++;
+            }
+            return parent.elements;
+        }
+        Node child = parent.fields.get(fieldName);
+        if (child == null) {
+            if (templates >= MAX_TEMPLATES) {
+                if (parent.otherFields == null) {
+                    parent.otherFields = new Node(parent.fieldTemplate("*"));
+                    templates++;
+                }
+                return parent.otherFields;
+            }
+            child = new Node(parent.fieldTemplate(fieldName));
+            parent.fields.put(fieldName, child);
+            templates++;
+        }
+        return child;
+    }
+
+    /**
+     * @return The summary of everything collected so far.
+     */
+    DiffSummary toSummary() {
+        List<DiffSummary.Group> groups = new ArrayList<>();
+        addGroups(root, groups);
+        return new DiffSummary(groups);
+    }
+
+    private static void addGroups(Node node, List<DiffSummary.Group> groups) {
+        long occurrences = node.compared + node.counts[DiffEntry.Kind.MISSING.ordinal()]
+                + node.counts[DiffEntry.Kind.EXTRA.ordinal()];
+        if (occurrences > 0) {
+            groups.add(new DiffSummary.Group(node.template, occurrences, node.counts.clone(), node.numericChanges,
+                    node.deltaSum, node.minDelta, node.maxDelta, node.histogram.clone()));
+        }
+        for (Node child : node.fields.values()) {
+            addGroups(child, groups);
+        }
+        if (node.otherFields != null) {
+            addGroups(node.otherFields, groups);
+        }
+        if (node.elements != null) {
+            addGroups(node.elements, groups);
+        }
+    }
+
+    /**
+     * The counters of one path template.
+     */
+    private static final class Node {
+
+        private final String template;
+        private final Map<String, Node> fields = new LinkedHashMap<>();
+        private Node otherFields;
+        private Node elements;
+        private long compared;
+        private final long[] counts = new long[DiffEntry.Kind.values().length];
+        private long numericChanges;
+        private double deltaSum;
+        private double minDelta = Double.POSITIVE_INFINITY;
+        private double maxDelta = Double.NEGATIVE_INFINITY;
+        private final long[] histogram = new long[DiffSummary.BUCKETS];
+
+        Node(String template) {
+            this.template = template;
+        }
+
+        String fieldTemplate(String fieldName) {
+            return template.isEmpty() ? fieldName : template + "." + fieldName;
+        }
+
+        void addNumericChange(double left, double right) {
+            double delta = right - left;
+            double magnitude = Math.max(Math.abs(left), Math.abs(right));
+            numericChanges++;
+            deltaSum += delta;
+            minDelta = Math.min(minDelta, delta);
+            maxDelta = Math.max(maxDelta, delta);
+            histogram[DiffSummary.bucket(magnitude == 0 ? 0 : Math.abs(delta) / magnitude)]++;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Renders differences as text, one line per difference, in one of the {@link DiffFormat} layouts.
+ *
+ * Lines are written straight to an {@link Appendable} such as a Writer or a StringBuilder as the
+ * differences are found, so no intermediate copy of the whole diff is built. In the indented layouts each
+ * line is indented by the depth of the difference, taken from its path segments (paths into a root array are
+ * indented one level deeper, as they always have been): mismatches are shown in
+ * red, missing values in yellow, extra values in green and moved array elements in cyan. Missing and extra
+ * array elements print the element itself, object fields print their path.
+ *
+ * A renderer writes to a single target and is not thread-safe. Write failures are rethrown as
+ * {@link UncheckedIOException}.
+ */
+public final class TextDiffRenderer implements DiffListener {
+
+    // Using the ANSI escape codes for colorizing the output
+    private static final String RESET = "\u001B[0m";
+    private static final String RED = "\u001B[31m"; // For mismatches in the provided JSON strings or JsonNodes
+    private static final String YELLOW = "\u001B[33m"; // For missing fields from the JSON strings or JsonNodes
+    private static final String GREEN = "\u001B[32m"; // For extra fields in the JSON strings or JsonNodes
+    private static final String CYAN = "\u001B[36m"; // For array elements moved to another position
+
+    private final Appendable out;
+    private final DiffFormat format;
+
+    /**
+     * @param diffResult The StringBuilder to append the differences to, in {@link DiffFormat#ANSI}.
+     */
+    public TextDiffRenderer(StringBuilder diffResult) {
+        this(diffResult, DiffFormat.ANSI);
+    }
+
+    /**
+     * @param out    The target to write the differences to.
+     * @param format The layout of the lines.
+     */
+    public TextDiffRenderer(Appendable out, DiffFormat format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    @Override
+    public void onDifference(DiffEntry entry) {
+        try {
+            if (format == DiffFormat.COMPACT) {
+                writeCompact(entry);
+            } else {
+                writeIndented(entry, format == DiffFormat.ANSI);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeIndented(DiffEntry entry, boolean colored) throws IOException {
+        indent(indentDepth(entry.getDiffPath()));
+        boolean arrayElement = entry.getDiffPath().isArrayElement();
+        switch (entry.getKind()) {
+            case MISSING:
+                color(colored, YELLOW).append("Missing in second JSON: ");
+                if (arrayElement) {
+                    append(entry.getLeft());
+                } else {
+                    out.append(entry.getPath());
+                }
+                break;
+            case EXTRA:
+                color(colored, GREEN).append("Extra in second JSON: ");
+                if (arrayElement) {
+                    append(entry.getRight());
+                } else {
+                    out.append(entry.getPath());
+                }
+                break;
+            case MOVED:
+                color(colored, CYAN).append("Moved in second JSON: ").append(entry.getFromPath())
+                        .append(" -> ").append(entry.getPath()).append(": ");
+                append(entry.getRight());
+                break;
+            default:
+                color(colored, RED).append("Value mismatch at ").append(entry.getPath()).append(": ");
+                append(entry.getLeft());
+                out.append(" vs ");
+                append(entry.getRight());
+                break;
+        }
+        color(colored, RESET).append('\n');
+    }
+
+    private void writeCompact(DiffEntry entry) throws IOException {
+        switch (entry.getKind()) {
+            case MISSING:
+                out.append("- ").append(entry.getPath());
+                appendValue(entry.getLeft());
+                break;
+            case EXTRA:
+                out.append("+ ").append(entry.getPath());
+                appendValue(entry.getRight());
+                break;
+            case MOVED:
+                out.append("> ").append(entry.getFromPath()).append(" -> ").append(entry.getPath());
+                appendValue(entry.getRight());
+                break;
+            default:
+                out.append("~ ").append(entry.getPath()).append(": ");
+                append(entry.getLeft());
+                out.append(" -> ");
+                append(entry.getRight());
+                break;
+        }
+        out.append('\n');
+    }
+
+    /**
+     * This method computes the indentation level of a difference the way the text output always has: one
+     * level per path segment, plus one when the path starts with an array index, so that the elements of a
+     * root array (path {@code [0]}) are indented like the fields of a nested array ({@code a[0]}).
+     *
+     * @param path The path of the difference.
+     * @return The indentation level.
+     */
+    private static int indentDepth(DiffPath path) {
+        int depth = path.size();
+        return depth > 0 && path.isIndex(0) ? depth + 1 : depth;
+    }
+
+    /**
+     * This method adds indentation for pretty-printed output, two spaces per level.
+     *
+     * @param depth The nesting depth of the difference.
+     * @throws IOException If writing fails.
+     */
+    private void indent(int depth) throws IOException {
+        for (int i = 0; i < depth; i++) {
+            out.append("  ");
+        }
+    }
+
+    private Appendable color(boolean colored, String code) throws IOException {
+        return colored ? out.append(code) : out;
+    }
+
+    private void appendValue(JsonNode value) throws IOException {
+        if (value != null) {
+            out.append(": ");
+            append(value);
+        }
+    }
+
+    private void append(JsonNode value) throws IOException {
+        out.append(String.valueOf(value));
+    }
+}
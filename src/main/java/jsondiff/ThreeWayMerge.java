@@ -0,0 +1,157 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Three-way merge of two versions of a JSON document that were derived from a common ancestor.
+ *
+ * The three trees are walked once, in lockstep. Objects on both sides are merged field by field, in the field
+ * order of our side followed by the fields only they added, and arrays element by element if all three
+ * have the same length. Every other value is decided directly: a value that is equal on both sides, or
+ * changed on only one side, is taken from that side, and any other change on both sides is a conflict,
+ * which keeps our value. Where a merged object or array turns out to consist of exactly the children of
+ * one side, that side's node is returned instead, so unchanged and one-sided subtrees are shared with the
+ * inputs rather than copied. No fingerprints are computed: each node is visited once by the walk, and the
+ * equality checks of the remaining values stop at their first difference, starting with the sizes of
+ * arrays.
+ */
+final class ThreeWayMerge {
+
+    private final JsonNode base;
+    private final JsonNode ours;
+    private final JsonNode theirs;
+    private final PathFormat pathFormat;
+    private final PathStack path = new PathStack(null);
+    private final List<MergeConflict> conflicts = new ArrayList<>();
+
+    ThreeWayMerge(JsonNode base, JsonNode ours, JsonNode theirs, PathFormat pathFormat) {
+        this.base = base;
+        this.ours = ours;
+        this.theirs = theirs;
+        this.pathFormat = pathFormat;
+    }
+
+    /**
+     * @return The merged document and the conflicts.
+     */
+    MergeResult merge() {
+        JsonNode merged = mergeValues(base, ours, theirs);
+        return new MergeResult(merged, conflicts);
+    }
+
+    /**
+     * This method merges the values at the current path, any of which may be absent.
+     *
+     * @param baseValue   The value in the common ancestor, or null.
+     * @param ourValue    Our value, or null.
+     * @param theirValue  Their value, or null.
+     * @return The merged value, or null if it is absent.
+     */
+    private JsonNode mergeValues(JsonNode baseValue, JsonNode ourValue, JsonNode theirValue) {
+        if (ourValue != null && theirValue != null) {
+            if (ourValue.isObject() && theirValue.isObject() && (baseValue == null || baseValue.isObject())) {
+                return mergeObjects(baseValue, ourValue, theirValue);
+            }
+            if (ourValue.isArray() && theirValue.isArray() && baseValue != null && baseValue.isArray()
+                    && baseValue.size() == ourValue.size() && baseValue.size() == theirValue.size()) {
+                return mergeArrays(baseValue, ourValue, theirValue);
+            }
+        }
+        if (same(ourValue, theirValue) || same(baseValue, theirValue)) {
+            return ourValue;
+        }
+        if (same(baseValue, ourValue)) {
+            return theirValue;
+        }
+        conflicts.add(new MergeConflict(path.snapshot(), pathFormat, baseValue, ourValue, theirValue));
+        return ourValue;
+    }
+
+    private JsonNode mergeObjects(JsonNode baseObject, JsonNode ourObject, JsonNode theirObject) {
+        ObjectNode merged = JsonNodeFactory.instance.objectNode();
+        Iterator<Map.Entry<String, JsonNode>> ourFields = ourObject.fields();
+        while (ourFields.hasNext()) {
+            Map.Entry<String, JsonNode> field = ourFields.next();
+            mergeField(merged, field.getKey(), baseObject, field.getValue(), theirObject.get(field.getKey()));
+        }
+        Iterator<Map.Entry<String, JsonNode>> theirFields = theirObject.fields();
+        while (theirFields.hasNext()) {
+            Map.Entry<String, JsonNode> field = theirFields.next();
+            if (!ourObject.has(field.getKey())) {
+                mergeField(merged, field.getKey(), baseObject, null, field.getValue());
+            }
+        }
+        if (sameChildren(merged, ourObject)) {
+            return ourObject;
+        }
+        return sameChildren(merged, theirObject) ? theirObject : merged;
+    }
+
+    private void mergeField(ObjectNode merged, String fieldName, JsonNode baseObject, JsonNode ourValue,
+                            JsonNode theirValue) {
+        path.pushField(fieldName);
+        JsonNode value = mergeValues(baseObject != null ? baseObject.get(fieldName) : null, ourValue, theirValue);
+        if (value != null) {
+            merged.set(fieldName, value);
+        }
+        path.pop();
+    }
+
+    private JsonNode mergeArrays(JsonNode baseArray, JsonNode ourArray, JsonNode theirArray) {
+        ArrayNode merged = JsonNodeFactory.instance.arrayNode(ourArray.size());
+        path.pushIndex(0);
+        for (int i = 0; i < ourArray.size(); i++) {
+            path.setIndex(i);
+            merged.add(mergeValues(baseArray.get(i), ourArray.get(i), theirArray.get(i)));
+        }
+        path.pop();
+        if (sameChildren(merged, ourArray)) {
+            return ourArray;
+        }
+        return sameChildren(merged, theirArray) ? theirArray : merged;
+    }
+
+    /**
+     * This method checks whether a merged container holds exactly the child nodes of an input container, so
+     * that the input can be returned in its place.
+     */
+    private static boolean sameChildren(JsonNode merged, JsonNode input) {
+        if (merged.size() != input.size()) {
+            return false;
+        }
+        if (merged.isArray()) {
+            for (int i = 0; i < merged.size(); i++) {
+                if (merged.get(i) != input.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = merged.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue() != input.get(field.getKey())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method checks whether two values, either of which may be absent, are equal.
+     */
+    private static boolean same(JsonNode value1, JsonNode value2) {
+        if (value1 == null || value2 == null) {
+            return value1 == value2;
+        }
+        return value1 == value2 || value1.equals(value2);
+    }
+}
@@ -0,0 +1,164 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * Rule that decides whether two scalar values that are not exactly equal should still be treated as equal.
+ *
+ * A comparator is only consulted for leaf values that differ according to {@link JsonNode#equals}, so
+ * equal values never reach it. It may also be called with an object or array on one side when the types of
+ * two values differ, and should return false unless it explicitly handles them. Comparators are set for
+ * all values or per path through {@link DiffOptions.Builder#valueComparator}, and must be thread-safe.
+ */
+@FunctionalInterface
+public interface ValueComparator {
+
+    /**
+     * This method decides whether two values that are not exactly equal are equivalent.
+     *
+     * @param left  The value in the first JSON.
+     * @param right The value in the second JSON.
+     * @return True if the values should not be reported as a mismatch.
+     */
+    boolean equivalent(JsonNode left, JsonNode right);
+
+    /**
+     * This method combines this comparator with another one.
+     *
+     * @param other The comparator to try if this one does not consider the values equivalent.
+     * @return A comparator accepting the values accepted by either comparator.
+     */
+    default ValueComparator or(ValueComparator other) {
+        return (left, right) -> equivalent(left, right) || other.equivalent(left, right);
+    }
+
+    /**
+     * @return A comparator that treats numbers of the same value as equal regardless of their representation,
+     * so {@code 1}, {@code 1.0} and a long 1 are equivalent.
+     */
+    static ValueComparator numeric() {
+        return numeric(0, 0);
+    }
+
+    /**
+     * This method creates a comparator for numbers that differ by floating-point noise. Integral numbers
+     * that fit in a long are compared as longs and all other numbers as doubles, without boxing. Two numbers
+     * are equivalent if they differ by at most the absolute tolerance, or by at most the relative tolerance
+     * times the larger magnitude.
+     *
+     * @param absolute The absolute tolerance, at least 0.
+     * @param relative The relative tolerance, at least 0, e.g. 1e-9.
+     * @return The comparator.
+     * @throws IllegalArgumentException If a tolerance is negative or not a number.
+     */
+    static ValueComparator numeric(double absolute, double relative) {
+        if (!(absolute >= 0)) {
+            throw new IllegalArgumentException("absolute must be at least 0, was " + absolute);
+        }
+        if (!(relative >= 0)) {
+            throw new IllegalArgumentException("relative must be at least 0, was " + relative);
+        }
+        ValueComparator comparator = (left, right) -> left.isNumber() && right.isNumber()
+                && numbersWithin(left, right, absolute, relative);
+        if (absolute == 0 && relative == 0) {
+            // adding 0.0 turns -0.0 into 0.0, which compares equal to it
+            return new NormalizedComparator(comparator, value -> value.isNumber()
+                    ? StructuralHash.mix(NormalizedComparator.NUMBER_SEED + Double.doubleToLongBits(value.doubleValue() + 0.0))
+                    : StructuralHash.ofScalar(value));
+        }
+        // numbers within a tolerance have no common normal form, so they share one bucket
+        return new NormalizedComparator(comparator, value -> value.isNumber()
+                ? NormalizedComparator.NUMBER_SEED
+                : StructuralHash.ofScalar(value));
+    }
+
+    /**
+     * @return A comparator that treats strings that differ only in case as equal.
+     */
+    static ValueComparator caseInsensitive() {
+        return new NormalizedComparator(
+                (left, right) -> left.isTextual() && right.isTextual() && left.textValue().equalsIgnoreCase(right.textValue()),
+                value -> value.isTextual() ? StructuralHash.mix(NormalizedComparator.TEXT_SEED + foldedHash(value.textValue()))
+                        : StructuralHash.ofScalar(value));
+    }
+
+    /**
+     * @return A comparator that treats ISO-8601 date-times as equal if they denote the same instant, such as
+     * {@code 2024-01-01T10:00:00Z} and {@code 2024-01-01T12:00:00.000+02:00}. Date-times without an offset
+     * are only equivalent to date-times without an offset that denote the same local time.
+     */
+    static ValueComparator isoTimestamp() {
+        return new NormalizedComparator((left, right) -> {
+            if (!left.isTextual() || !right.isTextual()) {
+                return false;
+            }
+            try {
+                TemporalAccessor time1 = DateTimeFormatter.ISO_DATE_TIME.parse(left.textValue());
+                TemporalAccessor time2 = DateTimeFormatter.ISO_DATE_TIME.parse(right.textValue());
+                boolean zoned1 = time1.isSupported(ChronoField.OFFSET_SECONDS);
+                if (zoned1 != time2.isSupported(ChronoField.OFFSET_SECONDS)) {
+                    return false;
+                }
+                return zoned1
+                        ? Instant.from(time1).equals(Instant.from(time2))
+                        : LocalDateTime.from(time1).equals(LocalDateTime.from(time2));
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }, value -> {
+            if (value.isTextual()) {
+                try {
+                    TemporalAccessor time = DateTimeFormatter.ISO_DATE_TIME.parse(value.textValue());
+                    return time.isSupported(ChronoField.OFFSET_SECONDS)
+                            ? StructuralHash.mix(NormalizedComparator.TEXT_SEED + Instant.from(time).hashCode())
+                            : StructuralHash.mix(NormalizedComparator.NUMBER_SEED + LocalDateTime.from(time).hashCode());
+                } catch (DateTimeParseException e) {
+                    // not a date-time, so only an equal string is equivalent
+                }
+            }
+            return StructuralHash.ofScalar(value);
+        });
+    }
+
+    /**
+     * This method hashes a string folded the way {@link String#equalsIgnoreCase} compares it, code point by
+     * code point.
+     */
+    private static long foldedHash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = value.codePointAt(i);
+            hash ^= Character.toLowerCase(Character.toUpperCase(codePoint));
+            hash *= 0x100000001B3L;
+            i += Character.charCount(codePoint);
+        }
+        return hash;
+    }
+
+    private static boolean numbersWithin(JsonNode left, JsonNode right, double absolute, double relative) {
+        if (left.isIntegralNumber() && right.isIntegralNumber() && left.canConvertToLong() && right.canConvertToLong()) {
+            long long1 = left.longValue();
+            long long2 = right.longValue();
+            if (long1 == long2) {
+                return true;
+            }
+            if (absolute == 0 && relative == 0) {
+                return false;
+            }
+        }
+        double double1 = left.doubleValue();
+        double double2 = right.doubleValue();
+        if (double1 == double2) {
+            return true;
+        }
+        double difference = Math.abs(double1 - double2);
+        return difference <= absolute || difference <= relative * Math.max(Math.abs(double1), Math.abs(double2));
+    }
+}
@@ -0,0 +1,134 @@
+package jsondiff;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BatchDiffTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testPairByLineNumberInOrder() throws IOException {
+        StringBuilder lines1 = new StringBuilder();
+        StringBuilder lines2 = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            lines1.append("{\"id\": ").append(i).append(", \"value\": ").append(i).append("}\n");
+            if (i < 498) {
+                lines2.append("{\"value\": ").append(i % 10 == 0 ? -i : i).append(", \"id\": ").append(i).append("}\n\n");
+            }
+        }
+
+        List<RecordDiff> results = new ArrayList<>();
+        BatchDiff.builder().threads(4).maxInFlight(8).build()
+                .diff(stream(lines1.toString()), stream(lines2.toString()), results::add);
+
+        assertEquals(500, results.size());
+        for (int i = 0; i < 500; i++) {
+            RecordDiff result = results.get(i);
+            assertEquals(i, result.getLeftIndex());
+            if (i >= 498) {
+                assertEquals(RecordDiff.Status.MISSING, result.getStatus());
+            } else if (i % 10 == 0 && i > 0) {
+                assertEquals(RecordDiff.Status.CHANGED, result.getStatus());
+                assertEquals("value", result.getDifferences().get(0).getPath());
+            } else {
+                assertEquals(RecordDiff.Status.EQUAL, result.getStatus());
+            }
+        }
+
+        List<RecordDiff> unordered = new ArrayList<>();
+        BatchDiff.builder().threads(4).maxInFlight(8).ordered(false).build()
+                .diff(stream(lines1.toString()), stream(lines2.toString()), unordered::add);
+        unordered.sort(Comparator.comparingLong(RecordDiff::getLeftIndex));
+        assertEquals(summary(results), summary(unordered));
+    }
+
+    @Test
+    public void testPairByKeyThroughPartitions() throws IOException {
+        String lines1 = """
+                {"id": "a", "n": 1}
+                {"id": "b", "n": 2}
+                {"id": "c", "n": 3}
+                {"n": 4}
+                {"id": "a", "n": 5}
+                """;
+        String lines2 = """
+                {"id": "d", "n": 6}
+                {"id": "c", "n": 3}
+                {"id": "a", "n": 1}
+                {"id": "b", "n": 20}
+                """;
+        Path file1 = Files.writeString(directory.resolve("a.jsonl"), lines1);
+        Path file2 = Files.writeString(directory.resolve("b.jsonl"), lines2);
+
+        List<RecordDiff> results = new ArrayList<>();
+        BatchDiff.builder().keyField("id").partitions(3).threads(2).tempDirectory(directory).build()
+                .diff(file1, file2, results::add);
+
+        assertEquals(List.of(
+                "EQUAL a 0 2",
+                "CHANGED b 1 3",
+                "EQUAL c 2 1",
+                "MISSING null 3 -1",
+                "MISSING a 4 -1",
+                "EXTRA d -1 0"), results.stream()
+                .sorted(Comparator.comparingLong((RecordDiff result) -> result.getLeftIndex() < 0 ? 1 : 0)
+                        .thenComparingLong(RecordDiff::getLeftIndex)
+                        .thenComparingLong(RecordDiff::getRightIndex))
+                .map(BatchDiffTest::summary)
+                .collect(Collectors.toList()));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    public void testKeysKeepTheirType() throws IOException {
+        List<RecordDiff> results = new ArrayList<>();
+        BatchDiff.builder().keyField("id").partitions(1).threads(2).tempDirectory(directory).build()
+                .diff(stream("{\"id\": \"1\", \"n\": 1}\n{\"id\": true}\n"),
+                        stream("{\"id\": 1, \"n\": 1}\n{\"id\": \"true\"}\n"), results::add);
+
+        assertEquals(List.of("MISSING 1 0 -1", "MISSING true 1 -1", "EXTRA 1 -1 0", "EXTRA true -1 1"), results.stream()
+                .sorted(Comparator.comparingLong((RecordDiff result) -> result.getLeftIndex() < 0 ? 1 : 0)
+                        .thenComparingLong(RecordDiff::getLeftIndex)
+                        .thenComparingLong(RecordDiff::getRightIndex))
+                .map(BatchDiffTest::summary)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testInvalidRecordFails() {
+        BatchDiff batchDiff = BatchDiff.builder().threads(2).build();
+
+        assertThrows(IOException.class, () -> batchDiff.diff(stream("{\"a\": 1}\n{\"a\": \n"), stream("{\"a\": 1}\n{\"a\": 2}\n"), result -> { }));
+    }
+
+    private static String summary(List<RecordDiff> results) {
+        return results.stream().map(BatchDiffTest::summary).collect(Collectors.joining("\n"));
+    }
+
+    private static String summary(RecordDiff result) {
+        return result.getStatus() + " " + result.getKey() + " " + result.getLeftIndex() + " " + result.getRightIndex();
+    }
+
+    private static InputStream stream(String lines) {
+        return new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8));
+    }
+}
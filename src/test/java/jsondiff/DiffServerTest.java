@@ -0,0 +1,137 @@
+package jsondiff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DiffServerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    public void testEndpoints() throws Exception {
+        try (DiffServer server = DiffServer.builder().port(0).build().start()) {
+            String documents = "{\"left\": {\"a\": 1, \"b\": [1, 2]}, \"right\": {\"a\": 2, \"b\": [1, 2], \"c\": true}}";
+
+            JsonNode diff = post(server, "/diff", documents, 200);
+            assertEquals(mapper.readTree("{\"differences\": [{\"kind\": \"VALUE_MISMATCH\", \"path\": \"a\", \"left\": 1, \"right\": 2},"
+                    + " {\"kind\": \"EXTRA\", \"path\": \"c\", \"right\": true}]}"), diff);
+            assertFalse(post(server, "/equal", documents, 200).get("equal").booleanValue());
+            assertTrue(post(server, "/subset", "{\"left\": {\"a\": 1}, \"right\": {\"a\": 1, \"b\": 2}}", 200).get("subset").booleanValue());
+            assertEquals(mapper.readTree("[{\"op\": \"replace\", \"path\": \"/a\", \"value\": 2}, {\"op\": \"add\", \"path\": \"/c\", \"value\": true}]"),
+                    post(server, "/patch", documents, 200).get("patch"));
+
+            JsonNode batch = post(server, "/batch", "[{\"op\": \"equal\", \"left\": 1, \"right\": 1}, {\"op\": \"merge\"},"
+                    + " {\"op\": \"diff\", \"left\": [1], \"right\": []}]", 200);
+            assertEquals(3, batch.size());
+            assertTrue(batch.get(0).get("equal").booleanValue());
+            assertTrue(batch.get(1).has("error"));
+            assertEquals("MISSING", batch.get(2).get("differences").get(0).get("kind").asText());
+
+            assertTrue(post(server, "/diff", "{\"left\": 1", 400).has("error"));
+            assertTrue(post(server, "/diff", "{\"left\": 1}", 400).has("error"));
+            assertTrue(post(server, "/batch", "{}", 400).has("error"));
+            assertTrue(post(server, "/merge", documents, 404).has("error"));
+            HttpResponse<String> get = client.send(HttpRequest.newBuilder(uri(server, "/diff")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(405, get.statusCode());
+        }
+    }
+
+    @Test
+    public void testLimitsBytesInFlight() throws Exception {
+        try (DiffServer server = DiffServer.builder().port(0).maxRequestBytes(64).maxBytesInFlight(128).build().start()) {
+            assertTrue(post(server, "/equal", "{\"left\": \"" + "x".repeat(100) + "\", \"right\": 1}", 413).has("error"));
+        }
+
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        Semaphore entered = new Semaphore(0);
+        CountDownLatch gate = new CountDownLatch(1);
+        JsonDiff blocking = new JsonDiff(DiffOptions.builder().valueComparator((left, right) -> {
+            peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+            entered.release();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            active.decrementAndGet();
+            return true;
+        }).build());
+        int length = "{\"left\": 100, \"right\": -1}".length();
+        try (DiffServer server = DiffServer.builder().jsonDiff(blocking).port(0).maxRequestBytes(length)
+                .maxBytesInFlight(3 * length + length / 2).admissionTimeout(Duration.ofMinutes(1)).build().start()) {
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 100; i < 120; i++) {
+                responses.add(client.sendAsync(request(server, "/equal", "{\"left\": " + i + ", \"right\": -1}"),
+                        HttpResponse.BodyHandlers.ofString()));
+            }
+            entered.acquire(3);
+            assertFalse(entered.tryAcquire(200, TimeUnit.MILLISECONDS), "A fourth request was admitted");
+            gate.countDown();
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                assertEquals("{\"equal\":true}", response.get().body());
+            }
+            assertEquals(3, peak.get());
+        }
+        assertThrows(IllegalStateException.class,
+                () -> DiffServer.builder().maxRequestBytes(2048).maxBytesInFlight(1024).build());
+    }
+
+    @Test
+    public void testFailingComparisonIsAnsweredWithAnError() throws Exception {
+        JsonDiff failing = new JsonDiff(DiffOptions.builder().valueComparator((left, right) -> {
+            throw new IllegalStateException("broken comparator");
+        }).build());
+        try (DiffServer server = DiffServer.builder().jsonDiff(failing).port(0).build().start()) {
+            assertTrue(post(server, "/diff", "{\"left\": {\"a\": 1}, \"right\": {\"a\": 2}}", 500).get("error").asText()
+                    .contains("broken comparator"));
+
+            JsonNode batch = post(server, "/batch", "[{\"op\": \"equal\", \"left\": 1, \"right\": 1},"
+                    + " {\"op\": \"diff\", \"left\": [1], \"right\": [2]}, {\"op\": \"subset\", \"left\": {}, \"right\": {}}]", 200);
+            assertEquals(3, batch.size());
+            assertTrue(batch.get(0).get("equal").booleanValue());
+            assertTrue(batch.get(1).get("error").asText().contains("broken comparator"));
+            assertTrue(batch.get(2).get("subset").booleanValue());
+
+            JsonNode truncated = post(server, "/batch", "[{\"op\": \"equal\", \"left\": 1, \"right\": 1}, {\"op\": ", 200);
+            assertEquals(2, truncated.size());
+            assertTrue(truncated.get(1).has("error"));
+        }
+    }
+
+    private JsonNode post(DiffServer server, String path, String body, int status) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request(server, path, body), HttpResponse.BodyHandlers.ofString());
+        assertEquals(status, response.statusCode());
+        return mapper.readTree(response.body());
+    }
+
+    private static HttpRequest request(DiffServer server, String path, String body) {
+        return HttpRequest.newBuilder(uri(server, path)).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private static URI uri(DiffServer server, String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+}
@@ -1,13 +1,47 @@
 package jsondiff;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 public class JsonDiffTest {
 
@@ -258,4 +292,1055 @@ public class JsonDiffTest {
 
         assertTrue(jsonDiff.isSubset(json1, json2), "Expected identical JSONs to be subsets of each other");
     }
+
+    @Test
+    public void testStreamingDiffMatchesTreeDiff() throws IOException {
+        String json1 = """
+                {
+                  "person": {
+                    "name": "John",
+                    "age": 25,
+                    "skills": ["coding", "design", "testing"],
+                    "address": {
+                      "city": "New York",
+                      "zip": "10001"
+                    }
+                  },
+                  "active": true
+                }
+                """;
+
+        String json2 = """
+                {
+                  "active": false,
+                  "person": {
+                    "address": {
+                      "zip": "90001",
+                      "city": "Los Angeles"
+                    },
+                    "skills": ["coding", "writing"],
+                    "name": "John",
+                    "country": "USA"
+                  }
+                }
+                """;
+
+        String streamingDiff = jsonDiff.getDiff(stream(json1), stream(json2));
+        String treeDiff = jsonDiff.getDiff(json1, json2);
+
+        assertEquals(sortedLines(treeDiff), sortedLines(streamingDiff));
+        assertTrue(streamingDiff.contains("Missing in second JSON: person.age"));
+        assertTrue(streamingDiff.contains("Extra in second JSON: person.country"));
+        assertTrue(streamingDiff.contains("Missing in second JSON: \"testing\""));
+    }
+
+    @Test
+    public void testStreamingDiffWithIdenticalJson() throws IOException {
+        String json1 = "{\"name\": \"Bob\", \"tags\": [1, 2, {\"a\": null}]}";
+        String json2 = "{\"tags\": [1, 2, {\"a\": null}], \"name\": \"Bob\"}";
+
+        assertTrue(jsonDiff.getDiff(stream(json1), stream(json2)).isEmpty(), "Expected no differences for reordered fields");
+    }
+
+    @Test
+    public void testStreamingDiffWithTypeMismatch() throws IOException {
+        String json1 = "{\"value\": [1, 2]}";
+        String json2 = "{\"value\": {\"a\": 1}}";
+
+        String diff = jsonDiff.getDiff(stream(json1), stream(json2));
+
+        assertTrue(diff.contains("Value mismatch at value: [1,2] vs {\"a\":1}"));
+    }
+
+    @Test
+    public void testDifferencesAsEntries() throws IOException {
+        String json1 = "{\"name\": \"John\", \"age\": 25, \"skills\": [\"coding\", \"design\"]}";
+        String json2 = "{\"name\": \"John\", \"age\": 26, \"skills\": [\"coding\"], \"country\": \"USA\"}";
+
+        List<DiffEntry> differences = jsonDiff.getDifferences(json1, json2);
+
+        assertEquals(3, differences.size());
+        assertEquals(DiffEntry.Kind.VALUE_MISMATCH, differences.get(0).getKind());
+        assertEquals("age", differences.get(0).getPath());
+        assertEquals(25, differences.get(0).getLeft().asInt());
+        assertEquals(26, differences.get(0).getRight().asInt());
+        assertEquals(DiffEntry.Kind.MISSING, differences.get(1).getKind());
+        assertEquals("skills[1]", differences.get(1).getPath());
+        assertEquals(DiffEntry.Kind.EXTRA, differences.get(2).getKind());
+        assertEquals("country", differences.get(2).getPath());
+    }
+
+    @Test
+    public void testListenerReceivesDifferencesInOrder() throws IOException {
+        JsonNode node1 = mapper.readTree("{\"a\": 1, \"b\": {\"c\": 2}}");
+        JsonNode node2 = mapper.readTree("{\"a\": 2, \"b\": {\"c\": 3}}");
+
+        List<String> paths = new ArrayList<>();
+        jsonDiff.diff(node1, node2, entry -> paths.add(entry.getPath()));
+
+        assertEquals(List.of("a", "b.c"), paths);
+    }
+
+    @Test
+    public void testMaxDifferencesStopsComparison() throws IOException {
+        JsonDiff limitedDiff = new JsonDiff(DiffOptions.builder().maxDifferences(2).build());
+        String json1 = "{\"a\": 1, \"b\": 2, \"c\": 3, \"d\": [1, 2, 3]}";
+        String json2 = "{\"a\": 9, \"b\": 9, \"c\": 9, \"d\": [9, 9, 9]}";
+
+        List<DiffEntry> differences = limitedDiff.getDifferences(json1, json2);
+
+        assertEquals(2, differences.size());
+        assertEquals("a", differences.get(0).getPath());
+        assertEquals("b", differences.get(1).getPath());
+        assertEquals(2, limitedDiff.getDiff(stream(json1), stream(json2)).lines().count());
+    }
+
+    @Test
+    public void testIsEqualWithReorderedAndReformattedJson() throws IOException {
+        String json1 = "{\"name\": \"John\", \"tags\": [1, 2], \"age\": 25}";
+        String json2 = "{ \"age\":25,\n  \"name\":\"John\", \"tags\":[1,2] }";
+
+        assertTrue(jsonDiff.isEqual(json1, json2), "Expected reordered JSONs to be equal");
+        assertFalse(jsonDiff.isEqual(json1, "{\"name\": \"Jane\", \"tags\": [1, 2], \"age\": 25}"));
+        assertFalse(jsonDiff.isEqual("[1, 2, 3]", "[1, 2]"));
+    }
+
+    @Test
+    public void testLcsAlignmentReportsInsertionOnly() {
+        ArrayNode array1 = mapper.createArrayNode();
+        ArrayNode array2 = mapper.createArrayNode();
+        array2.add("inserted");
+        for (int i = 0; i < 1000; i++) {
+            array1.add(i);
+            array2.add(i);
+        }
+        array1.add("removed");
+
+        JsonDiff lcsDiff = new JsonDiff(DiffOptions.builder().arrayAlignment(ArrayAlignment.LCS).build());
+        List<DiffEntry> differences = lcsDiff.getDifferences(array1, array2);
+
+        assertEquals(2, differences.size());
+        assertEquals(DiffEntry.Kind.MISSING, differences.get(0).getKind());
+        assertEquals("[1000]", differences.get(0).getPath());
+        assertEquals(DiffEntry.Kind.EXTRA, differences.get(1).getKind());
+        assertEquals("[0]", differences.get(1).getPath());
+        assertEquals(1001, jsonDiff.getDifferences(array1, array2).size());
+    }
+
+    @Test
+    public void testLcsAlignmentReportsMovesAndModifications() throws IOException {
+        JsonDiff lcsDiff = new JsonDiff(DiffOptions.builder().arrayAlignment(ArrayAlignment.LCS).build());
+        String json1 = "[\"a\", \"b\", \"c\", {\"x\": 1}, \"d\"]";
+        String json2 = "[\"a\", \"c\", {\"x\": 2}, \"d\", \"b\"]";
+
+        List<DiffEntry> differences = lcsDiff.getDifferences(json1, json2);
+
+        assertEquals(2, differences.size());
+        assertEquals(DiffEntry.Kind.MOVED, differences.get(0).getKind());
+        assertEquals("[1]", differences.get(0).getFromPath());
+        assertEquals("[4]", differences.get(0).getPath());
+        assertEquals(DiffEntry.Kind.VALUE_MISMATCH, differences.get(1).getKind());
+        assertEquals("[3].x", differences.get(1).getPath());
+    }
+
+    @Test
+    public void testKeyAlignmentMatchesElementsById() throws IOException {
+        JsonDiff keyDiff = new JsonDiff(DiffOptions.builder().arrayIdentityKey("id").build());
+        String json1 = "{\"users\": [{\"id\": 1, \"name\": \"a\"}, {\"id\": 2, \"name\": \"b\"}, {\"id\": 3, \"name\": \"c\"}]}";
+        String json2 = "{\"users\": [{\"id\": 4, \"name\": \"d\"}, {\"id\": 2, \"name\": \"B\"}, {\"id\": 1, \"name\": \"a\"}]}";
+
+        List<DiffEntry> differences = keyDiff.getDifferences(json1, json2);
+
+        assertEquals(4, differences.size());
+        assertEquals(DiffEntry.Kind.MOVED, differences.get(0).getKind());
+        assertEquals("users[0]", differences.get(0).getFromPath());
+        assertEquals("users[2]", differences.get(0).getPath());
+        assertEquals(DiffEntry.Kind.VALUE_MISMATCH, differences.get(1).getKind());
+        assertEquals("users[1].name", differences.get(1).getPath());
+        assertEquals(DiffEntry.Kind.MISSING, differences.get(2).getKind());
+        assertEquals("users[2]", differences.get(2).getPath());
+        assertEquals(DiffEntry.Kind.EXTRA, differences.get(3).getKind());
+        assertEquals("users[0]", differences.get(3).getPath());
+    }
+
+    @Test
+    public void testParallelDiffMatchesSequentialDiff() {
+        ObjectNode node1 = mapper.createObjectNode();
+        ObjectNode node2 = mapper.createObjectNode();
+        for (int i = 0; i < 200; i++) {
+            ArrayNode values1 = node1.putArray("field" + i);
+            ArrayNode values2 = node2.putArray("field" + i);
+            for (int j = 0; j < 50; j++) {
+                values1.add(j);
+                values2.add(j % 7 == i % 7 ? j + 1 : j);
+            }
+            if (i % 11 == 0) {
+                values2.add("extra");
+            }
+        }
+        node1.put("onlyInFirst", true);
+        node2.put("onlyInSecond", true);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DiffOptions parallel = DiffOptions.builder().parallel(pool).parallelThreshold(8).build();
+            assertEquals(jsonDiff.getDiff(node1, node2), new JsonDiff(parallel).getDiff(node1, node2));
+
+            DiffOptions limited = DiffOptions.builder().maxDifferences(25).build();
+            assertEquals(new JsonDiff(limited).getDiff(node1, node2),
+                    new JsonDiff(limited.toBuilder().parallel(pool).parallelThreshold(8).build()).getDiff(node1, node2));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testFingerprintIndexReusedAcrossComparisons() throws IOException {
+        JsonNode baseline = mapper.readTree("{\"a\": {\"b\": [1, 2, {\"c\": \"d\"}]}, \"e\": 1.5, \"f\": [true, null]}");
+        FingerprintIndex index = FingerprintIndex.of(baseline);
+
+        JsonNode same = mapper.readTree("{\"f\": [true, null], \"e\": 1.5, \"a\": {\"b\": [1, 2, {\"c\": \"d\"}]}}");
+        JsonNode changed = mapper.readTree("{\"a\": {\"b\": [1, 2, {\"c\": \"x\"}]}, \"e\": 1.5, \"f\": [true, null]}");
+
+        assertEquals(index.fingerprint(baseline), FingerprintIndex.of(same).fingerprint(same));
+        assertTrue(jsonDiff.isEqual(index, same));
+        assertFalse(jsonDiff.isEqual(index, changed));
+        assertTrue(jsonDiff.getDiff(index, same).isEmpty());
+        assertEquals(jsonDiff.getDiff(baseline, changed), jsonDiff.getDiff(index, changed));
+        assertFalse(jsonDiff.isEqual(index, mapper.readTree("{\"a\": {\"b\": [1, 2, {\"c\": \"d\"}]}, \"e\": 1, \"f\": [true, null]}")));
+    }
+
+    @Test
+    public void testPreparedBaselineMatchesGetDiff() throws IOException {
+        String golden = """
+                {
+                  "person": {
+                    "name": "John",
+                    "skills": ["coding", "design"],
+                    "address": {"city": "New York", "zip": "10001"}
+                  },
+                  "tags": [1, 2, 3]
+                }
+                """;
+        String candidate = """
+                {
+                  "person": {
+                    "name": "John",
+                    "skills": ["coding"],
+                    "address": {"city": "Los Angeles", "zip": "10001"},
+                    "age": 30
+                  },
+                  "tags": [1, 2, 3]
+                }
+                """;
+
+        PreparedBaseline baseline = jsonDiff.prepare(golden);
+
+        assertEquals(jsonDiff.getDiff(golden, candidate), baseline.diffAgainst(candidate));
+        assertEquals(3, baseline.getDifferences(candidate).size());
+        assertTrue(baseline.diffAgainst(golden).isEmpty());
+        assertTrue(baseline.isEqualTo(golden));
+        assertFalse(baseline.isEqualTo(candidate));
+    }
+
+    @Test
+    public void testJsonPointerPathFormat() throws IOException {
+        JsonDiff pointerDiff = new JsonDiff(DiffOptions.builder().pathFormat(PathFormat.JSON_POINTER).build());
+        String json1 = "{\"a/b\": {\"c~d\": [1, 2]}, \"e\": 1}";
+        String json2 = "{\"a/b\": {\"c~d\": [1, 3]}}";
+
+        List<DiffEntry> differences = pointerDiff.getDifferences(json1, json2);
+
+        assertEquals(2, differences.size());
+        assertEquals("/a~1b/c~0d/1", differences.get(0).getPath());
+        assertEquals("a/b.c~d[1]", differences.get(0).getDiffPath().toString());
+        assertEquals(3, differences.get(0).getDepth());
+        assertEquals("/e", differences.get(1).getPath());
+        List<DiffEntry> streamed = new ArrayList<>();
+        pointerDiff.diff(stream(json1), stream(json2), streamed::add);
+        assertEquals(differences.stream().map(DiffEntry::getPath).collect(Collectors.toList()),
+                streamed.stream().map(DiffEntry::getPath).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testPlainAndCompactFormats() throws IOException {
+        String json1 = "{\"person\": {\"age\": 25, \"skills\": [\"coding\", \"design\"]}, \"id\": 1}";
+        String json2 = "{\"person\": {\"age\": 26, \"skills\": [\"coding\"]}, \"country\": \"USA\"}";
+
+        StringWriter plain = new StringWriter();
+        jsonDiff.writeDiff(json1, json2, plain, DiffFormat.PLAIN);
+        assertEquals("    Value mismatch at person.age: 25 vs 26\n"
+                + "      Missing in second JSON: \"design\"\n"
+                + "  Missing in second JSON: id\n"
+                + "  Extra in second JSON: country\n", plain.toString());
+
+        StringBuilder compact = new StringBuilder();
+        jsonDiff.writeDiff(json1, json2, compact, DiffFormat.COMPACT);
+        assertEquals("~ person.age: 25 -> 26\n"
+                + "- person.skills[1]: \"design\"\n"
+                + "- id: 1\n"
+                + "+ country: \"USA\"\n", compact.toString());
+
+        StringBuilder ansi = new StringBuilder();
+        jsonDiff.writeDiff(json1, json2, ansi, DiffFormat.ANSI);
+        assertEquals(jsonDiff.getDiff(json1, json2), ansi.toString());
+    }
+
+    @Test
+    public void testPatchRoundTrip() throws IOException {
+        String json1 = """
+                {
+                  "name": "John",
+                  "a/b": 1,
+                  "tags": ["x", "y", "z", "w"],
+                  "address": {"city": "New York", "zip": "10001"},
+                  "items": [{"id": 1}]
+                }
+                """;
+        String json2 = """
+                {
+                  "name": "Jane",
+                  "tags": ["x"],
+                  "address": {"city": "New York"},
+                  "items": [{"id": 2}, {"id": 3}],
+                  "age": 30
+                }
+                """;
+
+        JsonPatch patch = jsonDiff.getPatch(json1, json2);
+
+        assertEquals(mapper.readTree("""
+                [
+                  {"op": "replace", "path": "/name", "value": "Jane"},
+                  {"op": "remove", "path": "/a~1b"},
+                  {"op": "remove", "path": "/tags/3"},
+                  {"op": "remove", "path": "/tags/2"},
+                  {"op": "remove", "path": "/tags/1"},
+                  {"op": "remove", "path": "/address/zip"},
+                  {"op": "replace", "path": "/items/0/id", "value": 2},
+                  {"op": "add", "path": "/items/1", "value": {"id": 3}},
+                  {"op": "add", "path": "/age", "value": 30}
+                ]
+                """), patch.toJson());
+
+        JsonNode target = mapper.readTree(json1);
+        JsonNode patched = JsonPatch.fromJson(patch.toJson()).apply(target);
+        assertTrue(jsonDiff.isEqual(mapper.readTree(json2), patched));
+        assertTrue(jsonDiff.getPatch(json2, json2).isEmpty());
+        assertEquals(mapper.readTree("[1]"), jsonDiff.getPatch("{}", "[1]").apply(mapper.readTree("{}")));
+    }
+
+    @Test
+    public void testPatchApplyOperations() throws IOException {
+        JsonPatch patch = JsonPatch.fromJson(mapper.readTree("""
+                [
+                  {"op": "test", "path": "/a/0", "value": 1},
+                  {"op": "add", "path": "/a/-", "value": 4},
+                  {"op": "add", "path": "/a/0", "value": 0},
+                  {"op": "move", "from": "/b", "path": "/c"},
+                  {"op": "copy", "from": "/c", "path": "/d"}
+                ]
+                """));
+
+        JsonNode patched = patch.apply(mapper.readTree("{\"a\": [1, 2, 3], \"b\": {\"x\": true}}"));
+
+        assertEquals(mapper.readTree("{\"a\": [0, 1, 2, 3, 4], \"c\": {\"x\": true}, \"d\": {\"x\": true}}"), patched);
+        assertThrows(IllegalArgumentException.class, () -> patch.apply(mapper.readTree("{\"a\": [2]}")));
+        assertThrows(IllegalArgumentException.class,
+                () -> JsonPatch.of(List.of(PatchOperation.remove("/a/5"))).apply(mapper.readTree("{\"a\": [1]}")));
+    }
+
+    @Test
+    public void testIsSubsetIsRecursive() throws IOException {
+        String superset = """
+                {
+                  "person": {"name": "John", "address": {"city": "New York", "zip": "10001"}},
+                  "tags": ["a", "b", "c", "d"],
+                  "items": [{"id": 1, "price": 5}, {"id": 2, "price": 7}]
+                }
+                """;
+
+        assertTrue(jsonDiff.isSubset("{\"person\": {\"address\": {\"city\": \"New York\"}}}", superset));
+        assertFalse(jsonDiff.isSubset("{\"person\": {\"address\": {\"city\": \"Boston\"}}}", superset));
+        assertTrue(jsonDiff.isSubset("{\"tags\": [\"a\", \"c\"], \"items\": [{\"id\": 2}]}", superset));
+        assertFalse(jsonDiff.isSubset("{\"tags\": [\"c\", \"a\"]}", superset));
+        assertFalse(jsonDiff.isSubset("{\"items\": [{\"id\": 2}, {\"id\": 1}]}", superset));
+
+        JsonDiff unordered = new JsonDiff(DiffOptions.builder().arrayContainment(ArrayContainment.UNORDERED).build());
+        assertTrue(unordered.isSubset("{\"tags\": [\"c\", \"a\"]}", superset));
+        assertTrue(unordered.isSubset("{\"items\": [{\"id\": 2}, {\"id\": 1, \"price\": 5}]}", superset));
+        assertFalse(unordered.isSubset("{\"tags\": [\"a\", \"a\"]}", superset));
+        assertFalse(unordered.isSubset("{\"items\": [{\"id\": 3}]}", superset));
+    }
+
+    @Test
+    public void testFileComparison(@TempDir Path directory) throws IOException {
+        String json1 = "{\"person\": {\"name\": \"John\", \"skills\": [\"coding\", \"design\"]}, \"age\": 25}";
+        String json2 = "{\"age\": 26, \"person\": {\"name\": \"John\", \"skills\": [\"coding\"]}}";
+        Path file1 = Files.writeString(directory.resolve("a.json"), json1);
+        Path file2 = Files.writeString(directory.resolve("b.json"), json2);
+        Path empty = Files.writeString(directory.resolve("empty.json"), "");
+
+        assertEquals(jsonDiff.getDiff(stream(json1), stream(json2)), jsonDiff.getDiff(file1, file2));
+        assertTrue(jsonDiff.isEqual(file1, file1));
+        assertFalse(jsonDiff.isEqual(file1, file2));
+        assertFalse(jsonDiff.isEqual(file1, empty));
+        assertTrue(jsonDiff.isEqual(empty, empty));
+
+        try (InputStream mapped = new MappedFileInputStream(file1, 7)) {
+            assertEquals(json1, new String(mapped.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testIgnoreAndIncludeRules() throws IOException {
+        String json1 = "{\"id\": \"r1\", \"timestamp\": 1, \"user\": {\"name\": \"A\", \"timestamp\": 2, "
+                + "\"metadata\": {\"etag\": \"x\", \"v\": 1}}, \"items\": [{\"id\": 1, \"created_at\": \"t1\", \"qty\": 1}, "
+                + "{\"id\": 2, \"created_at\": \"t2\", \"qty\": 2}]}";
+        String json2 = "{\"id\": \"r2\", \"timestamp\": 9, \"user\": {\"name\": \"B\", \"timestamp\": 3, "
+                + "\"metadata\": {\"etag\": \"y\", \"v\": 1}}, \"items\": [{\"id\": 1, \"created_at\": \"t9\", \"qty\": 5}, "
+                + "{\"id\": 2, \"created_at\": \"t8\", \"qty\": 2}], \"requestId\": \"q\"}";
+        String json3 = json2.replace("\"B\"", "\"A\"").replace("\"qty\": 5", "\"qty\": 1");
+        JsonDiff ignoringDiff = new JsonDiff(DiffOptions.builder()
+                .ignore("**.timestamp", "*.metadata.etag", "items[*].*_at")
+                .ignore("requestId", "id")
+                .build());
+
+        List<String> paths = ignoringDiff.getDifferences(json1, json2).stream()
+                .map(DiffEntry::getPath).collect(Collectors.toList());
+        assertEquals(List.of("user.name", "items[0].qty"), paths);
+        List<DiffEntry> streamed = new ArrayList<>();
+        ignoringDiff.diff(stream(json1), stream(json2), streamed::add);
+        assertEquals(paths, streamed.stream().map(DiffEntry::getPath).collect(Collectors.toList()));
+
+        assertTrue(ignoringDiff.isEqual(json1, json3));
+        assertTrue(ignoringDiff.isEqual(ignoringDiff.parseJson(json1), ignoringDiff.parseJson(json3)));
+        assertTrue(ignoringDiff.isEqual(FingerprintIndex.of(ignoringDiff.parseJson(json1)), ignoringDiff.parseJson(json3)));
+        assertFalse(ignoringDiff.isEqual(json1, json2));
+        assertFalse(jsonDiff.isEqual(json1, json3));
+
+        JsonDiff includingDiff = new JsonDiff(DiffOptions.builder()
+                .include("user.*", "items[1]")
+                .ignore("**.timestamp")
+                .build());
+        assertEquals(List.of("user.name", "user.metadata.etag", "items[1].created_at"),
+                includingDiff.getDifferences(json1, json2).stream().map(DiffEntry::getPath).collect(Collectors.toList()));
+
+        assertThrows(IllegalArgumentException.class, () -> DiffOptions.builder().ignore("items[x]").build());
+    }
+
+    @Test
+    public void testValueComparators() throws IOException {
+        String json1 = "{\"user\": {\"email\": \"A@X.COM\", \"updated\": \"2024-01-01T10:00:00Z\"}, "
+                + "\"metrics\": {\"cpu\": 1, \"exact\": 1, \"load\": 0.30000000000000004}, \"count\": 2}";
+        String json2 = "{\"user\": {\"email\": \"a@x.com\", \"updated\": \"2024-01-01T12:00:00.000+02:00\"}, "
+                + "\"metrics\": {\"cpu\": 1.2, \"exact\": 1.2, \"load\": 0.3}, \"count\": 2.0}";
+        JsonDiff relaxedDiff = new JsonDiff(DiffOptions.builder()
+                .valueComparator(ValueComparator.numeric(0, 1e-9))
+                .valueComparator("user.email", ValueComparator.caseInsensitive())
+                .valueComparator("**.updated", ValueComparator.isoTimestamp())
+                .valueComparator("metrics", ValueComparator.numeric(0.5, 0))
+                .valueComparator("metrics.exact", ValueComparator.numeric())
+                .build());
+
+        List<String> paths = relaxedDiff.getDifferences(json1, json2).stream()
+                .map(DiffEntry::getPath).collect(Collectors.toList());
+        assertEquals(List.of("metrics.exact"), paths);
+        List<DiffEntry> streamed = new ArrayList<>();
+        relaxedDiff.diff(stream(json1), stream(json2), streamed::add);
+        assertEquals(paths, streamed.stream().map(DiffEntry::getPath).collect(Collectors.toList()));
+        assertEquals(6, jsonDiff.getDifferences(json1, json2).size());
+
+        String json3 = json2.replace("\"exact\": 1.2", "\"exact\": 1.0");
+        assertTrue(relaxedDiff.isEqual(json1, json3));
+        assertTrue(relaxedDiff.isEqual(mapper.readTree(json1), mapper.readTree(json3)));
+        assertFalse(jsonDiff.isEqual(mapper.readTree(json1), mapper.readTree(json3)));
+
+        assertTrue(ValueComparator.numeric().equivalent(IntNode.valueOf(1), LongNode.valueOf(1)));
+        assertFalse(ValueComparator.numeric().equivalent(LongNode.valueOf(Long.MAX_VALUE), LongNode.valueOf(Long.MAX_VALUE - 1)));
+        assertFalse(ValueComparator.isoTimestamp().equivalent(mapper.readTree("\"2024-01-01T10:00:00\""),
+                mapper.readTree("\"2024-01-01T10:00:00Z\"")));
+        assertThrows(IllegalArgumentException.class, () -> ValueComparator.numeric(-1, 0));
+    }
+
+    @Test
+    public void testSharedInstanceAcrossThreads() throws IOException, InterruptedException, ExecutionException {
+        JsonFactory factory = JsonFactory.builder()
+                .disable(JsonFactory.Feature.CANONICALIZE_FIELD_NAMES)
+                .disable(JsonFactory.Feature.USE_THREAD_LOCAL_FOR_BUFFER_RECYCLING)
+                .build();
+        JsonDiff sharedDiff = JsonDiff.builder()
+                .options(DiffOptions.builder().ignore("**.ts").build())
+                .jsonFactory(factory)
+                .format(DiffFormat.COMPACT)
+                .build();
+        assertNull(factory.getCodec());
+        String json1 = "{\"ts\": 1, \"person\": {\"name\": \"John\", \"skills\": [\"coding\", \"design\"]}, \"age\": 25}";
+        String json2 = "{\"ts\": 2, \"person\": {\"name\": \"Jane\", \"skills\": [\"coding\"]}, \"age\": 25}";
+        StringWriter compact = new StringWriter();
+        sharedDiff.writeDiff(json1, json2, compact, DiffFormat.COMPACT);
+        String expected = sharedDiff.getDiff(json1, json2);
+        assertEquals(compact.toString(), expected);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(() -> expected.equals(sharedDiff.getDiff(json1, json2))
+                        && expected.equals(sharedDiff.getDiff(stream(json1), stream(json2)))
+                        && sharedDiff.isEqual(json1, json1.replace("\"ts\": 1", "\"ts\": 3"))
+                        && !sharedDiff.isEqual(json1, json2)));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMetricsListener() throws IOException, JMException {
+        List<DiffStats> stats = new ArrayList<>();
+        DiffMetrics totals = new DiffMetrics();
+        JsonDiff measuredDiff = JsonDiff.builder()
+                .metrics(entry -> {
+                    stats.add(entry);
+                    totals.onComparison(entry);
+                })
+                .build();
+        String json1 = "{\"person\": {\"name\": \"John\", \"skills\": [\"coding\", \"design\"]}, \"age\": 25, \"city\": \"A\"}";
+        String json2 = "{\"person\": {\"name\": \"Jane\", \"skills\": [\"coding\"]}, \"age\": 26, \"zip\": 1}";
+
+        assertEquals(jsonDiff.getDiff(json1, json2), measuredDiff.getDiff(json1, json2));
+        DiffStats treeStats = stats.get(0);
+        assertEquals(6, treeStats.getNodesVisited());
+        assertEquals(3, treeStats.getMaxDepth());
+        assertEquals(2, treeStats.getDifferences(DiffEntry.Kind.VALUE_MISMATCH));
+        assertEquals(2, treeStats.getDifferences(DiffEntry.Kind.MISSING));
+        assertEquals(1, treeStats.getDifferences(DiffEntry.Kind.EXTRA));
+        assertEquals(json1.length() + json2.length(), treeStats.getBytesParsed());
+        assertTrue(treeStats.getParseNanos() > 0 && treeStats.getCompareNanos() > 0 && treeStats.getRenderNanos() > 0);
+        assertEquals(List.of("person", "person.skills"), treeStats.getSlowestSubtrees().stream()
+                .map(subtree -> subtree.getPath().toString()).sorted().collect(Collectors.toList()));
+
+        measuredDiff.diff(stream(json1), stream(json2), entry -> { });
+        DiffStats streamStats = stats.get(1);
+        assertEquals(treeStats.getNodesVisited(), streamStats.getNodesVisited());
+        assertEquals(treeStats.getDifferenceCount(), streamStats.getDifferenceCount());
+        assertEquals(json1.length() + json2.length(), streamStats.getBytesParsed());
+        assertEquals(2, stats.size());
+
+        StringBuilder deep1 = new StringBuilder();
+        StringBuilder deep2 = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            deep1.append("{\"a\": ");
+            deep2.append("{\"a\": ");
+        }
+        deep1.append("[1, 2, 3, 4]").append("}".repeat(20));
+        deep2.append("[1, 2, 0, 4]").append("}".repeat(20));
+        JsonDiff parallelDiff = JsonDiff.builder()
+                .options(DiffOptions.builder().parallel(ForkJoinPool.commonPool()).parallelThreshold(2).build())
+                .metrics(stats::add)
+                .build();
+        parallelDiff.getDiff(deep1.toString(), deep2.toString());
+        assertEquals(25, stats.get(2).getNodesVisited());
+        assertEquals(21, stats.get(2).getMaxDepth());
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = totals.register("jsondiff:type=DiffMetrics,name=test");
+        try {
+            assertEquals(2L, server.getAttribute(name, "Comparisons"));
+            assertEquals(10L, server.getAttribute(name, "Differences"));
+            assertEquals(3, server.getAttribute(name, "MaxDepth"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void testUnorderedArrays() throws IOException {
+        JsonDiff unorderedDiff = new JsonDiff(DiffOptions.builder().arrayAlignment(ArrayAlignment.UNORDERED).build());
+        String tags1 = "{\"tags\": [\"a\", \"b\", \"c\", \"b\"], \"users\": [{\"id\": 1}, {\"id\": 2}]}";
+        String tags2 = "{\"tags\": [\"c\", \"b\", \"a\", \"d\"], \"users\": [{\"id\": 2}, {\"id\": 1, \"x\": 1}]}";
+
+        List<DiffEntry> differences = unorderedDiff.getDifferences(tags1, tags2);
+        assertEquals(4, differences.size());
+        assertEquals("tags[3]", differences.get(0).getPath());
+        assertEquals(DiffEntry.Kind.MISSING, differences.get(0).getKind());
+        assertEquals("\"b\"", differences.get(0).getLeft().toString());
+        assertEquals("tags[3]", differences.get(1).getPath());
+        assertEquals(DiffEntry.Kind.EXTRA, differences.get(1).getKind());
+        assertEquals("\"d\"", differences.get(1).getRight().toString());
+        assertEquals("users[0]", differences.get(2).getPath());
+        assertEquals(DiffEntry.Kind.MISSING, differences.get(2).getKind());
+        assertEquals("users[1]", differences.get(3).getPath());
+        assertEquals(DiffEntry.Kind.EXTRA, differences.get(3).getKind());
+
+        JsonDiff tagsDiff = new JsonDiff(DiffOptions.builder().arrayAlignment("**.tags", ArrayAlignment.UNORDERED).build());
+        String json1 = "{\"items\": [1, 2], \"meta\": {\"tags\": [1, 2, 2]}}";
+        String json2 = "{\"items\": [2, 1], \"meta\": {\"tags\": [2, 1, 2]}}";
+        assertEquals(List.of("items[0]", "items[1]"), tagsDiff.getDifferences(json1, json2).stream()
+                .map(DiffEntry::getPath).collect(Collectors.toList()));
+        String json3 = json1.replace("\"items\": [1, 2]", "\"items\": [2, 1]");
+        assertTrue(tagsDiff.isEqual(json3, json2));
+        assertTrue(tagsDiff.isEqual(mapper.readTree(json3), mapper.readTree(json2)));
+        assertFalse(jsonDiff.isEqual(json3, json2));
+        assertFalse(tagsDiff.isEqual(json3, json2.replace("[2, 1, 2]", "[2, 1, 1]")));
+
+        JsonNode patched = unorderedDiff.getPatch(tags1, tags2).apply(mapper.readTree(tags1));
+        assertEquals(mapper.readTree(tags2), patched);
+        assertThrows(IllegalStateException.class,
+                () -> DiffOptions.builder().arrayAlignment("ids", ArrayAlignment.KEY).build());
+    }
+
+    @Test
+    public void testThreeWayMerge() throws IOException {
+        String base = "{\"name\": \"svc\", \"replicas\": 2, \"env\": {\"A\": \"1\", \"B\": \"2\"}, "
+                + "\"ports\": [80, 443], \"labels\": [\"x\"], \"owner\": \"ops\"}";
+        String ours = "{\"name\": \"svc\", \"replicas\": 3, \"env\": {\"A\": \"1\", \"B\": \"3\"}, "
+                + "\"ports\": [8080, 443], \"labels\": [\"x\", \"y\"]}";
+        String theirs = "{\"name\": \"svc2\", \"replicas\": 2, \"env\": {\"A\": \"1\", \"B\": \"2\", \"C\": \"4\"}, "
+                + "\"ports\": [80, 8443], \"labels\": [\"x\"], \"owner\": \"ops\", \"team\": \"core\"}";
+
+        MergeResult result = jsonDiff.merge(base, ours, theirs);
+        assertFalse(result.hasConflicts());
+        assertEquals(mapper.readTree("{\"name\": \"svc2\", \"replicas\": 3, \"env\": {\"A\": \"1\", \"B\": \"3\", \"C\": \"4\"}, "
+                + "\"ports\": [8080, 8443], \"labels\": [\"x\", \"y\"], \"team\": \"core\"}"), result.getMerged());
+
+        String conflicting = theirs.replace("\"replicas\": 2", "\"replicas\": 5")
+                .replace("\"labels\": [\"x\"]", "\"labels\": [\"z\"]")
+                .replace("\"owner\": \"ops\"", "\"owner\": \"dev\"");
+        JsonDiff pointerDiff = new JsonDiff(DiffOptions.builder().pathFormat(PathFormat.JSON_POINTER).build());
+        MergeResult conflicted = pointerDiff.merge(base, ours, conflicting);
+        assertEquals(List.of("/replicas", "/labels", "/owner"), conflicted.getConflicts().stream()
+                .map(MergeConflict::getPath).collect(Collectors.toList()));
+        MergeConflict deleted = conflicted.getConflicts().get(2);
+        assertEquals("\"ops\"", deleted.getBase().toString());
+        assertNull(deleted.getOurs());
+        assertEquals("\"dev\"", deleted.getTheirs().toString());
+        assertEquals(3, conflicted.getMerged().get("replicas").asInt());
+        assertFalse(conflicted.getMerged().has("owner"));
+
+        JsonNode baseNode = mapper.readTree(base);
+        MergeResult unchanged = jsonDiff.merge(baseNode, baseNode, mapper.readTree(base));
+        assertSame(baseNode, unchanged.getMerged());
+
+        JsonNode ourNode = mapper.readTree(ours);
+        JsonNode theirNode = mapper.readTree(theirs);
+        JsonNode merged = jsonDiff.merge(mapper.readTree(base), ourNode, theirNode).getMerged();
+        assertSame(ourNode.get("labels"), merged.get("labels"));
+        assertSame(theirNode.get("env").get("C"), merged.get("env").get("C"));
+        assertSame(theirNode.get("name"), merged.get("name"));
+    }
+
+    @Test
+    public void testResultCache() throws Exception {
+        DiffCache cache = DiffCache.builder().maximumWeight(1024).stripes(1).build();
+        JsonDiff cached = JsonDiff.builder().cache(cache).format(DiffFormat.PLAIN).build();
+        String json1 = "{\"a\":1,\"b\":[1,2]}";
+        String json2 = "{\"a\":2,\"b\":[1,2]}";
+
+        String diff = cached.getDiff(json1, json2);
+        assertEquals(diff, cached.getDiff(json1, json2));
+        assertEquals(JsonDiff.builder().format(DiffFormat.PLAIN).build().getDiff(json1, json2), diff);
+        assertFalse(cached.isEqual(json1, json2));
+        assertFalse(cached.isEqual(json1, json2));
+        assertTrue(cached.isEqual(json1, "{\"b\":[1,2],\"a\":1}"));
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(3, cache.getSize());
+
+        // Another instance sharing the cache must not see results computed with other options.
+        JsonDiff ignoring = JsonDiff.builder().cache(cache).options(DiffOptions.builder().ignore("a").build()).build();
+        assertTrue(ignoring.isEqual(json1, json2));
+        assertEquals(2, cache.getHits());
+
+        // Failures are not cached.
+        assertThrows(IOException.class, () -> cached.getDiff("{", json2));
+        assertThrows(IOException.class, () -> cached.getDiff("{", json2));
+
+        for (int i = 0; i < 20; i++) {
+            cached.getDiff("{\"a\":" + i + "}", json2);
+        }
+        assertTrue(cache.getEvictions() > 0);
+        assertTrue(cache.getWeight() <= 1024);
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getWeight());
+        assertThrows(IllegalArgumentException.class, () -> DiffCache.builder().stripes(0));
+    }
+
+    @Test
+    public void testBinaryDiffRoundTrip() throws IOException {
+        StringBuilder json1 = new StringBuilder("{\"items\": [");
+        StringBuilder json2 = new StringBuilder("{\"items\": [");
+        for (int i = 0; i < 200; i++) {
+            json1.append(i > 0 ? "," : "").append("{\"id\": ").append(i).append(", \"price\": ").append(i * 1.5)
+                    .append(", \"name\": \"item-").append(i).append("\", \"tags\": [\"a\", null, true]}");
+            json2.append(i > 0 ? "," : "").append("{\"id\": ").append(i).append(", \"price\": ").append(i * 2.5)
+                    .append(", \"name\": \"item-").append(i).append("\", \"tags\": [\"a\", null, false]}");
+        }
+        json1.append("], \"big\": 123456789012345678901234567890, \"gone\": {\"x\": [1, 2]}, \"é\": 1}");
+        json2.append(", 3000000000], \"big\": 1, \"extra\": \"value\", \"é\": 2}");
+
+        for (JsonDiff diff : List.of(jsonDiff,
+                new JsonDiff(DiffOptions.builder().pathFormat(PathFormat.JSON_POINTER).build()),
+                new JsonDiff(DiffOptions.builder().arrayAlignment(ArrayAlignment.LCS).build()))) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (BinaryDiffWriter writer = new BinaryDiffWriter(bytes)) {
+                diff.diff(json1.toString(), json2.toString(), writer);
+            }
+            for (DiffFormat format : DiffFormat.values()) {
+                StringWriter text = new StringWriter();
+                diff.writeDiff(json1.toString(), json2.toString(), text, format);
+                StringBuilder converted = new StringBuilder();
+                new BinaryDiffReader(ByteBuffer.wrap(bytes.toByteArray())).writeText(converted, format);
+                assertEquals(text.toString(), converted.toString());
+                if (format == DiffFormat.ANSI) {
+                    assertTrue(bytes.size() * 3 < text.toString().length());
+                }
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinaryDiffWriter writer = new BinaryDiffWriter(bytes)) {
+            jsonDiff.diff(json1.toString(), json2.toString(), writer);
+        }
+        List<DiffEntry> expected = jsonDiff.getDifferences(json1.toString(), json2.toString());
+        BinaryDiffReader reader = new BinaryDiffReader(ByteBuffer.wrap(bytes.toByteArray()));
+        int count = 0;
+        while (reader.next()) {
+            DiffEntry entry = expected.get(count++);
+            assertEquals(entry.getKind(), reader.getKind());
+            assertEquals(entry.getDiffPath(), reader.getDiffPath());
+            assertEquals(entry.getPath(), reader.getPath());
+            if (entry.getPath().equals("items[0].price")) {
+                assertEquals(entry.getLeft(), reader.getLeft());
+                assertEquals(entry.getRight(), reader.getRight());
+            }
+        }
+        assertEquals(expected.size(), count);
+        assertFalse(reader.next());
+
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() / 2);
+        BinaryDiffReader broken = new BinaryDiffReader(ByteBuffer.wrap(truncated));
+        assertThrows(IOException.class, () -> {
+            while (broken.next()) {
+                broken.getRight();
+            }
+        });
+        assertThrows(IOException.class, () -> new BinaryDiffReader(ByteBuffer.wrap(new byte[8])));
+    }
+
+    @Test
+    public void testDiffSessionTracksEdits() throws IOException {
+        String json1 = "{\"name\": \"a\", \"tags\": [\"x\", \"y\", \"z\"], \"nested\": {\"n\": 1, \"list\": [1, 2, 3]}}";
+        for (DiffOptions options : List.of(DiffOptions.DEFAULT,
+                DiffOptions.builder().arrayAlignment(ArrayAlignment.LCS).build(),
+                DiffOptions.builder().arrayAlignment("tags", ArrayAlignment.UNORDERED).ignore("nested.n").build())) {
+            JsonDiff diff = new JsonDiff(options);
+            DiffSession session = diff.session(json1, json1);
+            assertEquals(0, session.getDifferenceCount());
+
+            List<String> patches = List.of(
+                    "[{\"op\": \"replace\", \"path\": \"/name\", \"value\": \"b\"}]",
+                    "[{\"op\": \"remove\", \"path\": \"/tags/0\"}, {\"op\": \"add\", \"path\": \"/tags/-\", \"value\": \"x\"}]",
+                    "[{\"op\": \"replace\", \"path\": \"/nested/n\", \"value\": 2}]",
+                    "[{\"op\": \"add\", \"path\": \"/nested/list/1\", \"value\": 9}]",
+                    "[{\"op\": \"move\", \"from\": \"/nested/list\", \"path\": \"/list\"}]",
+                    "[{\"op\": \"replace\", \"path\": \"/nested\", \"value\": [1]}]",
+                    "[{\"op\": \"replace\", \"path\": \"/name\", \"value\": \"a\"}]");
+            for (String patch : patches) {
+                List<String> before = sorted(session.getDifferences());
+                DiffDelta delta = session.apply(JsonPatch.fromJson(mapper.readTree(patch)));
+                List<String> expected = sorted(diff.getDifferences(session.getFirst(), session.getSecond()));
+                assertEquals(expected, sorted(session.getDifferences()));
+                List<String> applied = new ArrayList<>(before);
+                delta.getRemoved().forEach(entry -> assertTrue(applied.remove(entry.toString())));
+                delta.getAdded().forEach(entry -> applied.add(entry.toString()));
+                applied.sort(null);
+                assertEquals(expected, applied);
+            }
+
+            DiffDelta delta = session.update(mapper.readTree(json1));
+            assertEquals(0, session.getDifferenceCount());
+            assertTrue(delta.getAdded().isEmpty());
+            assertTrue(session.update(mapper.readTree(json1)).isEmpty());
+            assertThrows(IllegalArgumentException.class, () -> session.apply(JsonPatch.fromJson(mapper.readTree(
+                    "[{\"op\": \"replace\", \"path\": \"/name\", \"value\": 1}, {\"op\": \"remove\", \"path\": \"/missing\"}]"))));
+            assertEquals(sorted(diff.getDifferences(session.getFirst(), session.getSecond())), sorted(session.getDifferences()));
+        }
+    }
+
+    @Test
+    public void testDiffSessionEditInsideReportedValue() throws IOException {
+        DiffSession extra = jsonDiff.session("{}", "{\"a\": {\"x\": 1}}");
+        DiffEntry reported = extra.getDifferences().get(0);
+        DiffDelta delta = extra.apply(JsonPatch.fromJson(mapper.readTree("[{\"op\": \"add\", \"path\": \"/a/y\", \"value\": 2}]")));
+        assertEquals(mapper.readTree("{\"x\": 1}"), reported.getRight());
+        assertEquals(1, delta.getRemoved().size());
+        assertEquals(mapper.readTree("{\"x\": 1}"), delta.getRemoved().get(0).getRight());
+        assertEquals(mapper.readTree("{\"x\": 1, \"y\": 2}"), delta.getAdded().get(0).getRight());
+
+        DiffSession mismatch = jsonDiff.session("{\"a\": [1]}", "{\"a\": {\"x\": 1}}");
+        delta = mismatch.apply(JsonPatch.fromJson(mapper.readTree("[{\"op\": \"replace\", \"path\": \"/a/x\", \"value\": 2}]")));
+        assertEquals(mapper.readTree("{\"x\": 1}"), delta.getRemoved().get(0).getRight());
+        assertEquals(mapper.readTree("{\"x\": 2}"), delta.getAdded().get(0).getRight());
+        assertEquals(sorted(jsonDiff.getDifferences(mismatch.getFirst(), mismatch.getSecond())), sorted(mismatch.getDifferences()));
+    }
+
+    private static List<String> sorted(List<DiffEntry> entries) {
+        return entries.stream().map(DiffEntry::toString).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testSummaryGroupsByPathTemplate(@TempDir Path directory) throws IOException {
+        StringBuilder json1 = new StringBuilder("{\"orders\": [");
+        StringBuilder json2 = new StringBuilder("{\"orders\": [");
+        for (int i = 0; i < 100; i++) {
+            String separator = i > 0 ? ", " : "";
+            json1.append(separator).append("{\"id\": ").append(i).append(", \"price\": 100, \"address\": {\"city\": \"x\", \"zip\": 1}}");
+            json2.append(separator).append("{\"id\": ").append(i).append(", \"price\": ").append(i < 4 ? 110 : 100)
+                    .append(", \"address\": {\"city\": \"x\"").append(i % 10 == 0 ? "" : ", \"zip\": 1").append("}}");
+        }
+        json1.append("], \"total\": 5}");
+        json2.append("], \"total\": 5, \"note\": \"n\"}");
+
+        DiffSummary summary = jsonDiff.summarize(json1.toString(), json2.toString());
+        Path file1 = Files.writeString(directory.resolve("a.json"), json1);
+        Path file2 = Files.writeString(directory.resolve("b.json"), json2);
+        DiffSummary streamed = jsonDiff.summarize(file1, file2);
+
+        for (DiffSummary result : List.of(summary, streamed)) {
+            DiffSummary.Group price = result.getGroup("orders[*].price");
+            assertEquals(100, price.getOccurrences());
+            assertEquals(4, price.getCount(DiffEntry.Kind.VALUE_MISMATCH));
+            assertEquals(0.04, price.getChangedRatio(), 1e-9);
+            assertEquals(10, price.getMeanDelta(), 1e-9);
+            assertEquals(4, price.getRelativeChangeHistogram()[3]);
+            assertEquals(10, result.getGroup("orders[*].address.zip").getCount(DiffEntry.Kind.MISSING));
+            assertEquals(10, result.getDifferenceCountUnder("orders[*].address", DiffEntry.Kind.MISSING));
+            assertEquals(0, result.getDifferenceCountUnder("orders[*].addr", DiffEntry.Kind.MISSING));
+            assertEquals(1, result.getGroup("note").getCount(DiffEntry.Kind.EXTRA));
+            assertEquals(100, result.getGroup("orders[*]").getOccurrences());
+            assertEquals(15, result.getDifferenceCount());
+            assertEquals(jsonDiff.getDifferences(json1.toString(), json2.toString()).size(), result.getDifferenceCount());
+        }
+        assertTrue(summary.toString().contains("orders[*].price: 4.0% of 100 changed, 4 VALUE_MISMATCH"));
+
+        StringBuilder wide1 = new StringBuilder("{");
+        StringBuilder wide2 = new StringBuilder("{");
+        for (int i = 0; i < SummaryCollector.MAX_TEMPLATES + 10; i++) {
+            wide1.append(i > 0 ? ", " : "").append("\"k").append(i).append("\": 1");
+            wide2.append(i > 0 ? ", " : "").append("\"k").append(i).append("\": 2");
+        }
+        DiffSummary wide = jsonDiff.summarize(wide1.append('}').toString(), wide2.append('}').toString());
+        assertEquals(SummaryCollector.MAX_TEMPLATES + 1, wide.getGroups().size());
+        assertEquals(11, wide.getGroup("*").getCount(DiffEntry.Kind.VALUE_MISMATCH));
+    }
+
+    @Test
+    void testUnorderedSubsetBacktracksContainerMatches() throws IOException {
+        JsonDiff unordered = new JsonDiff(DiffOptions.builder().arrayContainment(ArrayContainment.UNORDERED).build());
+        assertTrue(unordered.isSubset("[{\"a\":1},{\"a\":1,\"b\":2}]", "[{\"a\":1,\"b\":2,\"x\":0},{\"a\":1,\"y\":0}]"));
+        assertFalse(unordered.isSubset("[{\"a\":1,\"b\":2},{\"a\":1,\"b\":2}]", "[{\"a\":1,\"b\":2,\"x\":0},{\"a\":1,\"y\":0}]"));
+    }
+
+    @Test
+    void testUnorderedSubsetLooksUpContainersByKey() throws IOException {
+        JsonDiff unordered = new JsonDiff(DiffOptions.builder().arrayContainment(ArrayContainment.UNORDERED).build());
+        ArrayNode records = mapper.createArrayNode();
+        ArrayNode partial = mapper.createArrayNode();
+        for (int i = 0; i < 5000; i++) {
+            records.addObject().put("id", i).put("name", "n" + i).putObject("meta").put("v", i % 7);
+            partial.insertObject(0).put("id", i).putObject("meta");
+        }
+        assertTrue(unordered.isSubset(partial, records));
+        partial.addObject().put("id", 5000);
+        assertFalse(unordered.isSubset(partial, records));
+
+        assertTrue(unordered.isSubset("[[1, {\"a\": 2}], [3]]", "[[3, 4], [{\"a\": 2, \"b\": 0}, 1]]"));
+        assertFalse(unordered.isSubset("[{\"a\": [1]}]", "[{\"a\": {\"0\": 1}}, [{\"a\": [1]}]]"));
+        assertFalse(unordered.isSubset("[[1, [2]]]", "[[1, 2], [[2], 3]]"));
+    }
+
+    @Test
+    void testPatchIgnoresPathRules() throws IOException {
+        JsonDiff ignoring = new JsonDiff(DiffOptions.builder().ignore("ts").build());
+        JsonNode source = mapper.readTree("{\"ts\":1,\"v\":1}");
+        JsonNode target = mapper.readTree("{\"ts\":2,\"v\":2}");
+        assertEquals(target, ignoring.getPatch(source, target).apply(source));
+        assertTrue(ignoring.isEqual("{\"ts\":1,\"v\":1}", "{\"ts\":2,\"v\":1}"));
+    }
+
+    @Test
+    void testPatchIgnoresValueComparators() throws IOException {
+        JsonDiff numeric = new JsonDiff(DiffOptions.builder().valueComparator(ValueComparator.numeric(0.5, 0)).build());
+        JsonNode source = mapper.readTree("{\"v\":1,\"w\":1}");
+        JsonNode target = mapper.readTree("{\"v\":1.25,\"w\":1.0}");
+        assertTrue(numeric.isEqual(source, target));
+        assertEquals(target, numeric.getPatch(source, target).apply(source));
+    }
+
+    @Test
+    void testUnorderedArraysApplyValueComparators() throws IOException {
+        JsonDiff numeric = new JsonDiff(DiffOptions.builder()
+                .arrayAlignment(ArrayAlignment.UNORDERED)
+                .valueComparator(ValueComparator.numeric())
+                .build());
+        assertTrue(numeric.isEqual("[1]", "[1.0]"));
+        assertTrue(numeric.isEqual("[{\"n\":2},{\"n\":1}]", "[{\"n\":1.0},{\"n\":2.0}]"));
+        assertFalse(numeric.isEqual("[1, 2]", "[1.0, 3]"));
+
+        JsonDiff lcs = new JsonDiff(DiffOptions.builder()
+                .arrayAlignment(ArrayAlignment.LCS)
+                .valueComparator(ValueComparator.numeric())
+                .build());
+        assertTrue(lcs.isEqual("[1, 2]", "[1.0, 2.0]"));
+    }
+
+    @Test
+    void testStreamingDiffReportsValuesOfTrailingFields() throws IOException {
+        String json1 = "{\"a\": 1, \"b\": {\"x\": [1, 2]}, \"e\": [5]}";
+        String json2 = "{\"a\": 1, \"c\": \"new\"}";
+        List<DiffEntry> streamed = new ArrayList<>();
+        jsonDiff.diff(stream(json1), stream(json2), streamed::add);
+        assertEquals(sorted(jsonDiff.getDifferences(json1, json2)), sorted(streamed));
+        List<DiffEntry> reversed = new ArrayList<>();
+        jsonDiff.diff(stream(json2), stream(json1), reversed::add);
+        assertEquals(sorted(jsonDiff.getDifferences(json2, json1)), sorted(reversed));
+        streamed.addAll(reversed);
+        for (DiffEntry entry : streamed) {
+            assertNotNull(entry.getKind() == DiffEntry.Kind.MISSING ? entry.getLeft() : entry.getRight());
+        }
+    }
+
+    @Test
+    void testNameGlobsBeyondCachedTransitions() {
+        JsonDiff ignoring = new JsonDiff(DiffOptions.builder().ignore("*_at", "meta.**").build());
+        ObjectNode node1 = mapper.createObjectNode();
+        ObjectNode node2 = mapper.createObjectNode();
+        for (int i = 0; i < 3000; i++) {
+            node1.put("f" + i, i);
+            node2.put("f" + i, i);
+            node1.put("f" + i + "_at", i);
+            node2.put("f" + i + "_at", -i);
+        }
+        node2.put("f2999", 0);
+        List<DiffEntry> differences = ignoring.getDifferences(node1, node2);
+        assertEquals(List.of("VALUE_MISMATCH at f2999: 2999 vs 0"), sorted(differences));
+    }
+
+    @Test
+    void testBinaryDiffEncodesEmptyDocument() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinaryDiffWriter writer = new BinaryDiffWriter(bytes)) {
+            jsonDiff.diff("", "{}", writer);
+        }
+        StringWriter text = new StringWriter();
+        jsonDiff.writeDiff("", "{}", text, DiffFormat.PLAIN);
+        StringBuilder converted = new StringBuilder();
+        new BinaryDiffReader(ByteBuffer.wrap(bytes.toByteArray())).writeText(converted, DiffFormat.PLAIN);
+        assertEquals(text.toString(), converted.toString());
+
+        BinaryDiffReader reader = new BinaryDiffReader(ByteBuffer.wrap(bytes.toByteArray()));
+        assertTrue(reader.next());
+        assertTrue(reader.getLeft().isMissingNode());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void testUnorderedRuleEquivalenceIsBucketed() throws IOException {
+        JsonDiff numeric = new JsonDiff(DiffOptions.builder()
+                .arrayAlignment(ArrayAlignment.UNORDERED)
+                .valueComparator(ValueComparator.numeric())
+                .valueComparator("**.name", ValueComparator.caseInsensitive())
+                .ignore("**.ts")
+                .build());
+        ArrayNode array1 = mapper.createArrayNode();
+        ArrayNode array2 = mapper.createArrayNode();
+        for (int i = 0; i < 50_000; i++) {
+            array1.add(i);
+            array2.add(49_999.0 - i);
+        }
+        assertTrue(numeric.isEqual(array1, array2));
+        array2.set(0, mapper.getNodeFactory().numberNode(-1.0));
+        assertEquals(List.of("EXTRA at [0]: null vs -1.0", "MISSING at [49999]: 49999 vs null"),
+                sorted(numeric.getDifferences(array1, array2)));
+
+        assertTrue(numeric.isEqual("[{\"id\": 1, \"name\": \"A\", \"ts\": 1}, {\"id\": 2, \"name\": \"b\", \"ts\": 2}]",
+                "[{\"id\": 2.0, \"name\": \"B\", \"ts\": 9}, {\"id\": 1, \"name\": \"a\", \"ts\": 8}]"));
+
+        JsonDiff tolerant = new JsonDiff(DiffOptions.builder()
+                .arrayAlignment(ArrayAlignment.UNORDERED)
+                .valueComparator(ValueComparator.numeric(0.2, 0))
+                .build());
+        assertTrue(tolerant.isEqual("[1, 2, 3]", "[3.1, 2.1, 1.1]"));
+    }
+
+    @Test
+    void testStreamingDiffBuffersOneSideOfAnInsertedField() throws IOException {
+        StringBuilder fields = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            fields.append(", \"f").append(i).append("\": {\"values\": [").append(i).append(", ").append(i + 1).append("]}");
+        }
+        String json1 = "{\"id\": 1" + fields + "}";
+        String json2 = "{\"inserted\": true, \"id\": 1" + fields + "}";
+
+        for (String[] pair : new String[][] {{json1, json2}, {json2, json1}}) {
+            List<DiffEntry> streamed = new ArrayList<>();
+            StreamingDiff streamingDiff;
+            try (JsonParser parser1 = mapper.createParser(pair[0]); JsonParser parser2 = mapper.createParser(pair[1])) {
+                streamingDiff = new StreamingDiff(mapper, parser1, parser2, new DiffWalker(streamed::add, DiffOptions.DEFAULT));
+                streamingDiff.compare();
+            }
+            assertEquals(sorted(jsonDiff.getDifferences(pair[0], pair[1])), sorted(streamed));
+            assertTrue(streamingDiff.getPeakBuffered() <= 2, "Buffered " + streamingDiff.getPeakBuffered() + " fields");
+        }
+    }
+
+    @Test
+    void testIdenticalInvalidStringsAreRejected() throws IOException {
+        assertThrows(IOException.class, () -> jsonDiff.isEqual("{\"a\": [1, 2}", "{\"a\": [1, 2}"));
+        assertThrows(IOException.class, () -> jsonDiff.isEqual("{\"a\"", "{\"a\""));
+        assertTrue(jsonDiff.isEqual("{\"a\": [1, 2]}", "{\"a\": [1, 2]}"));
+        assertTrue(jsonDiff.isEqual("", ""));
+    }
+
+    @Test
+    void testRootArrayPathsKeepTheirIndentation() throws Exception {
+        String diff = jsonDiff.getDiff("[1, {\"a\": 1}]", "[2, {\"a\": 2}]");
+
+        assertEquals("    \u001B[31mValue mismatch at [0]: 1 vs 2\u001B[0m\n"
+                + "      \u001B[31mValue mismatch at [1].a: 1 vs 2\u001B[0m\n", diff);
+        assertEquals("    \u001B[31mValue mismatch at a[0]: 1 vs 2\u001B[0m\n",
+                jsonDiff.getDiff("{\"a\": [1]}", "{\"a\": [2]}"));
+    }
+
+    @Test
+    void testBinaryDiffWriterRejectsUnpairedSurrogates() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinaryDiffWriter writer = new BinaryDiffWriter(bytes)) {
+            assertThrows(IllegalArgumentException.class, () -> jsonDiff.diff("{\"a\": {\"b\": \"\\ud800\"}}",
+                    "{\"a\": {\"b\": \"x\"}}", writer));
+            assertThrows(IllegalArgumentException.class, () -> jsonDiff.diff("{\"\\udc00\": 1}", "{}", writer));
+            jsonDiff.diff("{\"a\": {\"b\": \"\\ud83d\\ude00\"}}", "{\"a\": {\"c\": 1}}", writer);
+        }
+        BinaryDiffReader reader = new BinaryDiffReader(ByteBuffer.wrap(bytes.toByteArray()));
+        List<String> read = new ArrayList<>();
+        while (reader.next()) {
+            read.add(reader.getKind() + " at " + reader.getPath() + ": " + reader.getLeft() + " vs " + reader.getRight());
+        }
+
+        assertEquals(List.of("MISSING at a.b: \"\ud83d\ude00\" vs null", "EXTRA at a.c: null vs 1"), read);
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> sortedLines(String diff) {
+        return diff.lines().sorted().collect(Collectors.toList());
+    }
 }
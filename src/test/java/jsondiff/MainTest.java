@@ -0,0 +1,69 @@
+package jsondiff;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MainTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testExitStatusAndOutput() throws IOException {
+        Path file1 = write("a.json", "{\"name\": \"John\", \"tags\": [1, 2], \"age\": 25}");
+        Path file2 = write("b.json", "{\"name\": \"Jane\", \"tags\": [1], \"age\": 25}");
+        Path copy = write("c.json", "{\"age\": 25, \"tags\": [1, 2], \"name\": \"John\"}");
+
+        StringBuilder out = new StringBuilder();
+        assertEquals(Main.DIFFERENT, Main.run(args("-f", "compact", file1, file2), out, err(), false));
+        assertEquals("~ name: \"John\" -> \"Jane\"\n- tags[1]: 2\n", out.toString());
+
+        out.setLength(0);
+        assertEquals(Main.DIFFERENT, Main.run(args("--limit", "1", "--pointer", "--format", "plain", file1, file2), out, err(), false));
+        assertEquals("  Value mismatch at /name: \"John\" vs \"Jane\"\n", out.toString());
+
+        out.setLength(0);
+        assertEquals(Main.EQUAL, Main.run(args(file1, copy), out, err(), true));
+        assertEquals("", out.toString());
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+        Path file1 = write("a.json", "{\"name\": \"John\"}");
+        Path invalid = write("b.json", "{\"name\": ");
+        ByteArrayOutputStream messages = new ByteArrayOutputStream();
+        PrintStream err = new PrintStream(messages, true, StandardCharsets.UTF_8);
+
+        assertEquals(Main.ERROR, Main.run(args(file1), new StringBuilder(), err, false));
+        assertEquals(Main.ERROR, Main.run(args("--format", "html", file1, file1), new StringBuilder(), err, false));
+        assertEquals(Main.ERROR, Main.run(args(file1, invalid), new StringBuilder(), err, false));
+        assertEquals(Main.ERROR, Main.run(args(file1, directory.resolve("missing.json")), new StringBuilder(), err, false));
+        assertTrue(messages.toString(StandardCharsets.UTF_8).contains("Usage:"));
+    }
+
+    private Path write(String name, String json) throws IOException {
+        return Files.writeString(directory.resolve(name), json);
+    }
+
+    private static String[] args(Object... args) {
+        String[] strings = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            strings[i] = args[i].toString();
+        }
+        return strings;
+    }
+
+    private static PrintStream err() {
+        return new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+    }
+}